@@ -0,0 +1,27 @@
+package org.informatics.app;
+
+import java.io.File;
+
+import org.informatics.storage.ReceiptShards;
+
+// One-shot move of a flat receipts directory into the sharded layout (<day>/<bucket>/receipt-N.*).
+// Usage: java org.informatics.app.ShardMigration [receipts directory, default "receipts"]
+// Safe to run again after an interruption; receipts already moved are not touched.
+public class ShardMigration {
+
+    public static void main(String[] args) {
+        File dir = new File(args.length > 0 ? args[0] : "receipts");
+        if (!dir.isDirectory()) {
+            System.err.println("Not a directory: " + dir.getAbsolutePath());
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            int moved = ReceiptShards.migrate(dir);
+            System.out.printf("Moved %d receipts into %s in %d ms%n", moved, dir.getAbsolutePath(),
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            System.err.println("Migration failed: " + e.getMessage());
+        }
+    }
+}
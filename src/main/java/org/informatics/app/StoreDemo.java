@@ -23,6 +23,7 @@ import org.informatics.service.impl.FileServiceImpl;
 import org.informatics.service.impl.FinancialServiceImpl;
 import org.informatics.service.impl.GoodsServiceImpl;
 import org.informatics.service.impl.StoreServiceImpl;
+import org.informatics.store.ReceiptSequence;
 import org.informatics.store.Store;
 
 /**
@@ -35,6 +36,7 @@ public class StoreDemo {
     private static final BigDecimal NON_FOOD_MARKUP_RATE = new BigDecimal("0.25"); // 25% non-food markup
     private static final int NEAR_EXPIRY_DAYS_THRESHOLD = 3; // 3 days for near-expiry discount
     private static final BigDecimal NEAR_EXPIRY_DISCOUNT_RATE = new BigDecimal("0.30"); // 30% discount
+    private static final String RECEIPTS_DIR = "receipts";
 
     // Services
     private static StoreService storeService;
@@ -55,7 +57,10 @@ public class StoreDemo {
                     NEAR_EXPIRY_DAYS_THRESHOLD,
                     NEAR_EXPIRY_DISCOUNT_RATE
             );
-            Store store = new Store(config);
+            // Receipt numbers continue from the last run, so saved receipt files are not overwritten
+            ReceiptSequence sequence = new ReceiptSequence(
+                    new File(RECEIPTS_DIR, "receipt-sequence.state"), ReceiptSequence.DEFAULT_BLOCK_SIZE);
+            Store store = new Store(config, sequence);
             
             // 2. Initialize services
             initializeServices(store);
@@ -118,7 +123,7 @@ public class StoreDemo {
         goodsService = new GoodsServiceImpl(store);
         cashdeskService = new CashdeskServiceImpl(store);
         financialService = new FinancialServiceImpl(store);
-        fileService = new FileServiceImpl();
+        fileService = new FileServiceImpl(store);
     }
 
     private static void setupCashiersAndDesks() throws Exception {
@@ -240,7 +245,7 @@ public class StoreDemo {
 
     private static void demonstrateFileOperations() {
         System.out.println("\n=== FILE WORK DEMO ===");
-        File receiptDir = new File("receipts");
+        File receiptDir = new File(RECEIPTS_DIR);
         if (!receiptDir.exists() && !receiptDir.mkdirs()) {
             System.out.println("Warning: Could not create receipts directory");
             return;
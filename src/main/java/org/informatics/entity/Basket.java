@@ -0,0 +1,35 @@
+package org.informatics.entity;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Products a customer brings to the desk, checked out together as one receipt
+public class Basket {
+
+    private final Map<String, Integer> items = new LinkedHashMap<>(); // Product ID -> quantity, in scan order
+
+    // Scanning the same product again increases its quantity
+    public Basket add(String productId, int quantity) {
+        if (productId == null) {
+            throw new IllegalArgumentException("Product ID cannot be null");
+        }
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive: " + quantity);
+        }
+        items.merge(productId, quantity, Integer::sum);
+        return this;
+    }
+
+    public Map<String, Integer> getItems() {
+        return Collections.unmodifiableMap(items);
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    public int size() {
+        return items.size();
+    }
+}
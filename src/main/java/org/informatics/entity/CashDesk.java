@@ -11,7 +11,7 @@ public class CashDesk implements Serializable {
     private static int nextId = 1;  // Auto ID for desks
 
     private final String id;
-    private Cashier currentCashier;
+    private volatile Cashier currentCashier;
 
     public CashDesk() {
         this.id = "D" + nextId++;
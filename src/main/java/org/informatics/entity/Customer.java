@@ -13,8 +13,12 @@ public class Customer extends Person {
         this.balance = balance;
     }
 
+    public synchronized BigDecimal getBalance() {
+        return balance;
+    }
+
     // Check if customer has enough money
-    public void pay(BigDecimal amt) throws InsufficientBudgetException {
+    public synchronized void pay(BigDecimal amt) throws InsufficientBudgetException {
         if (balance.compareTo(amt) < 0) {
             throw new InsufficientBudgetException(amt, balance);
         }
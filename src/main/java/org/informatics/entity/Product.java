@@ -2,6 +2,8 @@ package org.informatics.entity;
 
 import java.io.Serial;
 import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
@@ -12,12 +14,22 @@ public class Product implements Serializable {
 
     @Serial
     private static final long serialVersionUID = 1L;
+    private static final VarHandle QTY;
+
+    static {
+        try {
+            QTY = MethodHandles.lookup().findVarHandle(Product.class, "qty", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private final String id;
     private final String name;
     private final BigDecimal purchasePrice;
     private final GoodsType type;
     private final LocalDate expiry;
-    private int qty;
+    private volatile int qty; // Only changed through compare-and-set, so concurrent sales never lose updates
 
     public Product(String id, String name, BigDecimal price, GoodsType type, LocalDate exp, int qty) {
         this.id = id;
@@ -44,17 +56,38 @@ public class Product implements Serializable {
         return type;
     }
 
+    public LocalDate getExpiry() {
+        return expiry;
+    }
+
     public int getQuantity() {
         return qty;
     }
 
     // Can accept negative values for sales (reducing inventory)
     public void addQuantity(int d) {
-        int newQuantity = qty + d;
-        if (newQuantity < 0) {
-            throw new IllegalArgumentException("Quantity cannot be negative. Current: " + qty + ", attempting to add: " + d);
+        int current;
+        do {
+            current = qty;
+            if (current + d < 0) {
+                throw new IllegalArgumentException("Quantity cannot be negative. Current: " + current + ", attempting to add: " + d);
+            }
+        } while (!QTY.compareAndSet(this, current, current + d));
+    }
+
+    // Take units off the shelf only if enough are left; returns false without changing stock otherwise
+    public boolean tryDecrement(int amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Amount must be positive: " + amount);
         }
-        qty = newQuantity;
+        int current;
+        do {
+            current = qty;
+            if (current < amount) {
+                return false;
+            }
+        } while (!QTY.compareAndSet(this, current, current - amount));
+        return true;
     }
 
     // Product is expired if expiry date is today or earlier
@@ -1,30 +1,62 @@
 package org.informatics.entity;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.io.PrintWriter;
+import java.io.OutputStreamWriter;
 import java.io.Serial;
 import java.io.Serializable;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.informatics.storage.ReceiptCodec;
+import org.informatics.storage.ReceiptShards;
+import org.informatics.util.ReceiptFormat;
+import org.informatics.util.ReceiptLayout;
+import org.informatics.util.ReceiptRenderer;
+
+// Lines are added while the sale is in progress; once sealed the receipt can no longer change
+// and can be read from any thread without copying.
 public class Receipt implements Serializable {
 
     @Serial
     private static final long serialVersionUID = 1L;
-    private static int COUNTER = 0;
-    private final int number = ++COUNTER;
+    // Only used for receipts created outside a store; a Store numbers its receipts with its own ReceiptSequence
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+    private final int number;
     private final Cashier cashier;
-    private final LocalDateTime time = LocalDateTime.now();
-    private final List<Line> lines = new ArrayList<>();
+    private final LocalDateTime time;
+    private List<Line> lines = new ArrayList<>(); // Not final: readObject replaces a missing list
+    private volatile boolean sealed;
+    private transient volatile BigDecimal total = BigDecimal.ZERO; // Kept up to date by add()
+    private transient List<Line> linesView;
 
     public Receipt(Cashier cashier) {
+        this(COUNTER.incrementAndGet(), cashier);
+    }
+
+    public Receipt(int number, Cashier cashier) {
+        this(number, cashier, LocalDateTime.now());
+    }
+
+    // Time comes from the store's business clock, which may be simulated
+    public Receipt(int number, Cashier cashier, LocalDateTime time) {
+        if (number <= 0) {
+            throw new IllegalArgumentException("Receipt number must be positive: " + number);
+        }
+        this.number = number;
         this.cashier = cashier;
+        this.time = time;
     }
 
     public int getNumber() {
@@ -39,11 +71,29 @@ public class Receipt implements Serializable {
         return time;
     }
 
+    // Read-only view, no copy is made
     public List<Line> getLines() {
-        return new ArrayList<>(lines);
+        List<Line> view = linesView;
+        if (view == null) {
+            view = Collections.unmodifiableList(lines);
+            linesView = view;
+        }
+        return view;
     }
 
-    public void add(Product product, int quantity, BigDecimal price) {
+    public boolean isSealed() {
+        return sealed;
+    }
+
+    // Close the receipt; further add() calls fail
+    public synchronized void seal() {
+        sealed = true;
+    }
+
+    public synchronized void add(Product product, int quantity, BigDecimal price) {
+        if (sealed) {
+            throw new IllegalStateException("Receipt #" + number + " is sealed and cannot be changed");
+        }
         if (product == null) {
             throw new IllegalArgumentException("Product cannot be null");
         }
@@ -54,28 +104,40 @@ public class Receipt implements Serializable {
             throw new IllegalArgumentException("Price cannot be negative");
         }
 
-        lines.add(new Line(product, quantity, price));
+        Line line = new Line(product, quantity, price);
+        lines.add(line);
+        total = total.add(line.total());
     }
 
     public BigDecimal total() {
-        BigDecimal sum = BigDecimal.ZERO;
-        for (Line line : lines) {
-            BigDecimal lineTotal = line.price().multiply(BigDecimal.valueOf(line.quantity()));
-            sum = sum.add(lineTotal);
-        }
-        return sum;
+        return total;
     }
 
     public static int getReceiptCount() {
-        return COUNTER;
+        return COUNTER.get();
     }
 
     public static void resetCounter() {
-        COUNTER = 0;
+        COUNTER.set(0);
     }
 
-    // Save receipt as .txt and .ser files
+    // Save receipt as .txt and .ser files; a saved receipt is sealed first so the files can't go stale
     public void save(File dir) throws IOException {
+        save(dir, ReceiptFormat.SERIALIZED);
+    }
+
+    // Save receipt as .txt plus a .ser or .bin file
+    public void save(File dir, ReceiptFormat format) throws IOException {
+        save(dir, format, ReceiptLayout.FLAT);
+    }
+
+    // SHARDED puts the files in the receipt's day and bucket directory under dir (ReceiptShards)
+    public void save(File dir, ReceiptFormat format, ReceiptLayout layout) throws IOException {
+        seal();
+        if (layout == ReceiptLayout.SHARDED) {
+            dir = ReceiptShards.directory(dir, time.toLocalDate(), number);
+        }
+
         if (!dir.exists()) {
             if (!dir.mkdirs()) {
                 throw new IOException("Unable to create directory for receipts: " + dir.getAbsolutePath());
@@ -84,44 +146,63 @@ public class Receipt implements Serializable {
 
         // Write human-readable text file
         File txtFile = new File(dir, "receipt-" + number + ".txt");
-        try (PrintWriter pw = new PrintWriter(txtFile)) {
-            pw.print(this);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(txtFile)))) {
+            ReceiptRenderer.render(this, writer);
         }
 
-        // Write serialized object
-        File serFile = new File(dir, "receipt-" + number + ".ser");
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(serFile))) {
-            oos.writeObject(this);
+        // Write serialized object or compact binary record. It is written under a temporary name and
+        // renamed when complete, so a reader watching the directory never sees half a receipt.
+        // A write or rename that fails doesn't leave the temporary file behind.
+        File dataFile = new File(dir, "receipt-" + number + format.getExtension());
+        File tmpFile = new File(dir, dataFile.getName() + ".tmp");
+        boolean saved = false;
+        try {
+            if (format != ReceiptFormat.SERIALIZED) {
+                try (FileOutputStream out = new FileOutputStream(tmpFile)) {
+                    out.write(ReceiptCodec.encode(this));
+                }
+            } else {
+                try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(tmpFile))) {
+                    oos.writeObject(this);
+                }
+            }
+            Files.move(tmpFile.toPath(), dataFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            saved = true;
+        } finally {
+            if (!saved) {
+                Files.deleteIfExists(tmpFile.toPath());
+            }
         }
     }
 
     @Override
     public String toString() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        StringBuilder sb = new StringBuilder();
-        sb.append("RECEIPT #").append(number).append("\n");
-        sb.append("Date: ").append(time.format(formatter)).append("\n");
-        sb.append("Cashier: ").append(cashier.getName()).append(" (ID: ").append(cashier.getId()).append(")\n");
-        sb.append("----------------------------------------\n");
-        sb.append("ITEMS:\n");
+        return ReceiptRenderer.render(this);
+    }
 
+    // Receipts read back from files are history: rebuild the cached total and seal them.
+    // A stream without lines (e.g. written by an older or foreign class) reads as a receipt with no lines.
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (lines == null) {
+            lines = new ArrayList<>();
+        }
+        BigDecimal sum = BigDecimal.ZERO;
         for (Line line : lines) {
-            BigDecimal lineTotal = line.price().multiply(BigDecimal.valueOf(line.quantity()));
-            sb.append(String.format("%-20s %3d x %7.2f = %8.2f\n",
-                    line.product().getName(),
-                    line.quantity(),
-                    line.price(),
-                    lineTotal));
+            sum = sum.add(line.total());
         }
-
-        sb.append("----------------------------------------\n");
-        sb.append(String.format("TOTAL: %33.2f\n", total()));
-        return sb.toString();
+        total = sum;
+        sealed = true;
     }
 
     public record Line(Product product, int quantity, BigDecimal price) implements Serializable {
 
         @Serial
         private static final long serialVersionUID = 1L;
+
+        public BigDecimal total() {
+            return price.multiply(BigDecimal.valueOf(quantity));
+        }
     }
 }
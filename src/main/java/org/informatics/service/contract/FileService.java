@@ -1,13 +1,22 @@
 package org.informatics.service.contract;
 
 import java.io.IOException;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.informatics.entity.Receipt;
+import org.informatics.storage.ReceiptFilter;
 
 public interface FileService {
 
     List<Receipt> loadAll(java.io.File dir) throws IOException;
 
     Receipt load(java.io.File dir, int receiptNumber) throws IOException, ClassNotFoundException;
+
+    List<Receipt> findByDate(java.io.File dir, LocalDate from, LocalDate to) throws IOException;
+
+    List<Receipt> findByCashier(java.io.File dir, String cashierId, LocalDate from, LocalDate to) throws IOException;
+
+    Stream<Receipt> stream(java.io.File dir, ReceiptFilter filter) throws IOException;
 }
@@ -3,8 +3,10 @@ package org.informatics.service.contract;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.informatics.config.StoreConfig;
+import org.informatics.entity.Basket;
 import org.informatics.entity.Cashier;
 import org.informatics.entity.Customer;
 import org.informatics.entity.Receipt;
@@ -21,11 +23,19 @@ public interface StoreService {
     Receipt addToReceipt(Receipt receipt, String productId, int quantity, Customer customer)
             throws ProductNotFoundException, ProductExpiredException, InsufficientQuantityException, InsufficientBudgetException;
 
+    Receipt checkout(Cashier cashier, Basket basket, Customer customer)
+            throws ProductNotFoundException, ProductExpiredException, InsufficientQuantityException, InsufficientBudgetException;
+
     Receipt createReceipt(Cashier c);
 
     void saveReceipt(Receipt receipt, File dir) throws IOException;
 
+    // Completes once the receipt is on disk; blocks while the writer's queue is full
+    CompletableFuture<Receipt> saveReceiptAsync(Receipt receipt) throws InterruptedException;
+
     List<Receipt> listReceipts();
 
     StoreConfig getConfig();
+
+    void updateConfig(StoreConfig config);
 }
@@ -3,16 +3,97 @@ package org.informatics.service.impl;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InvalidClassException;
+import java.io.InterruptedIOException;
 import java.io.ObjectInputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 import org.informatics.entity.Receipt;
 import org.informatics.service.contract.FileService;
+import org.informatics.storage.JournalFormat;
+import org.informatics.storage.JournalPosition;
+import org.informatics.storage.JournalReader;
+import org.informatics.storage.ReceiptArchive;
+import org.informatics.storage.ReceiptCache;
+import org.informatics.storage.ReceiptCatalog;
+import org.informatics.storage.ReceiptCodec;
+import org.informatics.storage.ReceiptFilter;
+import org.informatics.storage.ReceiptIndex;
+import org.informatics.storage.ReceiptShards;
 
+// Reads receipts saved as separate .ser or .bin files, flat or in ReceiptShards day/bucket directories,
+// as well as receipts appended to a journal in the same directory.
+// Binary receipts refer to products and cashiers by id, so reading them needs a catalog (normally the Store).
+// Lookups in a journal go through its index and read only the matching records.
+// Receipts of closed days rolled into compressed day archives (ReceiptArchiver) are read from
+// there; a date query opens only the archives of its days.
+// With a ReceiptCache set, load() keeps what it decoded and serves it again while the file is unchanged.
 public class FileServiceImpl implements FileService {
 
+    private final ReceiptCatalog catalog; // null: binary receipts are skipped with a warning
+    private final Map<File, ReceiptIndex> indexes = new ConcurrentHashMap<>(); // Kept per directory, refreshed before use
+    private final Map<File, ReceiptArchive> archives = new ConcurrentHashMap<>(); // Opened again when the file changes
+    private volatile ReceiptCache cache; // null: load() always reads
+    private volatile boolean memoryMapped;
+    private volatile int parallelism = 1;
+
+    public FileServiceImpl() {
+        this(null);
+    }
+
+    public FileServiceImpl(ReceiptCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    // Read journal segments through memory mappings instead of streams
+    public void setMemoryMapped(boolean memoryMapped) {
+        this.memoryMapped = memoryMapped;
+    }
+
+    // Cache for load(); null turns caching off. The same cache can be shared by several services.
+    public void setCache(ReceiptCache cache) {
+        this.cache = cache;
+    }
+
+    public ReceiptCache getCache() {
+        return cache;
+    }
+
+    // Number of threads loadAll decodes receipt files with; 1 reads them one after another
+    public void setParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    // Loads dir once and then follows it, picking up only new receipts; close the watcher when done
+    public ReceiptWatcher watch(File dir) throws IOException {
+        return watch(dir, Duration.ofSeconds(1), true);
+    }
+
+    // Without the WatchService, or where the file system has none, dir is listed every pollInterval
+    public ReceiptWatcher watch(File dir, Duration pollInterval, boolean useWatchService) throws IOException {
+        ReceiptWatcher watcher = new ReceiptWatcher(dir, catalog, this, pollInterval, useWatchService);
+        watcher.start();
+        return watcher;
+    }
+
+    // Receipts are returned in receipt-number order
     @Override
     public List<Receipt> loadAll(File dir) throws IOException {
         List<Receipt> list = new ArrayList<>();
@@ -21,35 +102,314 @@ public class FileServiceImpl implements FileService {
             return list;
         }
 
-        File[] files = dir.listFiles((File dir1, String name) -> name.endsWith(".ser"));
+        File[] files = receiptFiles(dir, ReceiptFilter.ALL);
 
         if (files == null) {
             return list;
         }
 
+        readArchives(dir, ReceiptFilter.ALL, list);
+        list.addAll(journal(dir).readAll());
+        readFiles(files, ReceiptFilter.ALL, list);
+
+        list.sort(Comparator.comparingInt(Receipt::getNumber));
+        return list;
+    }
+
+    // Receipts of the days from..to, both included, in receipt-number order
+    @Override
+    public List<Receipt> findByDate(File dir, LocalDate from, LocalDate to) throws IOException {
+        return find(dir, ReceiptFilter.between(from, to));
+    }
+
+    // Receipts of one cashier from..to, both included, in receipt-number order
+    @Override
+    public List<Receipt> findByCashier(File dir, String cashierId, LocalDate from, LocalDate to) throws IOException {
+        return find(dir, ReceiptFilter.byCashier(cashierId, from, to));
+    }
+
+    // Receipts matching the filter, decoded one at a time as the stream is consumed: archived receipts
+    // by day first, then journal receipts (only the indexed matches when there is an index), then receipt files by number.
+    // Nothing is collected, so a report can go through an archive larger than the heap and stop early.
+    // The stream holds a journal segment open until it is closed; I/O errors are thrown as UncheckedIOException.
+    @Override
+    public Stream<Receipt> stream(File dir, ReceiptFilter filter) throws IOException {
+        if (!dir.exists()) {
+            return Stream.empty();
+        }
+        Stream<Receipt> archivedReceipts = ReceiptArchive.list(dir).stream()
+                .filter(file -> filter.matchesDay(ReceiptArchive.day(file.getName())))
+                .flatMap(file -> {
+                    try {
+                        return archive(file).stream(filter, catalog);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+        ReceiptIndex index = filter.isAll() ? null : index(dir);
+        Stream<Receipt> journalReceipts = Stream.concat(archivedReceipts, index != null
+                ? journal(dir).stream(positions(index.find(filter)))
+                : journal(dir).stream(filter));
+        File[] files = receiptFiles(dir, filter);
+        if (files == null || files.length == 0) {
+            return journalReceipts;
+        }
+        Arrays.sort(files, Comparator.comparingInt(FileServiceImpl::fileNumber));
+        Stream<Receipt> fileReceipts = Arrays.stream(files)
+                .map(file -> {
+                    try {
+                        return readFile(file, filter);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .filter(Objects::nonNull);
+        return Stream.concat(journalReceipts, fileReceipts);
+    }
+
+    // Journal receipts come from the index positions (or a scan without an index);
+    // separate receipt files have no index and are all checked against the filter
+    private List<Receipt> find(File dir, ReceiptFilter filter) throws IOException {
+        List<Receipt> list = new ArrayList<>();
+        if (!dir.exists()) {
+            return list;
+        }
+        readArchives(dir, filter, list);
+        ReceiptIndex index = index(dir);
+        if (index != null) {
+            list.addAll(journal(dir).read(positions(index.find(filter))));
+        } else {
+            try (Stream<Receipt> receipts = journal(dir).stream(filter)) {
+                receipts.forEach(list::add);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        File[] files = receiptFiles(dir, filter);
+        if (files != null && files.length > 0) {
+            readFiles(files, filter, list);
+        }
+        list.sort(Comparator.comparingInt(Receipt::getNumber));
+        return list;
+    }
+
+    // Archives of the filter's days; an archive that can't be read is skipped with a warning
+    private void readArchives(File dir, ReceiptFilter filter, List<Receipt> list) {
+        for (File file : ReceiptArchive.list(dir)) {
+            if (!filter.matchesDay(ReceiptArchive.day(file.getName()))) {
+                continue;
+            }
+            try (Stream<Receipt> receipts = archive(file).stream(filter, catalog)) {
+                receipts.forEach(list::add);
+            } catch (IOException | UncheckedIOException e) {
+                System.out.println("Warning: Could not read archive: " + file.getName() + " - " + e.getMessage());
+            }
+        }
+    }
+
+    ReceiptArchive archive(File file) throws IOException {
+        ReceiptArchive archive = archives.get(file.getAbsoluteFile());
+        if (archive == null || !archive.isCurrent()) {
+            archive = ReceiptArchive.open(file);
+            archives.put(file.getAbsoluteFile(), archive);
+        }
+        return archive;
+    }
+
+    private static List<JournalPosition> positions(List<ReceiptIndex.Entry> entries) {
+        List<JournalPosition> positions = new ArrayList<>(entries.size());
+        for (ReceiptIndex.Entry entry : entries) {
+            positions.add(entry.position());
+        }
+        return positions;
+    }
+
+    // Receipt number from a receipt-N.ser / receipt-N.bin name; other names sort last
+    private static int fileNumber(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        if (!name.startsWith("receipt-") || dot < 0) {
+            return Integer.MAX_VALUE;
+        }
+        try {
+            return Integer.parseInt(name.substring("receipt-".length(), dot));
+        } catch (NumberFormatException e) {
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    // Flat files plus the sharded ones of the filter's days; null if dir can't be listed
+    static File[] receiptFiles(File dir, ReceiptFilter filter) {
+        File[] flat = dir.listFiles((File dir1, String name) -> name.endsWith(".ser") || name.endsWith(".bin"));
+        if (flat == null) {
+            return null;
+        }
+        List<File> sharded = ReceiptShards.receiptFiles(dir, filter);
+        if (sharded.isEmpty()) {
+            return flat;
+        }
+        File[] files = Arrays.copyOf(flat, flat.length + sharded.size());
+        for (int i = 0; i < sharded.size(); i++) {
+            files[flat.length + i] = sharded.get(i);
+        }
+        return files;
+    }
+
+    // Index of the journal in dir, null if there is none
+    private ReceiptIndex index(File dir) throws IOException {
+        if (!ReceiptIndex.exists(dir)) {
+            return null;
+        }
+        ReceiptIndex index = indexes.computeIfAbsent(dir.getAbsoluteFile(), ReceiptIndex::new);
+        index.refresh();
+        return index;
+    }
+
+    private void readFiles(File[] files, ReceiptFilter filter, List<Receipt> list) throws IOException {
+        int threads = Math.min(parallelism, files.length);
+        if (threads <= 1) {
+            readFiles(Arrays.asList(files), filter, list);
+        } else {
+            readFilesInParallel(files, filter, threads, list);
+        }
+    }
+
+    // Splits the listing into a few chunks per thread, so a slow chunk doesn't hold the others up
+    private void readFilesInParallel(File[] files, ReceiptFilter filter, int threads, List<Receipt> list)
+            throws IOException {
+        int chunkSize = Math.max(1, files.length / (threads * 4));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<Receipt>>> chunks = new ArrayList<>();
+            for (int from = 0; from < files.length; from += chunkSize) {
+                List<File> chunk = Arrays.asList(files).subList(from, Math.min(from + chunkSize, files.length));
+                chunks.add(pool.submit(() -> {
+                    List<Receipt> receipts = new ArrayList<>(chunk.size());
+                    readFiles(chunk, filter, receipts);
+                    return receipts;
+                }));
+            }
+            for (Future<List<Receipt>> chunk : chunks) {
+                list.addAll(chunk.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading receipts");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Unable to load receipts", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void readFiles(List<File> files, ReceiptFilter filter, List<Receipt> list) throws IOException {
         for (File file : files) {
-            try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
-                Receipt receipt = (Receipt) ois.readObject();
-                if (receipt != null) {
-                    list.add(receipt);
-                }
-            } catch (InvalidClassException | ClassNotFoundException e) {
-                System.out.println("Warning: Could not deserialize file: " + file.getName() + " - " + e.getMessage());
+            Receipt receipt = readFile(file, filter);
+            if (receipt != null) {
+                list.add(receipt);
             }
         }
+    }
 
-        return list;
+    // null if the receipt doesn't match the filter; files that can't be decoded are skipped with a warning.
+    // A binary receipt is checked against the filter before its products and cashier are resolved.
+    Receipt readFile(File file, ReceiptFilter filter) throws IOException {
+        if (file.getName().endsWith(".bin")) {
+            try {
+                byte[] data = Files.readAllBytes(file.toPath());
+                return ReceiptCodec.matches(data, filter) ? ReceiptCodec.decode(data, catalog) : null;
+            } catch (IOException e) {
+                System.out.println("Warning: Could not decode file: " + file.getName() + " - " + e.getMessage());
+                return null;
+            }
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
+            Receipt receipt = (Receipt) ois.readObject();
+            return receipt != null && filter.test(receipt) ? receipt : null;
+        } catch (IOException | ClassNotFoundException | RuntimeException e) { // Corrupt, cut short or foreign, like a bad .bin file
+            System.out.println("Warning: Could not deserialize file: " + file.getName() + " - " + e.getMessage());
+            return null;
+        }
     }
 
     @Override
     public Receipt load(File dir, int receiptNumber) throws IOException, ClassNotFoundException {
+        ReceiptCache cache = this.cache;
+        if (cache != null) {
+            Receipt cached = cache.get(dir, receiptNumber);
+            if (cached != null) {
+                return cached;
+            }
+        }
         File receiptFile = new File(dir, "receipt-" + receiptNumber + ".ser");
         if (!receiptFile.exists()) {
-            return null;
+            receiptFile = new File(dir, "receipt-" + receiptNumber + ".bin");
+        }
+        if (!receiptFile.exists()) {
+            receiptFile = ReceiptShards.find(dir, receiptNumber);
+        }
+        if (receiptFile == null) {
+            Receipt journaled = loadJournaled(dir, receiptNumber, cache);
+            return journaled != null ? journaled : loadArchived(dir, receiptNumber, cache);
+        }
+        ReceiptCache.Source source = cache != null ? ReceiptCache.Source.of(receiptFile) : null;
+        if (receiptFile.getName().endsWith(".bin")) {
+            return cache(cache, dir, readBinary(receiptFile), source);
         }
 
         try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(receiptFile))) {
-            return (Receipt) ois.readObject();
+            return cache(cache, dir, (Receipt) ois.readObject(), source);
         }
     }
+
+    // Only indexed receipts are cached, by their segment; the segment still being appended to
+    // changes with every append, so those are read again until the journal moves on
+    private Receipt loadJournaled(File dir, int receiptNumber, ReceiptCache cache) throws IOException, ClassNotFoundException {
+        ReceiptIndex index = index(dir);
+        if (index == null) {
+            return journal(dir).find(receiptNumber);
+        }
+        ReceiptIndex.Entry entry = index.find(receiptNumber);
+        if (entry == null) {
+            return null;
+        }
+        ReceiptCache.Source source = cache != null
+                ? ReceiptCache.Source.of(new File(dir, JournalFormat.segmentName(entry.position().segment()))) : null;
+        List<Receipt> found = journal(dir).read(List.of(entry.position()));
+        if (found.isEmpty() || found.getFirst().getNumber() != receiptNumber) {
+            // The index doesn't match the journal (it is repaired when the journal is next opened)
+            return journal(dir).find(receiptNumber);
+        }
+        return cache(cache, dir, found.getFirst(), source);
+    }
+
+    // Only the block holding the receipt is read and inflated
+    private Receipt loadArchived(File dir, int receiptNumber, ReceiptCache cache) throws IOException {
+        for (File file : ReceiptArchive.list(dir)) {
+            ReceiptArchive archive = archive(file);
+            if (archive.contains(receiptNumber)) {
+                ReceiptCache.Source source = cache != null ? ReceiptCache.Source.of(file) : null;
+                return cache(cache, dir, archive.read(receiptNumber, catalog), source);
+            }
+        }
+        return null;
+    }
+
+    private static Receipt cache(ReceiptCache cache, File dir, Receipt receipt, ReceiptCache.Source source) {
+        if (cache != null && receipt != null) {
+            cache.put(dir, receipt, source);
+        }
+        return receipt;
+    }
+
+    private JournalReader journal(File dir) {
+        return new JournalReader(dir, catalog, memoryMapped);
+    }
+
+    private Receipt readBinary(File file) throws IOException {
+        return ReceiptCodec.decode(Files.readAllBytes(file.toPath()), catalog);
+    }
 }
@@ -0,0 +1,322 @@
+package org.informatics.service.impl;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.informatics.entity.Receipt;
+import org.informatics.storage.JournalFormat;
+import org.informatics.storage.JournalPosition;
+import org.informatics.storage.JournalReader;
+import org.informatics.storage.ReceiptArchive;
+import org.informatics.storage.ReceiptCatalog;
+import org.informatics.storage.ReceiptFilter;
+import org.informatics.storage.ReceiptShards;
+
+// Up-to-date view of the receipts in a directory: everything is loaded once, after that only what is new.
+// New receipt files (flat or sharded), journal records past the last position read and receipts
+// archived into a day archive that were not seen before are added; nothing already read is read again.
+// Receipts are kept by number, so a receipt that moves from its file into an archive stays one receipt,
+// and deleted files don't remove anything from the view.
+// After start(), a background thread follows the directory through a WatchService. Every listing registers
+// the shard directories it finds, so a bucket created together with its day directory is followed too.
+// Where the file system has no WatchService, when events were lost and whenever a poll interval passes
+// without events, the whole directory is listed again (only the listing, no receipt is decoded twice).
+// refresh() does the same on demand.
+public class ReceiptWatcher implements Closeable {
+
+    private final File dir;
+    private final ReceiptCatalog catalog;
+    private final FileServiceImpl fileService;
+    private final JournalReader journal;
+    private final Duration pollInterval;
+    private final boolean polling;
+    private final WatchService watchService; // null when polling
+    private final List<Consumer<Receipt>> listeners = new CopyOnWriteArrayList<>();
+    private Thread thread;
+    private volatile boolean closed;
+
+    // Guarded by this
+    private final Map<Integer, Receipt> receipts = new TreeMap<>();
+    private final Map<File, Long> files = new HashMap<>(); // Receipt files read, by last-modified time
+    private final Map<File, Long> archives = new HashMap<>(); // Archives read, by length
+    private final Set<File> registered = new HashSet<>(); // Shard directories the watch service follows
+    private JournalPosition journalEnd;
+
+    // Loads the directory; call start() to keep following it
+    ReceiptWatcher(File dir, ReceiptCatalog catalog, FileServiceImpl fileService, Duration pollInterval,
+            boolean useWatchService) throws IOException {
+        this.dir = dir;
+        this.catalog = catalog;
+        this.fileService = fileService;
+        this.journal = new JournalReader(dir, catalog);
+        this.pollInterval = pollInterval;
+        WatchService service = null;
+        if (useWatchService) {
+            try {
+                service = FileSystems.getDefault().newWatchService();
+                register(service, dir);
+                registerShards(service);
+            } catch (IOException | UnsupportedOperationException e) {
+                System.out.println("Warning: Can't watch " + dir + ", polling every " + pollInterval.toMillis()
+                        + " ms instead - " + e.getMessage());
+                if (service != null) {
+                    service.close();
+                }
+                service = null;
+            }
+        }
+        this.watchService = service;
+        this.polling = service == null;
+        refresh();
+    }
+
+    public boolean isPolling() {
+        return polling;
+    }
+
+    // Called with every receipt added to the view after the first load, on the thread that found it
+    public void addListener(Consumer<Receipt> listener) {
+        listeners.add(listener);
+    }
+
+    // Snapshot in receipt-number order
+    public synchronized List<Receipt> receipts() {
+        return new ArrayList<>(receipts.values());
+    }
+
+    public synchronized int size() {
+        return receipts.size();
+    }
+
+    public synchronized Receipt get(int receiptNumber) {
+        return receipts.get(receiptNumber);
+    }
+
+    // Lists the directory and adds whatever is new; returns the number of receipts added
+    public synchronized int refresh() throws IOException {
+        if (watchService != null) {
+            registerShards(watchService); // Before listing, so a file written in between raises an event
+        }
+        int added = readArchives();
+        added += readJournal();
+        File[] all = FileServiceImpl.receiptFiles(dir, ReceiptFilter.ALL);
+        if (all != null) {
+            for (File file : all) {
+                // Receipt files are not rewritten once saved, so a listed file already read isn't even stat'ed
+                if (!files.containsKey(file)) {
+                    added += readFile(file);
+                }
+            }
+        }
+        return added;
+    }
+
+    // Follows the directory on a background thread until close()
+    public synchronized void start() {
+        if (thread != null) {
+            throw new IllegalStateException("Watcher is already running");
+        }
+        thread = Thread.ofPlatform().name("receipt-watcher").daemon().start(this::run);
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        Thread running;
+        synchronized (this) {
+            running = thread;
+        }
+        if (watchService != null) {
+            watchService.close(); // Wakes the thread up
+        }
+        if (running != null) {
+            running.interrupt();
+            try {
+                running.join(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void run() {
+        while (!closed) {
+            try {
+                if (polling) {
+                    Thread.sleep(pollInterval.toMillis());
+                    refresh();
+                } else {
+                    WatchKey key = watchService.poll(pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+                    if (key != null) {
+                        handle(key);
+                    } else {
+                        refresh(); // Quiet interval: catches anything whose event was lost
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Warning: Could not update receipts from " + dir + " - " + e.getMessage());
+            }
+        }
+    }
+
+    // Reads only what the events name; a lost event makes the whole directory be listed again
+    private void handle(WatchKey first) throws IOException {
+        List<WatchKey> keys = new ArrayList<>();
+        keys.add(first);
+        for (WatchKey more = watchService.poll(); more != null; more = watchService.poll()) {
+            keys.add(more);
+        }
+        boolean rescan = false;
+        boolean journalChanged = false;
+        boolean archiveChanged = false;
+        List<File> changed = new ArrayList<>();
+        List<File> gone = new ArrayList<>();
+        for (WatchKey key : keys) {
+            Path watched = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    rescan = true;
+                    continue;
+                }
+                File file = watched.resolve((Path) event.context()).toFile();
+                String name = file.getName();
+                boolean shard = ReceiptShards.day(name) != null || ReceiptShards.day(file.getParentFile().getName()) != null;
+                if (shard && file.isDirectory()) {
+                    rescan = true; // Registers it and its buckets; files may have been written before that
+                } else if (name.endsWith(".ser") || name.endsWith(".bin")) {
+                    changed.add(file);
+                } else if (JournalFormat.segmentNumber(name) > 0) {
+                    journalChanged = true;
+                } else if (ReceiptArchive.day(name) != null) {
+                    archiveChanged = true;
+                }
+            }
+            if (!key.reset()) {
+                gone.add(watched.toFile()); // Deleted, e.g. archived; registered again if it comes back
+            }
+        }
+
+        synchronized (this) {
+            gone.forEach(registered::remove);
+            if (rescan) {
+                refresh();
+                return;
+            }
+            if (archiveChanged) {
+                readArchives();
+            }
+            if (journalChanged) {
+                readJournal();
+            }
+            for (File file : changed) {
+                if (file.exists()) {
+                    readFile(file);
+                }
+            }
+        }
+    }
+
+    // Day and bucket directories not registered yet
+    private void registerShards(WatchService service) throws IOException {
+        for (File day : ReceiptShards.days(dir)) {
+            if (registered.add(day)) {
+                register(service, day);
+            }
+            File[] buckets = day.listFiles(File::isDirectory);
+            if (buckets != null) {
+                for (File bucket : buckets) {
+                    if (registered.add(bucket)) {
+                        register(service, bucket);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void register(WatchService service, File dir) throws IOException {
+        dir.toPath().register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    // A file is read again only if it changed since; one that can't be read yet is tried again when it changes
+    private int readFile(File file) {
+        long modified = file.lastModified();
+        Long seen = files.put(file, modified);
+        if (seen != null && seen == modified) {
+            return 0;
+        }
+        try {
+            Receipt receipt = fileService.readFile(file, ReceiptFilter.ALL);
+            return receipt != null ? add(receipt) : 0;
+        } catch (IOException e) {
+            System.out.println("Warning: Could not read file: " + file.getName() + " - " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private int readJournal() throws IOException {
+        int[] added = new int[1];
+        journalEnd = journal.follow(journalEnd, (position, receipt) -> {
+            added[0] += add(receipt);
+            return true;
+        });
+        return added[0];
+    }
+
+    // An archive whose receipts are all in the view already (files that were archived) is not decoded;
+    // otherwise it is read in one pass, inflating each block once
+    private int readArchives() {
+        int[] added = new int[1];
+        for (File file : ReceiptArchive.list(dir)) {
+            long length = file.length();
+            Long seen = archives.put(file, length);
+            if (seen != null && seen == length) {
+                continue;
+            }
+            try {
+                ReceiptArchive archive = fileService.archive(file);
+                if (archive.entries().stream().allMatch(entry -> receipts.containsKey(entry.number()))) {
+                    continue;
+                }
+                try (Stream<Receipt> stream = archive.stream(ReceiptFilter.ALL, catalog)) {
+                    stream.forEach(receipt -> added[0] += add(receipt));
+                }
+            } catch (IOException | UncheckedIOException e) {
+                System.out.println("Warning: Could not read archive: " + file.getName() + " - " + e.getMessage());
+            }
+        }
+        return added[0];
+    }
+
+    private int add(Receipt receipt) {
+        if (receipts.putIfAbsent(receipt.getNumber(), receipt) != null) {
+            return 0;
+        }
+        for (Consumer<Receipt> listener : listeners) {
+            listener.accept(receipt);
+        }
+        return 1;
+    }
+}
@@ -3,8 +3,10 @@ package org.informatics.service.impl;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.informatics.config.StoreConfig;
+import org.informatics.entity.Basket;
 import org.informatics.entity.Cashier;
 import org.informatics.entity.Customer;
 import org.informatics.entity.Receipt;
@@ -13,14 +15,40 @@ import org.informatics.exception.InsufficientQuantityException;
 import org.informatics.exception.ProductExpiredException;
 import org.informatics.exception.ProductNotFoundException;
 import org.informatics.service.contract.StoreService;
+import org.informatics.storage.AsyncReceiptWriter;
+import org.informatics.storage.ReceiptJournal;
 import org.informatics.store.Store;
+import org.informatics.util.ReceiptFormat;
+import org.informatics.util.ReceiptLayout;
 
 public class StoreServiceImpl implements StoreService {
 
     private final Store store;
+    private final ReceiptJournal journal; // null: every receipt is saved to its own .txt and .ser files
+    private final AsyncReceiptWriter writer; // null: saveReceiptAsync is not available
+    private volatile ReceiptLayout layout = ReceiptLayout.FLAT;
 
     public StoreServiceImpl(Store store) {
+        this(store, (ReceiptJournal) null);
+    }
+
+    // Journal mode: saved receipts are appended to the journal instead
+    public StoreServiceImpl(Store store, ReceiptJournal journal) {
+        this.store = store;
+        this.journal = journal;
+        this.writer = null;
+    }
+
+    // Journal mode with a background writer for saveReceiptAsync
+    public StoreServiceImpl(Store store, AsyncReceiptWriter writer) {
         this.store = store;
+        this.journal = writer.getJournal();
+        this.writer = writer;
+    }
+
+    // Where receipts saved to their own files go; not used in journal mode
+    public void setReceiptLayout(ReceiptLayout layout) {
+        this.layout = layout;
     }
 
     @Override
@@ -35,6 +63,12 @@ public class StoreServiceImpl implements StoreService {
         return store.addToReceipt(receipt, productId, quantity, customer);
     }
 
+    @Override
+    public Receipt checkout(Cashier cashier, Basket basket, Customer customer)
+            throws ProductNotFoundException, ProductExpiredException, InsufficientQuantityException, InsufficientBudgetException {
+        return store.checkout(cashier, basket, customer);
+    }
+
     @Override
     public Receipt createReceipt(Cashier c) {
         return store.createReceipt(c);
@@ -42,7 +76,24 @@ public class StoreServiceImpl implements StoreService {
 
     @Override
     public void saveReceipt(Receipt receipt, File dir) throws IOException {
-        receipt.save(dir);
+        if (journal == null) {
+            receipt.save(dir, ReceiptFormat.SERIALIZED, layout);
+            return;
+        }
+        if (!journal.getDirectory().toPath().toAbsolutePath().normalize()
+                .equals(dir.toPath().toAbsolutePath().normalize())) {
+            throw new IllegalArgumentException("Receipts are journaled to " + journal.getDirectory()
+                    + ", not to " + dir);
+        }
+        journal.append(receipt);
+    }
+
+    @Override
+    public CompletableFuture<Receipt> saveReceiptAsync(Receipt receipt) throws InterruptedException {
+        if (writer == null) {
+            throw new IllegalStateException("No asynchronous receipt writer is configured");
+        }
+        return writer.submit(receipt).thenApply(position -> receipt);
     }
 
     @Override
@@ -54,4 +105,9 @@ public class StoreServiceImpl implements StoreService {
     public StoreConfig getConfig() {
         return store.getConfig();
     }
+
+    @Override
+    public void updateConfig(StoreConfig config) {
+        store.updateConfig(config);
+    }
 }
@@ -0,0 +1,177 @@
+package org.informatics.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.informatics.entity.Receipt;
+
+// Saves receipts to a journal on a background thread so desks don't wait for the disk.
+// Desks queue sealed receipts; the writer takes everything waiting (up to a batch), appends it
+// and forces the journal to disk once for the whole batch (group commit).
+// The queue is bounded: when it is full, submit() blocks until the writer catches up.
+// A receipt's future completes only after its batch is on disk.
+// A failed future means one of two things:
+//  - the append failed (any other exception): the receipt is not in the journal and may be submitted again;
+//  - the append succeeded but forcing the batch to disk failed (NotSyncedException, with the position):
+//    the receipt is in the journal and may or may not survive a crash. Submitting it again would journal it
+//    twice; a later successful sync (of a following batch, or close()) makes it durable after all.
+public class AsyncReceiptWriter implements Closeable {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final int DEFAULT_MAX_BATCH = 256;
+
+    private final Pending wakeUp = new Pending(null, null);
+    private final ReceiptJournal journal;
+    private final BlockingQueue<Pending> queue;
+    private final int maxBatch;
+    private final Thread thread;
+    private final AtomicInteger submitting = new AtomicInteger(); // Callers between the closing check and the queue
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private volatile boolean closing;
+
+    public AsyncReceiptWriter(ReceiptJournal journal) {
+        this(journal, DEFAULT_CAPACITY, DEFAULT_MAX_BATCH);
+    }
+
+    public AsyncReceiptWriter(ReceiptJournal journal, int capacity, int maxBatch) {
+        if (capacity <= 0 || maxBatch <= 0) {
+            throw new IllegalArgumentException("Capacity and batch size must be positive");
+        }
+        this.journal = journal;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatch = maxBatch;
+        this.thread = Thread.ofPlatform().name("receipt-writer").daemon().start(this::run);
+    }
+
+    // Seals the receipt and queues it, waiting while the queue is full
+    public CompletableFuture<JournalPosition> submit(Receipt receipt) throws InterruptedException {
+        receipt.seal();
+        CompletableFuture<JournalPosition> result = new CompletableFuture<>();
+        submitting.incrementAndGet();
+        try {
+            if (closing) {
+                throw new IllegalStateException("Receipt writer is closed");
+            }
+            queue.put(new Pending(receipt, result));
+        } finally {
+            submitting.decrementAndGet();
+        }
+        return result;
+    }
+
+    public ReceiptJournal getJournal() {
+        return journal;
+    }
+
+    // Number of times the journal was forced to disk
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    // Writes everything already queued, then stops the writer thread; the journal stays open
+    @Override
+    public void close() {
+        closing = true;
+        queue.offer(wakeUp);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        try {
+            while (true) {
+                Pending first = closing ? queue.poll(1, TimeUnit.MILLISECONDS) : queue.take();
+                if (first == null) {
+                    // Closing: stop once nobody can still be adding to the queue
+                    if (submitting.get() == 0 && queue.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+                batch.removeIf(p -> p == wakeUp);
+                if (!batch.isEmpty()) {
+                    write(batch);
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            IOException stopped = new IOException("Receipt writer was interrupted");
+            for (Pending p : batch) {
+                p.result().completeExceptionally(stopped);
+            }
+            for (Pending p = queue.poll(); p != null; p = queue.poll()) {
+                if (p != wakeUp) {
+                    p.result().completeExceptionally(stopped);
+                }
+            }
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        List<JournalPosition> positions = new ArrayList<>(batch.size());
+        for (Pending p : batch) {
+            try {
+                positions.add(journal.append(p.receipt()));
+            } catch (IOException | RuntimeException e) {
+                positions.add(null);
+                p.result().completeExceptionally(e);
+            }
+        }
+        try {
+            journal.sync();
+        } catch (IOException e) {
+            for (int i = 0; i < batch.size(); i++) {
+                JournalPosition position = positions.get(i);
+                if (position != null) {
+                    batch.get(i).result().completeExceptionally(new NotSyncedException(position, e));
+                }
+            }
+            return;
+        }
+        batches.incrementAndGet();
+        for (int i = 0; i < batch.size(); i++) {
+            JournalPosition position = positions.get(i);
+            if (position != null) {
+                written.incrementAndGet();
+                batch.get(i).result().complete(position);
+            }
+        }
+    }
+
+    private record Pending(Receipt receipt, CompletableFuture<JournalPosition> result) {
+    }
+
+    // The receipt was appended at position, but the journal could not be forced to disk
+    public static class NotSyncedException extends IOException {
+
+        private final JournalPosition position;
+
+        public NotSyncedException(JournalPosition position, IOException cause) {
+            super("Receipt journaled at " + position + " but not forced to disk - " + cause.getMessage(), cause);
+            this.position = position;
+        }
+
+        public JournalPosition getPosition() {
+            return position;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package org.informatics.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.informatics.entity.Receipt;
+import org.informatics.util.ReceiptFormat;
+
+// Layout of the receipt journal.
+// A journal directory holds numbered segment files (journal-000001.seg, ...), each a sequence of
+// records: [int payload length][int CRC32 of payload][payload].
+// The first payload byte names the encoding of the rest, so new encodings can be added
+// without rewriting old segments.
+public final class JournalFormat {
+
+    public static final int HEADER_SIZE = 8;
+    public static final byte JAVA_SERIALIZED = 0;
+    public static final byte BINARY = 1; // ReceiptCodec
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String DICTIONARY_SUFFIX = ".dict";
+
+    private JournalFormat() {
+    }
+
+    public static String segmentName(int segment) {
+        return String.format("%s%06d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX);
+    }
+
+    // SegmentDictionary of a segment
+    public static String dictionaryName(int segment) {
+        return String.format("%s%06d%s", SEGMENT_PREFIX, segment, DICTIONARY_SUFFIX);
+    }
+
+    // Segment number of a journal file name, or -1 for any other file
+    public static int segmentNumber(String fileName) {
+        if (!fileName.startsWith(SEGMENT_PREFIX) || !fileName.endsWith(SEGMENT_SUFFIX)) {
+            return -1;
+        }
+        String digits = fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length());
+        if (digits.isEmpty() || !digits.chars().allMatch(Character::isDigit)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(digits);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Segment files of a directory, oldest first
+    public static List<File> segments(File dir) {
+        File[] files = dir.listFiles((File d, String name) -> segmentNumber(name) > 0);
+        if (files == null) {
+            return new ArrayList<>();
+        }
+        Arrays.sort(files, Comparator.comparingInt((File f) -> segmentNumber(f.getName())));
+        return new ArrayList<>(Arrays.asList(files));
+    }
+
+    // DICTIONARY needs the segment's dictionary and is written as BINARY here
+    public static byte[] encode(Receipt receipt, ReceiptFormat format) throws IOException {
+        if (format != ReceiptFormat.SERIALIZED) {
+            return binary(ReceiptCodec.encode(receipt));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        bytes.write(JAVA_SERIALIZED);
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(receipt);
+        }
+        return bytes.toByteArray();
+    }
+
+    // Binary record with products numbered through the segment's dictionary
+    static byte[] encode(Receipt receipt, SegmentDictionary dictionary) throws IOException {
+        return binary(ReceiptCodec.encode(receipt, dictionary));
+    }
+
+    private static byte[] binary(byte[] body) {
+        byte[] payload = new byte[body.length + 1];
+        payload[0] = BINARY;
+        System.arraycopy(body, 0, payload, 1, body.length);
+        return payload;
+    }
+
+    // The catalog is only needed for binary records
+    public static Receipt decode(byte[] payload, ReceiptCatalog catalog) throws IOException, ClassNotFoundException {
+        return decode(ByteBuffer.wrap(payload), catalog);
+    }
+
+    // Decodes the payload between the buffer's position and limit, e.g. a slice of a mapped segment;
+    // binary records are read straight from the buffer
+    public static Receipt decode(ByteBuffer payload, ReceiptCatalog catalog) throws IOException, ClassNotFoundException {
+        return decode(payload, catalog, null);
+    }
+
+    // The dictionary of the record's segment is only needed for records written in ReceiptFormat.DICTIONARY
+    static Receipt decode(ByteBuffer payload, ReceiptCatalog catalog, SegmentDictionary dictionary)
+            throws IOException, ClassNotFoundException {
+        if (!payload.hasRemaining()) {
+            throw new IOException("Empty journal record");
+        }
+        ByteBuffer body = payload.slice(payload.position() + 1, payload.remaining() - 1);
+        byte format = payload.get(payload.position());
+        if (format == BINARY) {
+            return ReceiptCodec.decode(body, catalog, dictionary);
+        }
+        if (format != JAVA_SERIALIZED) {
+            throw new IOException("Unknown journal record format: " + format);
+        }
+        byte[] bytes;
+        int offset = 0;
+        if (body.hasArray()) {
+            bytes = body.array();
+            offset = body.arrayOffset() + body.position();
+        } else {
+            bytes = new byte[body.remaining()];
+            body.get(bytes);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(
+                new ByteArrayInputStream(bytes, offset, payload.remaining() - 1))) {
+            return (Receipt) ois.readObject();
+        }
+    }
+
+    // False when the record's header already shows it doesn't match the filter. Only binary
+    // records can be checked this way; serialized ones have to be decoded first.
+    static boolean mayMatch(ByteBuffer payload, ReceiptFilter filter) throws IOException {
+        if (filter.isAll() || !payload.hasRemaining() || payload.get(payload.position()) != BINARY) {
+            return true;
+        }
+        return ReceiptCodec.matches(payload.slice(payload.position() + 1, payload.remaining() - 1), filter);
+    }
+
+    // What the index needs to know about a record; binary records are not resolved, so no catalog is needed
+    static ReceiptIndex.Entry indexEntry(ByteBuffer payload, JournalPosition position)
+            throws IOException, ClassNotFoundException {
+        if (payload.hasRemaining() && payload.get(payload.position()) == BINARY) {
+            return ReceiptCodec.indexEntry(payload.slice(payload.position() + 1, payload.remaining() - 1), position);
+        }
+        Receipt receipt = decode(payload, null);
+        return new ReceiptIndex.Entry(receipt.getNumber(), receipt.getTime().toLocalDate(),
+                receipt.getCashier().getId(), position);
+    }
+
+    public static int checksum(byte[] payload) {
+        return checksum(ByteBuffer.wrap(payload));
+    }
+
+    // Leaves the buffer's position unchanged
+    public static int checksum(ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,5 @@
+package org.informatics.storage;
+
+// Where a record starts: segment number and byte offset inside that segment
+public record JournalPosition(int segment, long offset) {
+}
@@ -0,0 +1,490 @@
+package org.informatics.storage;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.informatics.entity.Receipt;
+
+// Reads receipts back from a journal directory, oldest segment first.
+// A record with a bad length or checksum ends its segment (normally a write cut short by a crash);
+// a record that can't be decoded is skipped with a warning, like a bad .ser file.
+// In memory-mapped mode every segment is mapped once and records are decoded straight from
+// the mapping, with no stream or copy per record; this is the fast path for bulk loading.
+// The stream() methods decode lazily, one record at a time, for reading archives larger than the heap.
+public class JournalReader {
+
+    private final File dir;
+    private final ReceiptCatalog catalog; // null: binary records can't be read and are skipped
+    private final boolean memoryMapped;
+    private final Map<Integer, SegmentDictionary> dictionaries = new ConcurrentHashMap<>(); // Loaded on first use
+
+    public JournalReader(File dir) {
+        this(dir, null);
+    }
+
+    public JournalReader(File dir, ReceiptCatalog catalog) {
+        this(dir, catalog, false);
+    }
+
+    public JournalReader(File dir, ReceiptCatalog catalog, boolean memoryMapped) {
+        this.dir = dir;
+        this.catalog = catalog;
+        this.memoryMapped = memoryMapped;
+    }
+
+    public boolean exists() {
+        return !JournalFormat.segments(dir).isEmpty();
+    }
+
+    public List<Receipt> readAll() throws IOException {
+        List<Receipt> list = new ArrayList<>();
+        scan((position, receipt) -> {
+            list.add(receipt);
+            return true;
+        });
+        return list;
+    }
+
+    // Linear search through the whole journal; null if the number is not there
+    public Receipt find(int receiptNumber) throws IOException {
+        Receipt[] found = new Receipt[1];
+        scan((position, receipt) -> {
+            if (receipt.getNumber() != receiptNumber) {
+                return true;
+            }
+            found[0] = receipt;
+            return false;
+        });
+        return found[0];
+    }
+
+    public void scan(RecordHandler handler) throws IOException {
+        scan(null, null, handler);
+    }
+
+    // Records from a record boundary `from` (null: the start) up to `to` (exclusive; null: the end).
+    // A bound such as a live journal's position() keeps the reader away from a record still being written.
+    // Returns the position just after the last record read, which is where a later scan can go on.
+    public JournalPosition scan(JournalPosition from, JournalPosition to, RecordHandler handler) throws IOException {
+        return scan(from, to, handler, false);
+    }
+
+    // Like scan(from, null, handler), for a journal that is still being appended to without a bound from its writer:
+    // an incomplete record at the end of the last segment is one being written, so the scan stops before it
+    // without a warning and a later call, from the returned position, reads it once it is complete.
+    public JournalPosition follow(JournalPosition from, RecordHandler handler) throws IOException {
+        return scan(from, null, handler, true);
+    }
+
+    private JournalPosition scan(JournalPosition from, JournalPosition to, RecordHandler handler, boolean live)
+            throws IOException {
+        JournalPosition end = from;
+        List<File> segments = JournalFormat.segments(dir);
+        for (File file : segments) {
+            int segment = JournalFormat.segmentNumber(file.getName());
+            if (from != null && segment < from.segment()) {
+                continue;
+            }
+            if (to != null && segment > to.segment()) {
+                break;
+            }
+            long start = from != null && segment == from.segment() ? from.offset() : 0;
+            long limit = to != null && segment == to.segment() ? Math.min(to.offset(), file.length()) : file.length();
+            boolean[] stopped = new boolean[1];
+            PayloadHandler decoder = (offset, payload) -> {
+                Receipt receipt;
+                try {
+                    receipt = JournalFormat.decode(payload, catalog, dictionary(segment));
+                } catch (IOException | ClassNotFoundException e) {
+                    System.out.println("Warning: Could not decode journal record " + file.getName()
+                            + "@" + offset + " - " + e.getMessage());
+                    return true;
+                }
+                if (!handler.accept(new JournalPosition(segment, offset), receipt)) {
+                    stopped[0] = true;
+                    return false;
+                }
+                return true;
+            };
+            long valid = memoryMapped && limit <= Integer.MAX_VALUE
+                    ? walkMapped(file, (int) start, (int) limit, decoder)
+                    : walk(file, start, limit, decoder);
+            end = new JournalPosition(segment, valid);
+            if (stopped[0]) {
+                break;
+            }
+            if (valid < limit && !(live && file == segments.getLast())) {
+                System.out.println("Warning: Journal segment " + file.getName() + " is damaged at offset "
+                        + valid + ", the rest of it was skipped");
+            }
+        }
+        return end != null ? end : new JournalPosition(1, 0);
+    }
+
+    // Reads the records at the given positions only, e.g. the ones an index lookup returned.
+    // Positions are visited in file order, each segment is opened once; a position that doesn't
+    // hold an intact record is skipped with a warning.
+    public List<Receipt> read(List<JournalPosition> positions) throws IOException {
+        List<Receipt> result = new ArrayList<>(positions.size());
+        try (Stream<Receipt> receipts = stream(positions)) {
+            receipts.forEach(result::add);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return result;
+    }
+
+    // Lazy version of read(positions); the stream keeps a segment open, so close it when done.
+    // I/O errors while reading are thrown as UncheckedIOException.
+    public Stream<Receipt> stream(List<JournalPosition> positions) {
+        List<JournalPosition> sorted = new ArrayList<>(positions);
+        sorted.sort(Comparator.comparingInt(JournalPosition::segment).thenComparingLong(JournalPosition::offset));
+        return new PositionCursor(sorted.iterator()).stream();
+    }
+
+    // Receipts matching the filter in journal order, decoded only when the stream asks for them,
+    // so memory use doesn't grow with the journal and a short-circuiting stream stops reading early.
+    // Binary records are checked against the filter from their header before they are decoded.
+    // Damaged records are handled as in scan(). Close the stream when done; I/O errors are thrown
+    // as UncheckedIOException.
+    public Stream<Receipt> stream(ReceiptFilter filter) {
+        return new SegmentCursor(JournalFormat.segments(dir).iterator(), filter).stream();
+    }
+
+    private Receipt readAt(FileChannel channel, JournalPosition position) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(JournalFormat.HEADER_SIZE);
+        if (!readFully(channel, header, position.offset())) {
+            System.out.println("Warning: No journal record at " + position);
+            return null;
+        }
+        int size = header.getInt(0);
+        int checksum = header.getInt(4);
+        ByteBuffer payload = size > 0 && size <= channel.size() - position.offset() - JournalFormat.HEADER_SIZE
+                ? ByteBuffer.allocate(size) : null;
+        if (payload == null || !readFully(channel, payload, position.offset() + JournalFormat.HEADER_SIZE)
+                || JournalFormat.checksum(payload.flip()) != checksum) {
+            System.out.println("Warning: Damaged journal record at " + position);
+            return null;
+        }
+        return decode(payload, position, ReceiptFilter.ALL);
+    }
+
+    // null if the record doesn't match the filter or can't be decoded (with a warning)
+    private Receipt decode(ByteBuffer payload, JournalPosition position, ReceiptFilter filter) {
+        try {
+            if (!JournalFormat.mayMatch(payload, filter)) {
+                return null;
+            }
+            Receipt receipt = JournalFormat.decode(payload, catalog, dictionary(position.segment()));
+            return filter.test(receipt) ? receipt : null;
+        } catch (IOException | ClassNotFoundException e) {
+            System.out.println("Warning: Could not decode journal record at " + position + " - " + e.getMessage());
+            return null;
+        }
+    }
+
+    private SegmentDictionary dictionary(int segment) {
+        return dictionaries.computeIfAbsent(segment, s -> SegmentDictionary.forReading(dir, s));
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Raw records from the given position on, across all later segments; used to bring the index up to date
+    void scanRaw(JournalPosition from, RawHandler handler) throws IOException {
+        for (File file : JournalFormat.segments(dir)) {
+            int segment = JournalFormat.segmentNumber(file.getName());
+            if (segment < from.segment()) {
+                continue;
+            }
+            long start = segment == from.segment() ? from.offset() : 0;
+            walk(file, start, file.length(), (offset, payload) -> {
+                handler.accept(new JournalPosition(segment, offset), payload);
+                return true;
+            });
+        }
+    }
+
+    // Length of the part of a segment that holds complete records with matching checksums
+    static long validLength(File file) throws IOException {
+        return walk(file, 0, file.length(), (offset, payload) -> true);
+    }
+
+    // Reads records from a record boundary on until the handler stops, the limit is reached or a record
+    // is damaged; returns the offset just after the last record that was read
+    private static long walk(File file, long start, long limit, PayloadHandler handler) throws IOException {
+        try (SegmentInput in = new SegmentInput(file, start, limit)) {
+            for (ByteBuffer payload = in.next(); payload != null; payload = in.next()) {
+                if (!handler.accept(in.recordOffset(), payload)) {
+                    break;
+                }
+            }
+            return in.end();
+        }
+    }
+
+    // Same as walk, reading from one read-only mapping of the whole segment; payloads are slices of it
+    private static long walkMapped(File file, int start, int limit, PayloadHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            int length = (int) Math.min(limit, channel.size());
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            int offset = start;
+            while (length - offset >= JournalFormat.HEADER_SIZE) {
+                int size = map.getInt(offset);
+                int checksum = map.getInt(offset + 4);
+                if (size <= 0 || size > length - offset - JournalFormat.HEADER_SIZE) {
+                    break;
+                }
+                ByteBuffer payload = map.slice(offset + JournalFormat.HEADER_SIZE, size);
+                if (JournalFormat.checksum(payload) != checksum) {
+                    break;
+                }
+                boolean more = handler.accept(offset, payload);
+                offset += JournalFormat.HEADER_SIZE + size;
+                if (!more) {
+                    break;
+                }
+            }
+            return offset;
+        }
+    }
+
+    // Pulls the intact records of one segment one by one, from a record boundary on
+    private static class SegmentInput implements Closeable {
+        private final DataInputStream in;
+        private final long length;
+        private long recordOffset = -1;
+        private long end; // Just after the last record returned
+        private boolean finished;
+
+        SegmentInput(File file, long start, long limit) throws IOException {
+            this.length = Math.min(limit, file.length());
+            this.end = start;
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+            try {
+                in.skipNBytes(Math.min(start, length));
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+
+        // Payload of the next record; null at the end of the file or at the first damaged record
+        ByteBuffer next() throws IOException {
+            if (finished || length - end < JournalFormat.HEADER_SIZE) {
+                finished = true;
+                return null;
+            }
+            int size = in.readInt();
+            int checksum = in.readInt();
+            if (size <= 0 || size > length - end - JournalFormat.HEADER_SIZE) {
+                finished = true;
+                return null;
+            }
+            byte[] payload = new byte[size];
+            in.readFully(payload);
+            if (JournalFormat.checksum(payload) != checksum) {
+                finished = true;
+                return null;
+            }
+            recordOffset = end;
+            end += JournalFormat.HEADER_SIZE + size;
+            return ByteBuffer.wrap(payload);
+        }
+
+        long recordOffset() {
+            return recordOffset;
+        }
+
+        long end() {
+            return end;
+        }
+
+        long length() {
+            return length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    // Iterator behind the lazy streams; fetch() returns the next receipt or null when there are no more.
+    // Whatever is open is released when the iteration ends or the stream is closed.
+    private abstract static class Cursor implements Iterator<Receipt> {
+        private Receipt next;
+        private boolean done;
+
+        abstract Receipt fetch() throws IOException;
+
+        abstract void release() throws IOException;
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !done) {
+                try {
+                    next = fetch();
+                } catch (IOException e) {
+                    close();
+                    throw new UncheckedIOException(e);
+                }
+                if (next == null) {
+                    close();
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Receipt next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Receipt receipt = next;
+            next = null;
+            return receipt;
+        }
+
+        void close() {
+            done = true;
+            try {
+                release();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        Stream<Receipt> stream() {
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+                    Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(this::close);
+        }
+    }
+
+    private class SegmentCursor extends Cursor {
+        private final Iterator<File> files;
+        private final ReceiptFilter filter;
+        private SegmentInput input;
+        private File file;
+        private int segment;
+
+        SegmentCursor(Iterator<File> files, ReceiptFilter filter) {
+            this.files = files;
+            this.filter = filter;
+        }
+
+        @Override
+        Receipt fetch() throws IOException {
+            while (true) {
+                if (input == null) {
+                    if (!files.hasNext()) {
+                        return null;
+                    }
+                    file = files.next();
+                    segment = JournalFormat.segmentNumber(file.getName());
+                    input = new SegmentInput(file, 0, file.length());
+                }
+                ByteBuffer payload = input.next();
+                if (payload == null) {
+                    if (input.end() < input.length()) {
+                        System.out.println("Warning: Journal segment " + file.getName() + " is damaged at offset "
+                                + input.end() + ", the rest of it was skipped");
+                    }
+                    release();
+                    continue;
+                }
+                Receipt receipt = decode(payload, new JournalPosition(segment, input.recordOffset()), filter);
+                if (receipt != null) {
+                    return receipt;
+                }
+            }
+        }
+
+        @Override
+        void release() throws IOException {
+            if (input != null) {
+                input.close();
+                input = null;
+            }
+        }
+    }
+
+    private class PositionCursor extends Cursor {
+        private final Iterator<JournalPosition> positions;
+        private FileChannel channel;
+        private int openSegment = -1;
+
+        PositionCursor(Iterator<JournalPosition> positions) {
+            this.positions = positions;
+        }
+
+        @Override
+        Receipt fetch() throws IOException {
+            while (positions.hasNext()) {
+                JournalPosition position = positions.next();
+                if (position.segment() != openSegment) {
+                    release();
+                    File file = new File(dir, JournalFormat.segmentName(position.segment()));
+                    channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+                    openSegment = position.segment();
+                }
+                Receipt receipt = readAt(channel, position);
+                if (receipt != null) {
+                    return receipt;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        void release() throws IOException {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+                openSegment = -1;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface RecordHandler {
+        // Return false to stop reading
+        boolean accept(JournalPosition position, Receipt receipt);
+    }
+
+    @FunctionalInterface
+    interface RawHandler {
+        void accept(JournalPosition position, ByteBuffer payload) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface PayloadHandler {
+        boolean accept(long offset, ByteBuffer payload) throws IOException;
+    }
+}
@@ -0,0 +1,411 @@
+package org.informatics.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.informatics.entity.Receipt;
+
+// Compressed archive of one closed business day: archive-YYYY-MM-DD.rca in the receipts directory.
+//   [int magic][byte version][int epoch day]
+//   blocks: records of about BLOCK_SIZE bytes, each block compressed with Deflate on its own
+//   index:  [int blocks] per block [long offset][int compressed length][int raw length][int CRC32 of raw bytes]
+//           [int receipts] per receipt [int number][int block][int offset in block][int length][short id length][cashier id]
+//   [long index offset][int magic]
+// Records are journal payloads (JournalFormat), so .ser and .bin receipts are archived as they are.
+// A single receipt costs reading and inflating one block, found through the index.
+public class ReceiptArchive {
+
+    public static final int DEFAULT_BLOCK_SIZE = 32 * 1024;
+
+    private static final int MAGIC = 0x52434131; // "RCA1"
+    private static final byte VERSION = 1;
+    private static final String PREFIX = "archive-";
+    private static final String SUFFIX = ".rca";
+    private static final int TRAILER_SIZE = 12;
+
+    private final File file;
+    private final LocalDate day;
+    private final List<Block> blocks;
+    private final Map<Integer, Entry> byNumber;
+    private final List<Entry> entries; // In number order
+    private final int[] firstEntry; // Per block, the first of its entries; one past the last block is the entry count
+    private final long modified;
+    private final long length;
+
+    private ReceiptArchive(File file, long modified, long length, LocalDate day, List<Block> blocks, List<Entry> entries) {
+        this.file = file;
+        this.modified = modified;
+        this.length = length;
+        this.day = day;
+        this.blocks = blocks;
+        this.entries = entries;
+        this.byNumber = new HashMap<>();
+        this.firstEntry = new int[blocks.size() + 1];
+        int block = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            Entry e = entries.get(i);
+            byNumber.put(e.number(), e);
+            while (block < e.block()) {
+                firstEntry[++block] = i;
+            }
+        }
+        while (block < blocks.size()) {
+            firstEntry[++block] = entries.size();
+        }
+    }
+
+    // A receipt as it is stored: its journal payload plus what the index keeps about it
+    public record Record(int number, String cashierId, byte[] payload) {
+    }
+
+    public record Entry(int number, String cashierId, int block, int offset, int length) {
+    }
+
+    private record Block(long offset, int compressedLength, int rawLength, int checksum) {
+    }
+
+    public static String fileName(LocalDate day) {
+        return PREFIX + day + SUFFIX;
+    }
+
+    // Day of an archive file name, null for any other file
+    public static LocalDate day(String fileName) {
+        if (!fileName.startsWith(PREFIX) || !fileName.endsWith(SUFFIX)) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(fileName.substring(PREFIX.length(), fileName.length() - SUFFIX.length()));
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    // Archive files of a directory, oldest day first
+    public static List<File> list(File dir) {
+        File[] files = dir.listFiles((File d, String name) -> day(name) != null);
+        if (files == null) {
+            return new ArrayList<>();
+        }
+        Arrays.sort(files, Comparator.comparing((File f) -> day(f.getName())));
+        return new ArrayList<>(Arrays.asList(files));
+    }
+
+    // Writes the records in number order; the file is replaced in one step once it is complete on disk,
+    // and the directory is synced after that, so on return the archive survives a crash and the files it
+    // holds can be deleted. A failed write leaves the old archive (if any) and no temporary file.
+    public static void write(File target, LocalDate day, List<Record> records, int blockSize) throws IOException {
+        List<Record> sorted = new ArrayList<>(records);
+        sorted.sort(Comparator.comparingInt(Record::number));
+        File dir = target.getAbsoluteFile().getParentFile();
+        File tmp = new File(dir, target.getName() + ".tmp");
+        boolean written = false;
+        try {
+            writeFile(tmp, day, sorted, blockSize);
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            written = true;
+        } finally {
+            if (!written) {
+                Files.deleteIfExists(tmp.toPath());
+            }
+        }
+        syncDirectory(dir);
+    }
+
+    private static void writeFile(File tmp, LocalDate day, List<Record> sorted, int blockSize) throws IOException {
+        FileOutputStream file = new FileOutputStream(tmp);
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt((int) day.toEpochDay());
+            long offset = 9;
+
+            List<Block> blocks = new ArrayList<>();
+            List<Entry> entries = new ArrayList<>(sorted.size());
+            ByteBuffer raw = ByteBuffer.allocate(blockSize);
+            byte[] compressed = new byte[blockSize + blockSize / 8 + 64];
+            int i = 0;
+            while (i < sorted.size()) {
+                raw.clear();
+                if (raw.capacity() < sorted.get(i).payload().length) {
+                    raw = ByteBuffer.allocate(sorted.get(i).payload().length); // A record bigger than a block gets a block of its own
+                }
+                while (i < sorted.size() && sorted.get(i).payload().length <= raw.remaining()) {
+                    Record r = sorted.get(i++);
+                    entries.add(new Entry(r.number(), r.cashierId(), blocks.size(), raw.position(), r.payload().length));
+                    raw.put(r.payload());
+                }
+                raw.flip();
+                CRC32 crc = new CRC32();
+                crc.update(raw.duplicate());
+                deflater.reset();
+                deflater.setInput(raw.duplicate());
+                deflater.finish();
+                int length = 0;
+                while (!deflater.finished()) {
+                    if (length == compressed.length) {
+                        compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                    }
+                    length += deflater.deflate(compressed, length, compressed.length - length);
+                }
+                out.write(compressed, 0, length);
+                blocks.add(new Block(offset, length, raw.remaining(), (int) crc.getValue()));
+                offset += length;
+            }
+
+            long indexOffset = offset;
+            out.writeInt(blocks.size());
+            for (Block b : blocks) {
+                out.writeLong(b.offset());
+                out.writeInt(b.compressedLength());
+                out.writeInt(b.rawLength());
+                out.writeInt(b.checksum());
+            }
+            out.writeInt(entries.size());
+            for (Entry e : entries) {
+                byte[] id = e.cashierId().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(e.number());
+                out.writeInt(e.block());
+                out.writeInt(e.offset());
+                out.writeInt(e.length());
+                out.writeShort(id.length);
+                out.write(id);
+            }
+            out.writeLong(indexOffset);
+            out.writeInt(MAGIC);
+            out.flush();
+            file.getFD().sync();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // Forces a directory's entries (a rename into it) to disk. Where a directory can't be opened
+    // (Windows), this is left to the file system.
+    private static void syncDirectory(File dir) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ);
+        } catch (AccessDeniedException e) {
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    // Reads the index only; blocks are read when receipts are asked for
+    public static ReceiptArchive open(File file) throws IOException {
+        long modified = file.lastModified();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 9 + TRAILER_SIZE) {
+                throw new IOException("Receipt archive is truncated: " + file.getName());
+            }
+            ByteBuffer header = read(channel, 0, 9);
+            ByteBuffer trailer = read(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+            long indexOffset = trailer.getLong();
+            if (header.getInt() != MAGIC || trailer.getInt() != MAGIC) {
+                throw new IOException("Not a receipt archive or not completely written: " + file.getName());
+            }
+            byte version = header.get();
+            if (version != VERSION) {
+                throw new IOException("Unsupported receipt archive version: " + version);
+            }
+            LocalDate day = LocalDate.ofEpochDay(header.getInt());
+            if (indexOffset < 9 || indexOffset > size - TRAILER_SIZE) {
+                throw new IOException("Receipt archive index is damaged: " + file.getName());
+            }
+
+            ByteBuffer index = read(channel, indexOffset, (int) (size - TRAILER_SIZE - indexOffset));
+            int blockCount = index.getInt();
+            List<Block> blocks = new ArrayList<>(Math.min(blockCount, 1 << 16));
+            for (int i = 0; i < blockCount; i++) {
+                blocks.add(new Block(index.getLong(), index.getInt(), index.getInt(), index.getInt()));
+            }
+            int entryCount = index.getInt();
+            List<Entry> entries = new ArrayList<>(Math.min(entryCount, 1 << 20));
+            for (int i = 0; i < entryCount; i++) {
+                int number = index.getInt();
+                int block = index.getInt();
+                int offset = index.getInt();
+                int length = index.getInt();
+                byte[] id = new byte[index.getShort() & 0xFFFF];
+                index.get(id);
+                int previous = entries.isEmpty() ? 0 : entries.getLast().block();
+                if (block < previous || block >= blocks.size() || offset < 0 || length < 0
+                        || offset + length > blocks.get(block).rawLength()) {
+                    throw new IOException("Receipt archive index is damaged: " + file.getName());
+                }
+                entries.add(new Entry(number, new String(id, StandardCharsets.UTF_8), block, offset, length));
+            }
+            return new ReceiptArchive(file, modified, size, day, blocks, entries);
+        } catch (RuntimeException e) {
+            throw new IOException("Receipt archive index is damaged: " + file.getName(), e);
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // False once the file was rewritten (late receipts merged in) and the archive has to be opened again
+    public boolean isCurrent() {
+        return file.lastModified() == modified && file.length() == length;
+    }
+
+    // In number order
+    public List<Entry> entries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    public boolean contains(int receiptNumber) {
+        return byNumber.containsKey(receiptNumber);
+    }
+
+    // null if the receipt is not in this archive
+    public Receipt read(int receiptNumber, ReceiptCatalog catalog) throws IOException {
+        Entry entry = byNumber.get(receiptNumber);
+        if (entry == null) {
+            return null;
+        }
+        ByteBuffer block = inflate(entry.block());
+        return decode(block.slice(entry.offset(), entry.length()), entry, catalog);
+    }
+
+    // Raw records, e.g. to merge late receipts into an existing archive
+    public List<Record> records() throws IOException {
+        List<Record> records = new ArrayList<>(entries.size());
+        int current = -1;
+        ByteBuffer block = null;
+        for (Entry e : entries) {
+            if (e.block() != current) {
+                block = inflate(e.block());
+                current = e.block();
+            }
+            byte[] payload = new byte[e.length()];
+            block.get(e.offset(), payload);
+            records.add(new Record(e.number(), e.cashierId(), payload));
+        }
+        return records;
+    }
+
+    // Matching receipts in number order, inflating one block at a time and only blocks with a match.
+    // I/O errors are thrown as UncheckedIOException.
+    public Stream<Receipt> stream(ReceiptFilter filter, ReceiptCatalog catalog) {
+        if (!filter.matchesDay(day)) {
+            return Stream.empty();
+        }
+        return IntStream.range(0, blocks.size()).boxed().flatMap(block -> {
+            // Entries are in number order and blocks were filled in that order, so a block's entries are contiguous
+            List<Entry> matching = entries.subList(firstEntry[block], firstEntry[block + 1]).stream()
+                    .filter(e -> filter.cashierId() == null || filter.cashierId().equals(e.cashierId()))
+                    .toList();
+            if (matching.isEmpty()) {
+                return Stream.empty();
+            }
+            ByteBuffer raw;
+            try {
+                raw = inflate(block);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            List<Receipt> receipts = new ArrayList<>(matching.size());
+            for (Entry e : matching) {
+                Receipt receipt = decode(raw.slice(e.offset(), e.length()), e, catalog);
+                if (receipt != null) {
+                    receipts.add(receipt);
+                }
+            }
+            return receipts.stream();
+        });
+    }
+
+    private Receipt decode(ByteBuffer payload, Entry entry, ReceiptCatalog catalog) {
+        try {
+            return JournalFormat.decode(payload, catalog);
+        } catch (IOException | ClassNotFoundException e) {
+            System.out.println("Warning: Could not decode receipt #" + entry.number() + " in " + file.getName()
+                    + " - " + e.getMessage());
+            return null;
+        }
+    }
+
+    private ByteBuffer inflate(int index) throws IOException {
+        Block block = blocks.get(index);
+        ByteBuffer compressed;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            compressed = read(channel, block.offset(), block.compressedLength());
+        }
+        byte[] raw = new byte[block.rawLength()];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int length = 0;
+            while (length < raw.length && !inflater.finished()) {
+                int n = inflater.inflate(raw, length, raw.length - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += n;
+            }
+            if (length != raw.length) {
+                throw new IOException("Block " + index + " of " + file.getName() + " is damaged");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Block " + index + " of " + file.getName() + " is damaged", e);
+        } finally {
+            inflater.end();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(raw);
+        if ((int) crc.getValue() != block.checksum()) {
+            throw new IOException("Block " + index + " of " + file.getName() + " is damaged");
+        }
+        return ByteBuffer.wrap(raw);
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0) {
+                throw new IOException("Receipt archive is truncated");
+            }
+        }
+        return buf.flip();
+    }
+}
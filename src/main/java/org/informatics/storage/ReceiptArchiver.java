@@ -0,0 +1,191 @@
+package org.informatics.storage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Rolls the receipt files of closed business days into per-day compressed archives (ReceiptArchive).
+// archive() groups the .ser/.bin files of days before today by the receipt's day, writes them into
+// that day's archive (merged with what the archive already holds, for receipts saved late) and then
+// deletes the files together with their .txt copies. The text is not archived: Receipt.toString()
+// renders it again from the archived record. A .bin record keeps only product ids, so its text is
+// rendered with the catalog's current product names; a product renamed since shows its new name.
+// Files are taken from the flat directory and from ReceiptShards directories; the directories of the
+// archived days are removed once empty. Files are only deleted once the archive and its directory entry
+// are on disk (ReceiptArchive.write).
+// A crash between writing an archive and deleting its files leaves both; the next run deletes them.
+// Files that can't be read are left in place with a warning. Journal segments are not touched.
+// Finding a flat file's day means reading it (a .ser file in full), so the files of the open day are
+// remembered by their modification time and not read again by the next runs.
+public class ReceiptArchiver implements Closeable {
+
+    private final File dir;
+    private final Supplier<LocalDate> today;
+    private final int blockSize;
+    private ScheduledExecutorService scheduler;
+    private long originalBytes; // Totals of all runs, under this
+    private long archivedBytes;
+    private Map<File, Later> later = new HashMap<>(); // Files of days still open at the last run
+
+    public ReceiptArchiver(File dir, Supplier<LocalDate> today) {
+        this(dir, today, ReceiptArchive.DEFAULT_BLOCK_SIZE);
+    }
+
+    // today is the business day still open, e.g. BusinessClock::today
+    public ReceiptArchiver(File dir, Supplier<LocalDate> today, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.dir = dir;
+        this.today = today;
+        this.blockSize = blockSize;
+    }
+
+    // What one run did. The ratio is file bytes removed per archive byte added.
+    public record Result(int days, int receipts, long originalBytes, long archivedBytes) {
+
+        public double ratio() {
+            return archivedBytes <= 0 ? 0 : (double) originalBytes / archivedBytes;
+        }
+    }
+
+    public synchronized Result archive() throws IOException {
+        LocalDate open = today.get();
+        Map<LocalDate, Map<Integer, Pending>> days = new TreeMap<>();
+        File[] flat = dir.listFiles((File d, String name) -> ReceiptShards.isReceiptFile(name));
+        if (flat == null) {
+            return new Result(0, 0, 0, 0);
+        }
+        List<File> files = new ArrayList<>(Arrays.asList(flat));
+        files.addAll(ReceiptShards.receiptFiles(dir, ReceiptFilter.between(null, open.minusDays(1))));
+        Map<File, Later> stillOpen = new HashMap<>();
+        for (File file : files) {
+            Later known = later.get(file);
+            long modified = file.lastModified();
+            if (known != null && !known.day().isBefore(open) && known.modified() == modified) {
+                stillOpen.put(file, known);
+                continue;
+            }
+            Pending pending = read(file);
+            if (pending == null) {
+                continue;
+            }
+            if (pending.day().isBefore(open)) {
+                days.computeIfAbsent(pending.day(), d -> new HashMap<>()).put(pending.record().number(), pending);
+            } else {
+                stillOpen.put(file, new Later(pending.day(), modified));
+            }
+        }
+        later = stillOpen;
+
+        int receipts = 0;
+        long original = 0;
+        long archived = 0;
+        for (Map.Entry<LocalDate, Map<Integer, Pending>> day : days.entrySet()) {
+            File target = new File(dir, ReceiptArchive.fileName(day.getKey()));
+            List<ReceiptArchive.Record> records = new ArrayList<>();
+            long before = 0;
+            if (target.exists()) {
+                before = target.length();
+                for (ReceiptArchive.Record r : ReceiptArchive.open(target).records()) {
+                    if (!day.getValue().containsKey(r.number())) {
+                        records.add(r);
+                    }
+                }
+            }
+            for (Pending pending : day.getValue().values()) {
+                records.add(pending.record());
+            }
+            ReceiptArchive.write(target, day.getKey(), records, blockSize);
+            archived += target.length() - before;
+
+            for (Pending pending : day.getValue().values()) {
+                original += delete(pending.file());
+                original += delete(ReceiptShards.textFile(pending.file()));
+            }
+            receipts += day.getValue().size();
+        }
+        ReceiptShards.removeEmpty(dir, days.keySet());
+
+        originalBytes += original;
+        archivedBytes += archived;
+        return new Result(days.size(), receipts, original, archived);
+    }
+
+    // Totals of every run of this archiver
+    public synchronized Result total() {
+        return new Result(0, 0, originalBytes, archivedBytes);
+    }
+
+    // Runs archive() every interval on a background thread until close()
+    public synchronized void start(Duration interval) {
+        if (scheduler != null) {
+            throw new IllegalStateException("Archiving is already scheduled");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> Thread.ofPlatform()
+                .name("receipt-archiver").daemon().unstarted(r));
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                archive();
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Warning: Could not archive receipts - " + e.getMessage());
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // Stops the schedule, letting a run in progress finish
+    @Override
+    public void close() {
+        ScheduledExecutorService running;
+        synchronized (this) {
+            running = scheduler;
+            scheduler = null;
+        }
+        if (running != null) {
+            running.shutdown();
+            try {
+                running.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private record Pending(File file, LocalDate day, ReceiptArchive.Record record) {
+    }
+
+    private record Later(LocalDate day, long modified) {
+    }
+
+    // The file as a journal payload plus its day and cashier; null (with a warning) if it can't be read
+    private static Pending read(File file) {
+        try {
+            byte[] payload = ReceiptShards.payload(file);
+            ReceiptIndex.Entry header = JournalFormat.indexEntry(ByteBuffer.wrap(payload), null);
+            return new Pending(file, header.date(), new ReceiptArchive.Record(header.number(), header.cashierId(), payload));
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+            System.out.println("Warning: Could not archive file: " + file.getName() + " - " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Size of the deleted file, 0 if there was none
+    private static long delete(File file) throws IOException {
+        long size = file.length();
+        return Files.deleteIfExists(file.toPath()) ? size : 0;
+    }
+}
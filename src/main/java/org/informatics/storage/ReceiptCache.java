@@ -0,0 +1,144 @@
+package org.informatics.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.informatics.entity.Receipt;
+
+// Decoded receipts by directory and number, so loading the same receipt again costs one stat of its
+// file instead of opening and decoding it. Bounded by the number of receipts and by their total weight,
+// a rough estimate of the heap they hold; the least recently used receipts are evicted first.
+// Every receipt remembers the file it was read from (receipt file, journal segment or day archive) with
+// its modification time and size; a receipt whose file changed or is gone is dropped on the next get().
+// Cached receipts are sealed, so handing the same instance to several callers is safe.
+public class ReceiptCache {
+
+    public static final int DEFAULT_MAX_RECEIPTS = 10_000;
+    public static final long DEFAULT_MAX_WEIGHT = 64L * 1024 * 1024;
+
+    private final int maxReceipts;
+    private final long maxWeight;
+
+    // Guarded by this
+    private final LinkedHashMap<Key, Cached> receipts = new LinkedHashMap<>(16, 0.75f, true); // Access order
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    public ReceiptCache() {
+        this(DEFAULT_MAX_RECEIPTS, DEFAULT_MAX_WEIGHT);
+    }
+
+    public ReceiptCache(int maxReceipts, long maxWeight) {
+        if (maxReceipts <= 0) {
+            throw new IllegalArgumentException("Maximum number of receipts must be positive: " + maxReceipts);
+        }
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("Maximum weight must be positive: " + maxWeight);
+        }
+        this.maxReceipts = maxReceipts;
+        this.maxWeight = maxWeight;
+    }
+
+    // The file a receipt was read from, as it was before reading started; modified is in nanoseconds,
+    // as precise as the file system keeps it
+    public record Source(File file, long modified, long length) {
+
+        public static Source of(File file) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            return new Source(file, attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS), attributes.size());
+        }
+
+        public boolean isCurrent() {
+            try {
+                return equals(of(file));
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+
+    // Counters since the cache was created; size and weight are the current ones
+    public record Stats(long hits, long misses, long evictions, long invalidations, int size, long weight) {
+
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+    }
+
+    // The cached receipt, or null when there is none or its file changed
+    public Receipt get(File dir, int receiptNumber) {
+        Key key = new Key(dir.getAbsoluteFile(), receiptNumber);
+        Cached cached;
+        synchronized (this) {
+            cached = receipts.get(key);
+            if (cached == null) {
+                misses++;
+                return null;
+            }
+        }
+        boolean current = cached.source().isCurrent(); // Outside the lock, it touches the disk
+        synchronized (this) {
+            if (current) {
+                hits++;
+                return cached.receipt();
+            }
+            if (receipts.remove(key, cached)) {
+                weight -= cached.weight();
+                invalidations++;
+            }
+            misses++;
+            return null;
+        }
+    }
+
+    // A receipt heavier than the whole cache is not kept
+    public void put(File dir, Receipt receipt, Source source) {
+        Cached cached = new Cached(receipt, source, weight(receipt));
+        if (cached.weight() > maxWeight) {
+            return;
+        }
+        synchronized (this) {
+            Cached previous = receipts.put(new Key(dir.getAbsoluteFile(), receipt.getNumber()), cached);
+            if (previous != null) {
+                weight -= previous.weight();
+            }
+            weight += cached.weight();
+            Iterator<Cached> eldest = receipts.values().iterator();
+            while (receipts.size() > maxReceipts || weight > maxWeight) {
+                weight -= eldest.next().weight();
+                eldest.remove();
+                evictions++;
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        receipts.clear();
+        weight = 0;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, invalidations, receipts.size(), weight);
+    }
+
+    // Rough heap bytes: the receipt with its cashier and time, plus a line with its price per line.
+    // Products are shared with the catalog or other receipts and are not counted.
+    static long weight(Receipt receipt) {
+        return 256 + 96L * receipt.getLines().size();
+    }
+
+    private record Key(File dir, int number) {
+    }
+
+    private record Cached(Receipt receipt, Source source, long weight) {
+    }
+}
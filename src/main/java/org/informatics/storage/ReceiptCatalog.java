@@ -0,0 +1,41 @@
+package org.informatics.storage;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.informatics.entity.Cashier;
+import org.informatics.entity.Product;
+
+// Resolves the product and cashier ids stored in binary receipts; Store is the usual catalog
+public interface ReceiptCatalog {
+
+    // null if the id is unknown
+    Product findProduct(String productId);
+
+    // null if the id is unknown
+    Cashier findCashier(String cashierId);
+
+    // Fixed catalog, e.g. for tools that read receipts without a running store
+    static ReceiptCatalog of(Collection<? extends Product> products, Collection<Cashier> cashiers) {
+        Map<String, Product> productsById = new HashMap<>();
+        for (Product p : products) {
+            productsById.put(p.getId(), p);
+        }
+        Map<String, Cashier> cashiersById = new HashMap<>();
+        for (Cashier c : cashiers) {
+            cashiersById.put(c.getId(), c);
+        }
+        return new ReceiptCatalog() {
+            @Override
+            public Product findProduct(String productId) {
+                return productsById.get(productId);
+            }
+
+            @Override
+            public Cashier findCashier(String cashierId) {
+                return cashiersById.get(cashierId);
+            }
+        };
+    }
+}
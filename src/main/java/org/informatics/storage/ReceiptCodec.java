@@ -0,0 +1,245 @@
+package org.informatics.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+import org.informatics.entity.Cashier;
+import org.informatics.entity.Product;
+import org.informatics.entity.Receipt;
+
+// Compact binary receipt format.
+// Version 1 layout, numbers as unsigned varints unless noted:
+//   byte version
+//   number
+//   time: epoch second (zigzag varint, local time read as UTC) and nano of second
+//   cashier id (string)
+//   line count, then per line: product id (string), quantity, price scale (zigzag), price unscaled value (bytes)
+// Strings and byte arrays are a length followed by the bytes, strings in UTF-8.
+// Cashier and products are stored by id only and resolved through a ReceiptCatalog when read.
+// Version 2 is the same, except that each line's product is a number from the SegmentDictionary
+// of the journal segment holding the record. The header (up to the cashier id) is the same in both,
+// so it can be checked without a catalog or dictionary.
+public final class ReceiptCodec {
+
+    public static final byte VERSION = 1;
+    public static final byte DICTIONARY_VERSION = 2;
+
+    private ReceiptCodec() {
+    }
+
+    public static byte[] encode(Receipt receipt) {
+        try {
+            return encode(receipt, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Only adding to a dictionary can fail
+        }
+    }
+
+    // Version 2 with a dictionary, version 1 without
+    static byte[] encode(Receipt receipt, SegmentDictionary dictionary) throws IOException {
+        Output out = new Output(64 + receipt.getLines().size() * 24);
+        out.writeByte(dictionary != null ? DICTIONARY_VERSION : VERSION);
+        out.writeVarLong(receipt.getNumber());
+        LocalDateTime time = receipt.getTime();
+        out.writeVarLong(zigzag(time.toEpochSecond(ZoneOffset.UTC)));
+        out.writeVarLong(time.getNano());
+        out.writeString(receipt.getCashier().getId());
+        out.writeVarLong(receipt.getLines().size());
+        for (Receipt.Line line : receipt.getLines()) {
+            if (dictionary != null) {
+                out.writeVarLong(dictionary.code(line.product().getId()));
+            } else {
+                out.writeString(line.product().getId());
+            }
+            out.writeVarLong(line.quantity());
+            out.writeVarLong(zigzag(line.price().scale()));
+            out.writeBytes(line.price().unscaledValue().toByteArray());
+        }
+        return out.toByteArray();
+    }
+
+    public static Receipt decode(byte[] data, ReceiptCatalog catalog) throws IOException {
+        return decode(ByteBuffer.wrap(data), catalog);
+    }
+
+    // Reads one receipt starting at the buffer's position; the decoded receipt is sealed
+    public static Receipt decode(ByteBuffer in, ReceiptCatalog catalog) throws IOException {
+        return decode(in, catalog, null);
+    }
+
+    // A version 2 record needs the dictionary of its segment
+    static Receipt decode(ByteBuffer in, ReceiptCatalog catalog, SegmentDictionary dictionary) throws IOException {
+        if (catalog == null) {
+            throw new IOException("A catalog is needed to resolve products and cashiers of binary receipts");
+        }
+        try {
+            byte version = in.get();
+            if (version != VERSION && version != DICTIONARY_VERSION) {
+                throw new IOException("Unsupported receipt format version: " + version);
+            }
+            boolean numbered = version == DICTIONARY_VERSION;
+            if (numbered && dictionary == null) {
+                throw new IOException("Receipt record refers to a segment dictionary that is not available");
+            }
+            int number = (int) readVarLong(in);
+            long epochSecond = unzigzag(readVarLong(in));
+            int nano = (int) readVarLong(in);
+            LocalDateTime time = LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+            String cashierId = readString(in);
+            Cashier cashier = catalog.findCashier(cashierId);
+            if (cashier == null) {
+                throw new IOException("Unknown cashier in receipt #" + number + ": " + cashierId);
+            }
+
+            Receipt receipt = new Receipt(number, cashier, time);
+            int lines = (int) readVarLong(in);
+            for (int i = 0; i < lines; i++) {
+                Product product;
+                if (numbered) {
+                    int code = (int) readVarLong(in);
+                    product = dictionary.product(code, catalog);
+                    if (product == null) {
+                        throw new IOException("Unknown product in receipt #" + number + ": " + dictionary.id(code));
+                    }
+                } else {
+                    String productId = readString(in);
+                    product = catalog.findProduct(productId);
+                    if (product == null) {
+                        throw new IOException("Unknown product in receipt #" + number + ": " + productId);
+                    }
+                }
+                int quantity = (int) readVarLong(in);
+                int scale = (int) unzigzag(readVarLong(in));
+                BigDecimal price = new BigDecimal(new BigInteger(readBytes(in)), scale);
+                receipt.add(product, quantity, price);
+            }
+            receipt.seal();
+            return receipt;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Receipt record is truncated", e);
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new IOException("Receipt record is invalid: " + e.getMessage(), e);
+        }
+    }
+
+    public static boolean matches(byte[] data, ReceiptFilter filter) throws IOException {
+        return matches(ByteBuffer.wrap(data), filter);
+    }
+
+    // Checks a binary receipt against a filter from its header alone, without a catalog;
+    // leaves the buffer's position unchanged
+    public static boolean matches(ByteBuffer in, ReceiptFilter filter) throws IOException {
+        if (filter.isAll()) {
+            return true;
+        }
+        ReceiptIndex.Entry header = indexEntry(in.duplicate(), null);
+        return filter.matches(header.date(), header.cashierId());
+    }
+
+    // Index entry from the receipt header only, without resolving anything through a catalog
+    static ReceiptIndex.Entry indexEntry(ByteBuffer in, JournalPosition position) throws IOException {
+        try {
+            byte version = in.get();
+            if (version != VERSION && version != DICTIONARY_VERSION) {
+                throw new IOException("Unsupported receipt format version: " + version);
+            }
+            int number = (int) readVarLong(in);
+            long epochSecond = unzigzag(readVarLong(in));
+            int nano = (int) readVarLong(in);
+            LocalDateTime time = LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+            return new ReceiptIndex.Entry(number, time.toLocalDate(), readString(in), position);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Receipt record is truncated", e);
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new IOException("Receipt record is invalid: " + e.getMessage(), e);
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long readVarLong(ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in receipt record");
+    }
+
+    private static byte[] readBytes(ByteBuffer in) throws IOException {
+        long length = readVarLong(in);
+        if (length < 0 || length > in.remaining()) {
+            throw new IOException("Receipt record is truncated");
+        }
+        byte[] bytes = new byte[(int) length];
+        in.get(bytes);
+        return bytes;
+    }
+
+    private static String readString(ByteBuffer in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    // Growable byte array, cheaper than a stream for these small records
+    private static class Output {
+        private byte[] buf;
+        private int size;
+
+        Output(int capacity) {
+            buf = new byte[capacity];
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            buf[size++] = (byte) b;
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buf[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[size++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes) {
+            writeVarLong(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, size, bytes.length);
+            size += bytes.length;
+        }
+
+        void writeString(String s) {
+            writeBytes(s.getBytes(StandardCharsets.UTF_8));
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, size);
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + extra));
+            }
+        }
+    }
+}
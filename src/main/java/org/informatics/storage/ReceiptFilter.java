@@ -0,0 +1,40 @@
+package org.informatics.storage;
+
+import java.time.LocalDate;
+import java.util.function.Predicate;
+
+import org.informatics.entity.Receipt;
+
+// Which receipts a query wants: days from..to (both included) and optionally a single cashier.
+// A null bound or cashier id does not restrict anything.
+// Besides a decoded receipt, the filter can be checked against an index entry or the header of a
+// binary record, so receipts that don't match are skipped before they are decoded.
+public record ReceiptFilter(LocalDate from, LocalDate to, String cashierId) implements Predicate<Receipt> {
+
+    public static final ReceiptFilter ALL = new ReceiptFilter(null, null, null);
+
+    public static ReceiptFilter between(LocalDate from, LocalDate to) {
+        return new ReceiptFilter(from, to, null);
+    }
+
+    public static ReceiptFilter byCashier(String cashierId, LocalDate from, LocalDate to) {
+        return new ReceiptFilter(from, to, cashierId);
+    }
+
+    public boolean isAll() {
+        return from == null && to == null && cashierId == null;
+    }
+
+    @Override
+    public boolean test(Receipt receipt) {
+        return isAll() || matches(receipt.getTime().toLocalDate(), receipt.getCashier().getId());
+    }
+
+    public boolean matches(LocalDate date, String cashier) {
+        return matchesDay(date) && (cashierId == null || cashierId.equals(cashier));
+    }
+
+    public boolean matchesDay(LocalDate date) {
+        return (from == null || !date.isBefore(from)) && (to == null || !date.isAfter(to));
+    }
+}
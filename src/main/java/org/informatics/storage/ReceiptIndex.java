@@ -0,0 +1,193 @@
+package org.informatics.storage;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+// Side index of a receipt journal, so a receipt can be found without scanning the segments.
+// The journal appends one entry per record to journal.idx:
+//   [int number][int segment][long offset][int epoch day][short id length][cashier id, UTF-8]
+// In memory the entries are kept by number, by day and by cashier. refresh() reads only the
+// entries appended since the last call, so a reader can follow a journal that is still being written.
+// The index is not forced to disk; an index that is behind its journal is completed when the journal is opened,
+// and entries a crash left pointing past the end of a segment are cut off then (refreshTail(ends)).
+public class ReceiptIndex {
+
+    public static final String FILE_NAME = "journal.idx";
+
+    private static final int FIXED_SIZE = 22;
+
+    private final File file;
+    private final Map<Integer, Entry> byNumber = new HashMap<>();
+    private final NavigableMap<LocalDate, List<Entry>> byDate = new TreeMap<>();
+    private final Map<String, List<Entry>> byCashier = new HashMap<>();
+    private long validLength; // Bytes of complete entries read so far
+    private Entry last;
+
+    public ReceiptIndex(File dir) {
+        this.file = new File(dir, FILE_NAME);
+    }
+
+    public static boolean exists(File dir) {
+        return new File(dir, FILE_NAME).exists();
+    }
+
+    // Reads entries appended since the last refresh; a half-written last entry is left for later.
+    // An index that was cut back when its journal was opened is read again from the start: it is shorter,
+    // or, if entries were appended since, the last entry read is no longer where it was.
+    public synchronized void refresh() throws IOException {
+        long length = file.length();
+        if (length < validLength || length > validLength && !lastEntryUnchanged()) {
+            byNumber.clear();
+            byDate.clear();
+            byCashier.clear();
+            validLength = 0;
+            last = null;
+        }
+        read(true, null);
+    }
+
+    // Like refresh(), but only finds the last entry and where the complete entries end,
+    // without building the lookup maps; all a journal needs when it is opened.
+    // Entries end at the first one at or past the end of its segment (ends: valid length by segment,
+    // a segment missing from it doesn't exist): the journal was cut back after a crash, and the
+    // offsets past the cut will be used by other records.
+    synchronized void refreshTail(Map<Integer, Long> ends) throws IOException {
+        read(false, ends);
+    }
+
+    private void read(boolean keep, Map<Integer, Long> ends) throws IOException {
+        if (!file.exists() || file.length() <= validLength) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            in.skipNBytes(validLength);
+            while (true) {
+                Entry entry;
+                try {
+                    int number = in.readInt();
+                    int segment = in.readInt();
+                    long offset = in.readLong();
+                    LocalDate date = LocalDate.ofEpochDay(in.readInt());
+                    byte[] id = new byte[in.readUnsignedShort()];
+                    in.readFully(id);
+                    entry = new Entry(number, date, new String(id, StandardCharsets.UTF_8),
+                            new JournalPosition(segment, offset));
+                    if (ends != null && offset >= ends.getOrDefault(segment, 0L)) {
+                        return;
+                    }
+                    validLength += FIXED_SIZE + id.length;
+                } catch (EOFException e) {
+                    return;
+                }
+                if (keep) {
+                    add(entry);
+                } else {
+                    last = entry;
+                }
+            }
+        }
+    }
+
+    // Whether the bytes just before validLength are still the last entry read
+    private boolean lastEntryUnchanged() throws IOException {
+        if (last == null) {
+            return true;
+        }
+        ByteBuffer expected = encode(last);
+        byte[] actual = new byte[expected.remaining()];
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            in.seek(validLength - actual.length);
+            in.readFully(actual);
+        } catch (EOFException e) {
+            return false;
+        }
+        return ByteBuffer.wrap(actual).equals(expected);
+    }
+
+    public synchronized Entry find(int receiptNumber) {
+        return byNumber.get(receiptNumber);
+    }
+
+    // Entries matching the filter, day by day
+    public synchronized List<Entry> find(ReceiptFilter filter) {
+        LocalDate from = filter.from() == null ? LocalDate.MIN : filter.from();
+        LocalDate to = filter.to() == null ? LocalDate.MAX : filter.to();
+        return filter.cashierId() == null ? findByDate(from, to) : findByCashier(filter.cashierId(), from, to);
+    }
+
+    // Receipts of the days from..to, both included, in journal order
+    public synchronized List<Entry> findByDate(LocalDate from, LocalDate to) {
+        List<Entry> result = new ArrayList<>();
+        if (from.isAfter(to)) {
+            return result;
+        }
+        for (List<Entry> day : byDate.subMap(from, true, to, true).values()) {
+            result.addAll(day);
+        }
+        return result;
+    }
+
+    // Receipts of one cashier from..to, both included, in journal order
+    public synchronized List<Entry> findByCashier(String cashierId, LocalDate from, LocalDate to) {
+        List<Entry> result = new ArrayList<>();
+        for (Entry entry : byCashier.getOrDefault(cashierId, List.of())) {
+            if (!entry.date().isBefore(from) && !entry.date().isAfter(to)) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    // Most recently indexed record, null for an empty index
+    public synchronized Entry last() {
+        return last;
+    }
+
+    public synchronized int size() {
+        return byNumber.size();
+    }
+
+    synchronized long validLength() {
+        return validLength;
+    }
+
+    static ByteBuffer encode(Entry entry) {
+        byte[] id = entry.cashierId().getBytes(StandardCharsets.UTF_8);
+        if (id.length > 0xFFFF) {
+            throw new IllegalArgumentException("Cashier id is too long: " + entry.cashierId());
+        }
+        ByteBuffer buf = ByteBuffer.allocate(FIXED_SIZE + id.length);
+        buf.putInt(entry.number())
+                .putInt(entry.position().segment())
+                .putLong(entry.position().offset())
+                .putInt((int) entry.date().toEpochDay())
+                .putShort((short) id.length)
+                .put(id)
+                .flip();
+        return buf;
+    }
+
+    private void add(Entry entry) {
+        byNumber.put(entry.number(), entry); // A receipt saved again is found at its latest position
+        byDate.computeIfAbsent(entry.date(), d -> new ArrayList<>()).add(entry);
+        byCashier.computeIfAbsent(entry.cashierId(), c -> new ArrayList<>()).add(entry);
+        last = entry;
+    }
+
+    public record Entry(int number, LocalDate date, String cashierId, JournalPosition position) {
+    }
+}
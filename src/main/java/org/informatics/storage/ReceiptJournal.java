@@ -0,0 +1,222 @@
+package org.informatics.storage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.informatics.entity.Receipt;
+import org.informatics.util.ReceiptFormat;
+
+// Append-only receipt storage: every receipt becomes one record at the end of the current
+// segment file instead of two new files. A segment that reaches the size limit is closed and
+// the next one is started.
+// Appends go to the OS like the per-file save does; sync() forces them to disk.
+// Every append also adds an entry to the journal's ReceiptIndex.
+// In ReceiptFormat.DICTIONARY, products are written as numbers from the current segment's SegmentDictionary.
+public class ReceiptJournal implements Closeable {
+
+    public static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+
+    private final File dir;
+    private final long segmentSize;
+    private final ReceiptFormat format;
+    private FileChannel channel;
+    private SegmentDictionary dictionary; // DICTIONARY format: of the current segment, opened on first use
+    private int segment;
+    private long size; // Bytes in the current segment
+    private final FileChannel indexChannel;
+    private long indexSize;
+    private boolean indexBroken; // After a failed index write; the index is completed on the next open
+    private boolean closed;
+
+    public ReceiptJournal(File dir) throws IOException {
+        this(dir, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public ReceiptJournal(File dir, long segmentSize) throws IOException {
+        this(dir, segmentSize, ReceiptFormat.SERIALIZED);
+    }
+
+    // Continues the last segment of an existing journal, cutting off a record left half-written by a crash.
+    // Records of both formats can be mixed in one journal.
+    public ReceiptJournal(File dir, long segmentSize, ReceiptFormat format) throws IOException {
+        if (segmentSize <= JournalFormat.HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment size is too small: " + segmentSize);
+        }
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Unable to create journal directory: " + dir.getAbsolutePath());
+        }
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.format = format;
+
+        List<File> segments = JournalFormat.segments(dir);
+        Map<Integer, Long> ends = new HashMap<>(); // Valid length of every segment
+        for (File file : segments) {
+            ends.put(JournalFormat.segmentNumber(file.getName()), file.length());
+        }
+        if (segments.isEmpty()) {
+            openSegment(1);
+        } else {
+            File last = segments.getLast();
+            openSegment(JournalFormat.segmentNumber(last.getName()));
+            long valid = JournalReader.validLength(last);
+            if (valid < channel.size()) {
+                System.out.println("Warning: Truncating damaged journal segment " + last.getName() + " at offset " + valid);
+                channel.truncate(valid);
+            }
+            size = valid;
+            ends.put(segment, valid);
+        }
+
+        // Drop a half-written index entry and entries past the end of the journal, then index
+        // whatever the journal has beyond the last entry left
+        ReceiptIndex index = new ReceiptIndex(dir);
+        index.refreshTail(ends);
+        indexChannel = FileChannel.open(new File(dir, ReceiptIndex.FILE_NAME).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        indexSize = index.validLength();
+        indexChannel.truncate(indexSize);
+        catchUpIndex(index.last());
+    }
+
+    // Seals the receipt and appends it; returns where its record starts
+    public JournalPosition append(Receipt receipt) throws IOException {
+        receipt.seal();
+        boolean numbered = format == ReceiptFormat.DICTIONARY;
+        ByteBuffer record = numbered ? null : record(JournalFormat.encode(receipt, format));
+
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("Journal is closed: " + dir.getAbsolutePath());
+            }
+            if (numbered) {
+                record = record(JournalFormat.encode(receipt, dictionary()));
+            }
+            if (size > 0 && size + record.remaining() > segmentSize) {
+                roll();
+                if (numbered) {
+                    record = record(JournalFormat.encode(receipt, dictionary())); // Numbers of the new segment
+                }
+            }
+            if (numbered) {
+                dictionary.force(); // New product numbers reach the disk before the record using them
+            }
+            long offset = size;
+            try {
+                while (record.hasRemaining()) {
+                    channel.write(record, offset + record.position());
+                }
+            } catch (IOException e) {
+                // Don't leave half a record in front of the next one
+                channel.truncate(offset);
+                throw e;
+            }
+            size += record.limit();
+            JournalPosition position = new JournalPosition(segment, offset);
+            index(new ReceiptIndex.Entry(receipt.getNumber(), receipt.getTime().toLocalDate(),
+                    receipt.getCashier().getId(), position));
+            return position;
+        }
+    }
+
+    // Force everything appended so far to disk. A closed journal was forced when it was closed, but a caller
+    // asking for a sync after that is told, rather than led to think whatever it appended since is safe.
+    public synchronized void sync() throws IOException {
+        if (closed) {
+            throw new IOException("Journal is closed: " + dir.getAbsolutePath());
+        }
+        channel.force(false);
+    }
+
+    // Position the next record will be written at
+    public synchronized JournalPosition position() {
+        return new JournalPosition(segment, size);
+    }
+
+    public File getDirectory() {
+        return dir;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (dictionary != null) {
+                dictionary.close();
+            }
+            channel.force(false);
+        } finally {
+            channel.close();
+            indexChannel.close();
+        }
+    }
+
+    private static ByteBuffer record(byte[] payload) {
+        ByteBuffer record = ByteBuffer.allocate(JournalFormat.HEADER_SIZE + payload.length);
+        return record.putInt(payload.length).putInt(JournalFormat.checksum(payload)).put(payload).flip();
+    }
+
+    private SegmentDictionary dictionary() throws IOException {
+        if (dictionary == null) {
+            dictionary = SegmentDictionary.forWriting(dir, segment);
+        }
+        return dictionary;
+    }
+
+    private void catchUpIndex(ReceiptIndex.Entry last) throws IOException {
+        JournalPosition from = last == null ? new JournalPosition(1, 0) : last.position();
+        new JournalReader(dir).scanRaw(from, (position, payload) -> {
+            if (last != null && position.equals(last.position())) {
+                return;
+            }
+            try {
+                index(JournalFormat.indexEntry(payload, position));
+            } catch (IOException | ClassNotFoundException e) {
+                System.out.println("Warning: Could not index journal record at " + position + " - " + e.getMessage());
+            }
+        });
+    }
+
+    // The record is already safe in the journal, so a failed index write doesn't fail the append
+    private void index(ReceiptIndex.Entry entry) {
+        if (indexBroken) {
+            return;
+        }
+        ByteBuffer buf = ReceiptIndex.encode(entry);
+        try {
+            while (buf.hasRemaining()) {
+                indexSize += indexChannel.write(buf, indexSize);
+            }
+        } catch (IOException e) {
+            indexBroken = true;
+            System.out.println("Warning: Could not update journal index, it will be rebuilt on restart - " + e.getMessage());
+        }
+    }
+
+    private void roll() throws IOException {
+        if (dictionary != null) {
+            dictionary.close();
+            dictionary = null;
+        }
+        channel.force(false);
+        channel.close();
+        openSegment(segment + 1);
+    }
+
+    private void openSegment(int number) throws IOException {
+        File file = new File(dir, JournalFormat.segmentName(number));
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        segment = number;
+        size = channel.size();
+    }
+}
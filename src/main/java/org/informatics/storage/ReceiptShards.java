@@ -0,0 +1,169 @@
+package org.informatics.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+// Sharded layout of receipt files: <root>/<day>/<bucket>/receipt-N.ser|.bin|.txt, where day is the
+// receipt's date (YYYY-MM-DD) and bucket is N / BUCKET_SIZE, so no directory grows past a day's
+// worth of BUCKET_SIZE receipts. A date query only lists the directories of its days.
+// Receipts carry no date in their number, so finding one by number probes the bucket in every day.
+// Closed days are normally rolled into archives (ReceiptArchiver), which keeps that short.
+public final class ReceiptShards {
+
+    public static final int BUCKET_SIZE = 1000;
+
+    private ReceiptShards() {
+    }
+
+    public static File directory(File root, LocalDate day, int receiptNumber) {
+        return new File(new File(root, day.toString()), bucket(receiptNumber));
+    }
+
+    // Day of a shard directory name, null for any other name
+    public static LocalDate day(String name) {
+        if (name.length() != 10 || name.charAt(4) != '-' || name.charAt(7) != '-') {
+            return null;
+        }
+        try {
+            return LocalDate.parse(name);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    // Day directories, oldest first
+    public static List<File> days(File root) {
+        File[] dirs = root.listFiles((File d, String name) -> day(name) != null); // Names alone, no stat per entry
+        if (dirs == null) {
+            return new ArrayList<>();
+        }
+        Arrays.sort(dirs, Comparator.comparing(File::getName)); // ISO dates sort by name
+        return new ArrayList<>(Arrays.asList(dirs));
+    }
+
+    // .ser and .bin files of the days the filter takes
+    public static List<File> receiptFiles(File root, ReceiptFilter filter) {
+        List<File> files = new ArrayList<>();
+        for (File day : days(root)) {
+            if (!filter.matchesDay(day(day.getName()))) {
+                continue;
+            }
+            File[] buckets = day.listFiles(File::isDirectory);
+            if (buckets == null) {
+                continue;
+            }
+            for (File bucket : buckets) {
+                File[] found = bucket.listFiles((File d, String name) -> isReceiptFile(name));
+                if (found != null) {
+                    files.addAll(Arrays.asList(found));
+                }
+            }
+        }
+        return files;
+    }
+
+    // The receipt's .ser or .bin file in any day, null if there is none.
+    // Newest days are probed first, where recent receipts are.
+    public static File find(File root, int receiptNumber) {
+        String bucket = bucket(receiptNumber);
+        for (File day : days(root).reversed()) {
+            File dir = new File(day, bucket);
+            if (!dir.isDirectory()) {
+                continue;
+            }
+            for (String extension : new String[] {".ser", ".bin"}) {
+                File file = new File(dir, "receipt-" + receiptNumber + extension);
+                if (file.exists()) {
+                    return file;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Moves receipt files of a flat directory into the sharded layout; returns how many receipts were moved.
+    // Each file is read to find its day (header()), a .ser file in full.
+    // Each data file is moved after its .txt copy, so a run cut short can simply be started again.
+    // Files whose date can't be read are left where they are with a warning.
+    public static int migrate(File root) throws IOException {
+        File[] files = root.listFiles((File d, String name) -> isReceiptFile(name));
+        if (files == null) {
+            return 0;
+        }
+        int moved = 0;
+        for (File file : files) {
+            ReceiptIndex.Entry header;
+            try {
+                header = header(file);
+            } catch (IOException | ClassNotFoundException | RuntimeException e) {
+                System.out.println("Warning: Could not migrate file: " + file.getName() + " - " + e.getMessage());
+                continue;
+            }
+            File target = directory(root, header.date(), header.number());
+            if (!target.exists() && !target.mkdirs()) {
+                throw new IOException("Unable to create directory for receipts: " + target.getAbsolutePath());
+            }
+            File text = textFile(file);
+            if (text.exists()) {
+                Files.move(text.toPath(), new File(target, text.getName()).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(file.toPath(), new File(target, file.getName()).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            moved++;
+        }
+        return moved;
+    }
+
+    // Removes the bucket and day directories of the given days that are left empty, e.g. after their receipts
+    // were archived. Other days are not touched: Receipt.save creates a directory before writing into it,
+    // so an empty directory of the open day may be about to get a file.
+    public static void removeEmpty(File root, Collection<LocalDate> days) {
+        for (LocalDate date : days) {
+            File day = new File(root, date.toString());
+            File[] buckets = day.listFiles(File::isDirectory);
+            if (buckets != null) {
+                for (File bucket : buckets) {
+                    bucket.delete(); // Only succeeds when empty
+                }
+            }
+            day.delete();
+        }
+    }
+
+    static boolean isReceiptFile(String name) {
+        return name.startsWith("receipt-") && (name.endsWith(".ser") || name.endsWith(".bin"));
+    }
+
+    static File textFile(File dataFile) {
+        String name = dataFile.getName();
+        return new File(dataFile.getParentFile(), name.substring(0, name.lastIndexOf('.')) + ".txt");
+    }
+
+    // Number, date and cashier of a receipt file. Only the header of a .bin file is decoded, without a catalog;
+    // a .ser file has no separate header and is deserialized in full.
+    static ReceiptIndex.Entry header(File file) throws IOException, ClassNotFoundException {
+        return JournalFormat.indexEntry(ByteBuffer.wrap(payload(file)), null);
+    }
+
+    // A .ser or .bin file as a journal payload
+    static byte[] payload(File file) throws IOException {
+        byte[] data = Files.readAllBytes(file.toPath());
+        byte[] payload = new byte[data.length + 1];
+        payload[0] = file.getName().endsWith(".bin") ? JournalFormat.BINARY : JournalFormat.JAVA_SERIALIZED;
+        System.arraycopy(data, 0, payload, 1, data.length);
+        return payload;
+    }
+
+    private static String bucket(int receiptNumber) {
+        return String.format("%04d", receiptNumber / BUCKET_SIZE);
+    }
+}
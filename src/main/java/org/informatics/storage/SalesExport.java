@@ -0,0 +1,308 @@
+package org.informatics.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.informatics.entity.Receipt;
+
+// Columnar export of sold lines for analytics, read back with SalesExportReader.
+// Every receipt line is one row: receipt number, time, cashier id, product id, quantity and price.
+// Rows are grouped into chunks of up to chunkRows; within a chunk every column is stored and compressed
+// on its own, so a reader decodes only the columns it needs, and skips whole chunks by their min/max.
+//   [int magic][byte version]
+//   chunks: per chunk, per column [deflated column bytes]
+//   footer: [int ids] per id [short length][UTF-8 id]
+//           [int chunks] per chunk [int rows] per column
+//             [long offset][int compressed length][int raw length][int CRC32 of raw bytes][long min][long max][byte scale]
+//   [long footer offset][int magic]
+// A column is its values as zigzag varints of the difference to the previous value in the chunk.
+// Values: time is nanoseconds since the epoch (local time read as UTC, as in ReceiptCodec); cashier and
+// product are numbers in the id list, in order of first appearance; price is the unscaled value at the
+// largest scale of the chunk (the column's scale). Conditions on codes only compare numbers, so
+// a product's chunks are skipped by range, which works best when products are sold in runs.
+// The file is written under a temporary name and renamed by close(), so a reader never sees half an export.
+public class SalesExport implements Closeable {
+
+    public static final int DEFAULT_CHUNK_ROWS = 64 * 1024;
+
+    static final int MAGIC = 0x52434331; // "RCC1"
+    static final byte VERSION = 1;
+    static final int TRAILER_SIZE = 12;
+
+    public enum Column {
+        NUMBER, TIME, CASHIER, PRODUCT, QUANTITY, PRICE
+    }
+
+    private final File target;
+    private final File tmp;
+    private final int chunkRows;
+    private final FileOutputStream file;
+    private final DataOutputStream out;
+    private final Deflater deflater = new Deflater();
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> ids = new ArrayList<>();
+    private final List<Chunk> chunks = new ArrayList<>();
+    private final long[][] values = new long[Column.values().length][];
+    private final BigDecimal[] prices;
+    private int rows; // In the current chunk
+    private long totalRows;
+    private long offset;
+    private byte[] compressed = new byte[1 << 16];
+    private boolean closed;
+
+    public SalesExport(File target) throws IOException {
+        this(target, DEFAULT_CHUNK_ROWS);
+    }
+
+    public SalesExport(File target, int chunkRows) throws IOException {
+        if (chunkRows <= 0) {
+            throw new IllegalArgumentException("Chunk rows must be positive: " + chunkRows);
+        }
+        this.target = target;
+        this.tmp = new File(target.getAbsoluteFile().getParentFile(), target.getName() + ".tmp");
+        this.chunkRows = chunkRows;
+        for (int c = 0; c < values.length; c++) {
+            values[c] = new long[chunkRows];
+        }
+        this.prices = new BigDecimal[chunkRows];
+        this.file = new FileOutputStream(tmp);
+        this.out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        offset = 5;
+    }
+
+    record ColumnChunk(long offset, int compressedLength, int rawLength, int checksum, long min, long max, int scale) {
+    }
+
+    record Chunk(int rows, ColumnChunk[] columns) {
+    }
+
+    // Writes receipts as they come, holding one chunk in memory; returns the number of rows
+    public static long export(Stream<Receipt> receipts, File target) throws IOException {
+        SalesExport export = new SalesExport(target);
+        try {
+            receipts.forEach(receipt -> {
+                try {
+                    export.add(receipt);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            export.abort();
+            throw e.getCause();
+        } catch (RuntimeException e) {
+            export.abort();
+            throw e;
+        }
+        export.close();
+        return export.rows();
+    }
+
+    // One row per line of the receipt
+    public synchronized void add(Receipt receipt) throws IOException {
+        if (closed) {
+            throw new IOException("Export is closed: " + target.getAbsolutePath());
+        }
+        long time = nanos(receipt.getTime());
+        long cashier = code(receipt.getCashier().getId());
+        for (Receipt.Line line : receipt.getLines()) {
+            values[Column.NUMBER.ordinal()][rows] = receipt.getNumber();
+            values[Column.TIME.ordinal()][rows] = time;
+            values[Column.CASHIER.ordinal()][rows] = cashier;
+            values[Column.PRODUCT.ordinal()][rows] = code(line.product().getId());
+            values[Column.QUANTITY.ordinal()][rows] = line.quantity();
+            prices[rows] = line.price();
+            if (++rows == chunkRows) {
+                writeChunk();
+            }
+        }
+    }
+
+    public synchronized long rows() {
+        return totalRows + rows;
+    }
+
+    // Writes the last chunk and the footer and puts the file in place
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            if (rows > 0) {
+                writeChunk();
+            }
+            long footerOffset = offset;
+            out.writeInt(ids.size());
+            for (String id : ids) {
+                byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+                out.writeShort(bytes.length);
+                out.write(bytes);
+            }
+            out.writeInt(chunks.size());
+            for (Chunk chunk : chunks) {
+                out.writeInt(chunk.rows());
+                for (ColumnChunk c : chunk.columns()) {
+                    out.writeLong(c.offset());
+                    out.writeInt(c.compressedLength());
+                    out.writeInt(c.rawLength());
+                    out.writeInt(c.checksum());
+                    out.writeLong(c.min());
+                    out.writeLong(c.max());
+                    out.writeByte(c.scale());
+                }
+            }
+            out.writeLong(footerOffset);
+            out.writeInt(MAGIC);
+            out.flush();
+            file.getFD().sync();
+        } catch (IOException | RuntimeException e) {
+            abort();
+            throw e;
+        }
+        closed = true;
+        out.close();
+        deflater.end();
+        Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Local time read as UTC, like ReceiptCodec
+    static long nanos(LocalDateTime time) {
+        return Math.addExact(Math.multiplyExact(time.toEpochSecond(ZoneOffset.UTC), 1_000_000_000L), time.getNano());
+    }
+
+    // Drops the unfinished file
+    private void abort() throws IOException {
+        closed = true;
+        try {
+            out.close();
+        } finally {
+            deflater.end();
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
+
+    private long code(String id) {
+        return codes.computeIfAbsent(id, k -> {
+            if (k.getBytes(StandardCharsets.UTF_8).length > 0xFFFF) {
+                throw new IllegalArgumentException("Id is too long to export: " + k.substring(0, 32) + "...");
+            }
+            ids.add(k);
+            return ids.size() - 1;
+        });
+    }
+
+    private void writeChunk() throws IOException {
+        int scale = 0;
+        for (int r = 0; r < rows; r++) {
+            scale = Math.max(scale, prices[r].scale());
+        }
+        if (scale > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Price scale is too large to export: " + scale);
+        }
+        long[] price = values[Column.PRICE.ordinal()];
+        for (int r = 0; r < rows; r++) {
+            try {
+                price[r] = prices[r].setScale(scale).unscaledValue().longValueExact();
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("Price is too large to export: " + prices[r], e);
+            }
+            prices[r] = null;
+        }
+
+        ColumnChunk[] columns = new ColumnChunk[values.length];
+        ColumnOutput raw = new ColumnOutput(rows * 3);
+        for (int c = 0; c < values.length; c++) {
+            long[] column = values[c];
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            long previous = 0;
+            raw.reset();
+            for (int r = 0; r < rows; r++) {
+                long value = column[r];
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+                raw.writeVarLong(zigzag(value - previous));
+                previous = value;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(raw.buf, 0, raw.size);
+            int length = deflate(raw);
+            out.write(compressed, 0, length);
+            columns[c] = new ColumnChunk(offset, length, raw.size, (int) crc.getValue(), min, max,
+                    c == Column.PRICE.ordinal() ? scale : 0);
+            offset += length;
+        }
+        chunks.add(new Chunk(rows, columns));
+        totalRows += rows;
+        rows = 0;
+    }
+
+    private int deflate(ColumnOutput raw) {
+        deflater.reset();
+        deflater.setInput(raw.buf, 0, raw.size);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        return length;
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    // Growable byte array for one column
+    private static class ColumnOutput {
+        private byte[] buf;
+        private int size;
+
+        ColumnOutput(int capacity) {
+            buf = new byte[Math.max(capacity, 16)];
+        }
+
+        void reset() {
+            size = 0;
+        }
+
+        void writeVarLong(long value) {
+            if (buf.length - size < 10) {
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            }
+            while ((value & ~0x7FL) != 0) {
+                buf[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[size++] = (byte) value;
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package org.informatics.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.informatics.storage.SalesExport.Chunk;
+import org.informatics.storage.SalesExport.Column;
+import org.informatics.storage.SalesExport.ColumnChunk;
+
+// Reads a SalesExport file column by column. open() reads the footer only; scan() reads, inflates and
+// decodes just the columns asked for (plus those its conditions test) of the chunks whose min/max can
+// hold a matching row, and hands over one Batch of matching rows per chunk.
+public class SalesExportReader {
+
+    private final File file;
+    private final List<String> ids;
+    private final Map<String, Integer> codes;
+    private final List<Chunk> chunks;
+    private final long rows;
+
+    private SalesExportReader(File file, List<String> ids, List<Chunk> chunks) {
+        this.file = file;
+        this.ids = ids;
+        this.chunks = chunks;
+        this.codes = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            codes.put(ids.get(i), i);
+        }
+        long total = 0;
+        for (Chunk chunk : chunks) {
+            total += chunk.rows();
+        }
+        this.rows = total;
+    }
+
+    // Rows whose value in the column is in min..max, both included, compared as stored (see SalesExport)
+    public record Condition(Column column, long min, long max) {
+
+        public Condition {
+            if (column == Column.PRICE) {
+                throw new IllegalArgumentException("Prices are stored per chunk scale and can't be compared");
+            }
+        }
+
+        public static Condition numbers(int from, int to) {
+            return new Condition(Column.NUMBER, from, to);
+        }
+
+        public static Condition time(LocalDateTime from, LocalDateTime to) {
+            return new Condition(Column.TIME, SalesExport.nanos(from), SalesExport.nanos(to));
+        }
+
+        public static Condition quantity(int from, int to) {
+            return new Condition(Column.QUANTITY, from, to);
+        }
+
+        boolean overlaps(ColumnChunk chunk) {
+            return chunk.min() <= max && chunk.max() >= min;
+        }
+
+        boolean test(long value) {
+            return value >= min && value <= max;
+        }
+    }
+
+    // What a scan did
+    public record Scan(long rows, int chunksRead, int chunksSkipped) {
+    }
+
+    // Matching rows of one chunk; only the columns the scan asked for can be read
+    public class Batch {
+        private final long[][] values;
+        private final int[] selected;
+        private final int size;
+        private final int scale;
+
+        private Batch(long[][] values, int[] selected, int size, int scale) {
+            this.values = values;
+            this.selected = selected;
+            this.size = size;
+            this.scale = scale;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        // As stored: see SalesExport
+        public long value(Column column, int row) {
+            long[] stored = values[column.ordinal()];
+            if (stored == null) {
+                throw new IllegalStateException("Column " + column + " was not scanned");
+            }
+            return stored[selected[row]];
+        }
+
+        public int number(int row) {
+            return (int) value(Column.NUMBER, row);
+        }
+
+        public LocalDateTime time(int row) {
+            long nanos = value(Column.TIME, row);
+            return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L),
+                    (int) Math.floorMod(nanos, 1_000_000_000L), ZoneOffset.UTC);
+        }
+
+        public String cashierId(int row) {
+            return ids.get((int) value(Column.CASHIER, row));
+        }
+
+        public String productId(int row) {
+            return ids.get((int) value(Column.PRODUCT, row));
+        }
+
+        public int quantity(int row) {
+            return (int) value(Column.QUANTITY, row);
+        }
+
+        public BigDecimal price(int row) {
+            return BigDecimal.valueOf(value(Column.PRICE, row), scale);
+        }
+    }
+
+    public static SalesExportReader open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 5 + SalesExport.TRAILER_SIZE) {
+                throw new IOException("Sales export is truncated: " + file.getName());
+            }
+            ByteBuffer header = read(channel, 0, 5);
+            ByteBuffer trailer = read(channel, size - SalesExport.TRAILER_SIZE, SalesExport.TRAILER_SIZE);
+            long footerOffset = trailer.getLong();
+            if (header.getInt() != SalesExport.MAGIC || trailer.getInt() != SalesExport.MAGIC) {
+                throw new IOException("Not a sales export or not completely written: " + file.getName());
+            }
+            byte version = header.get();
+            if (version != SalesExport.VERSION) {
+                throw new IOException("Unsupported sales export version: " + version);
+            }
+            if (footerOffset < 5 || footerOffset > size - SalesExport.TRAILER_SIZE) {
+                throw new IOException("Sales export footer is damaged: " + file.getName());
+            }
+
+            ByteBuffer footer = read(channel, footerOffset, (int) (size - SalesExport.TRAILER_SIZE - footerOffset));
+            int idCount = footer.getInt();
+            List<String> ids = new ArrayList<>(Math.min(idCount, 1 << 16));
+            for (int i = 0; i < idCount; i++) {
+                byte[] id = new byte[footer.getShort() & 0xFFFF];
+                footer.get(id);
+                ids.add(new String(id, StandardCharsets.UTF_8));
+            }
+            int chunkCount = footer.getInt();
+            List<Chunk> chunks = new ArrayList<>(Math.min(chunkCount, 1 << 16));
+            for (int i = 0; i < chunkCount; i++) {
+                int rows = footer.getInt();
+                ColumnChunk[] columns = new ColumnChunk[Column.values().length];
+                for (int c = 0; c < columns.length; c++) {
+                    columns[c] = new ColumnChunk(footer.getLong(), footer.getInt(), footer.getInt(), footer.getInt(),
+                            footer.getLong(), footer.getLong(), footer.get());
+                    if (columns[c].offset() < 5 || columns[c].offset() + columns[c].compressedLength() > footerOffset) {
+                        throw new IOException("Sales export footer is damaged: " + file.getName());
+                    }
+                }
+                chunks.add(new Chunk(rows, columns));
+            }
+            return new SalesExportReader(file, ids, chunks);
+        } catch (RuntimeException e) {
+            throw new IOException("Sales export footer is damaged: " + file.getName(), e);
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    public int chunks() {
+        return chunks.size();
+    }
+
+    // Smallest and largest value of the column in the chunk, as stored
+    public long min(int chunk, Column column) {
+        return chunks.get(chunk).columns()[column.ordinal()].min();
+    }
+
+    public long max(int chunk, Column column) {
+        return chunks.get(chunk).columns()[column.ordinal()].max();
+    }
+
+    // Rows sold by the cashier, or by no one when the export has no such id
+    public Condition cashier(String id) {
+        return idCondition(Column.CASHIER, id);
+    }
+
+    public Condition product(String id) {
+        return idCondition(Column.PRODUCT, id);
+    }
+
+    // Rows matching every condition, one batch per chunk with a match, in export order
+    public Scan scan(Set<Column> columns, List<Condition> conditions, Consumer<Batch> batches) throws IOException {
+        Set<Column> needed = EnumSet.noneOf(Column.class);
+        needed.addAll(columns);
+        for (Condition condition : conditions) {
+            needed.add(condition.column());
+        }
+        long matched = 0;
+        int read = 0;
+        int skipped = 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            Inflater inflater = new Inflater();
+            try {
+                for (int i = 0; i < chunks.size(); i++) {
+                    Chunk chunk = chunks.get(i);
+                    if (!overlaps(chunk, conditions)) {
+                        skipped++;
+                        continue;
+                    }
+                    read++;
+                    long[][] values = new long[Column.values().length][];
+                    for (Column column : needed) {
+                        values[column.ordinal()] = decode(channel, inflater, i, column);
+                    }
+                    int[] selected = new int[chunk.rows()];
+                    int size = 0;
+                    for (int r = 0; r < chunk.rows(); r++) {
+                        if (matches(values, r, conditions)) {
+                            selected[size++] = r;
+                        }
+                    }
+                    if (size > 0) {
+                        matched += size;
+                        batches.accept(new Batch(values, selected, size, chunk.columns()[Column.PRICE.ordinal()].scale()));
+                    }
+                }
+            } finally {
+                inflater.end();
+            }
+        }
+        return new Scan(matched, read, skipped);
+    }
+
+    private Condition idCondition(Column column, String id) {
+        Integer code = codes.get(id);
+        return code != null ? new Condition(column, code, code) : new Condition(column, 0, -1);
+    }
+
+    private static boolean overlaps(Chunk chunk, List<Condition> conditions) {
+        for (Condition condition : conditions) {
+            if (!condition.overlaps(chunk.columns()[condition.column().ordinal()])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(long[][] values, int row, List<Condition> conditions) {
+        for (Condition condition : conditions) {
+            if (!condition.test(values[condition.column().ordinal()][row])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long[] decode(FileChannel channel, Inflater inflater, int index, Column column) throws IOException {
+        Chunk chunk = chunks.get(index);
+        ColumnChunk c = chunk.columns()[column.ordinal()];
+        String where = column + " of chunk " + index + " of " + file.getName();
+        ByteBuffer compressed = read(channel, c.offset(), c.compressedLength());
+        byte[] raw = new byte[c.rawLength()];
+        inflater.reset();
+        inflater.setInput(compressed);
+        try {
+            int length = 0;
+            while (length < raw.length && !inflater.finished()) {
+                int n = inflater.inflate(raw, length, raw.length - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += n;
+            }
+            if (length != raw.length) {
+                throw new IOException(where + " is damaged");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(where + " is damaged", e);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(raw);
+        if ((int) crc.getValue() != c.checksum()) {
+            throw new IOException(where + " is damaged");
+        }
+
+        long[] values = new long[chunk.rows()];
+        long previous = 0;
+        int pos = 0;
+        for (int r = 0; r < values.length; r++) {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                if (pos == raw.length || shift >= 64) {
+                    throw new IOException(where + " is damaged");
+                }
+                byte b = raw[pos++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            previous += SalesExport.unzigzag(value);
+            values[r] = previous;
+        }
+        return values;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        while (buf.hasRemaining()) {
+            if (channel.read(buf, position + buf.position()) < 0) {
+                throw new IOException("Sales export is truncated");
+            }
+        }
+        return buf.flip();
+    }
+}
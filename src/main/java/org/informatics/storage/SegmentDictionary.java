@@ -0,0 +1,156 @@
+package org.informatics.storage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.informatics.entity.Product;
+
+// Product ids of one journal segment, numbered in the order they were first written to it:
+// journal-NNNNNN.dict next to the segment, a sequence of [short length][UTF-8 id].
+// Records written in ReceiptFormat.DICTIONARY refer to products by these numbers.
+// A new id is forced to disk before the first record that uses it, so every intact record can be
+// resolved; an id cut short by a crash was never used and is dropped.
+// A reader loads the file on the first lookup and again when a record refers past what it loaded
+// (the writer has added ids since). Products resolved through the catalog are kept per number,
+// so all receipts of a segment share them and a line costs no string lookup.
+final class SegmentDictionary implements Closeable {
+
+    private final File file;
+    private final List<String> ids = new ArrayList<>();
+    private long length; // Bytes of complete entries
+    private Product[] products = new Product[0];
+    private ReceiptCatalog resolvedWith;
+
+    // Writer only
+    private final Map<String, Integer> codes = new HashMap<>();
+    private FileChannel channel;
+    private boolean unforced;
+
+    private SegmentDictionary(File file) {
+        this.file = file;
+    }
+
+    // Nothing is read until the first lookup
+    static SegmentDictionary forReading(File dir, int segment) {
+        return new SegmentDictionary(new File(dir, JournalFormat.dictionaryName(segment)));
+    }
+
+    // Continues an existing dictionary, dropping an entry left half-written by a crash
+    static SegmentDictionary forWriting(File dir, int segment) throws IOException {
+        SegmentDictionary dictionary = new SegmentDictionary(new File(dir, JournalFormat.dictionaryName(segment)));
+        dictionary.load();
+        for (int i = 0; i < dictionary.ids.size(); i++) {
+            dictionary.codes.put(dictionary.ids.get(i), i);
+        }
+        dictionary.channel = FileChannel.open(dictionary.file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        dictionary.channel.truncate(dictionary.length);
+        return dictionary;
+    }
+
+    // Number of the id, added to the file if it is new; force() before writing a record that uses it
+    synchronized int code(String id) throws IOException {
+        Integer code = codes.get(id);
+        if (code != null) {
+            return code;
+        }
+        byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IOException("Product id is too long for the dictionary: " + id.length() + " characters");
+        }
+        ByteBuffer entry = ByteBuffer.allocate(2 + bytes.length).putShort((short) bytes.length).put(bytes).flip();
+        try {
+            while (entry.hasRemaining()) {
+                channel.write(entry, length + entry.position());
+            }
+        } catch (IOException e) {
+            channel.truncate(length);
+            throw e;
+        }
+        length += entry.limit();
+        code = ids.size();
+        ids.add(id);
+        codes.put(id, code);
+        unforced = true;
+        return code;
+    }
+
+    synchronized void force() throws IOException {
+        if (unforced) {
+            channel.force(false);
+            unforced = false;
+        }
+    }
+
+    // null if the catalog doesn't know the product
+    synchronized Product product(int code, ReceiptCatalog catalog) throws IOException {
+        String id = id(code);
+        if (catalog != resolvedWith) {
+            products = new Product[0];
+            resolvedWith = catalog;
+        }
+        if (code >= products.length) {
+            products = Arrays.copyOf(products, Math.max(ids.size(), code + 1));
+        }
+        Product product = products[code];
+        if (product == null) {
+            product = catalog.findProduct(id);
+            products[code] = product;
+        }
+        return product;
+    }
+
+    synchronized String id(int code) throws IOException {
+        if (code < 0) {
+            throw new IOException("Invalid product number " + code + " in " + file.getName());
+        }
+        if (code >= ids.size()) {
+            load();
+            if (code >= ids.size()) {
+                throw new IOException("Product number " + code + " is not in " + file.getName());
+            }
+        }
+        return ids.get(code);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            try {
+                force();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    // Reads the entries after the ones already loaded
+    private void load() throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+        byte[] data = Files.readAllBytes(file.toPath());
+        ByteBuffer in = ByteBuffer.wrap(data).position((int) length);
+        while (in.remaining() >= 2) {
+            int size = in.getShort(in.position()) & 0xFFFF;
+            if (in.remaining() < 2 + size) {
+                break;
+            }
+            in.position(in.position() + 2);
+            byte[] bytes = new byte[size];
+            in.get(bytes);
+            ids.add(new String(bytes, StandardCharsets.UTF_8));
+            length = in.position();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.informatics.store;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+// Source of the business date and time for a store.
+// The current date is cached together with the millisecond range it covers, so asking for it
+// is one clock read and a comparison; the zone is only consulted again when the day rolls over.
+// Any java.time.Clock can drive it, including a fixed or simulated one for tests and replays.
+public class BusinessClock {
+
+    private final Clock clock;
+    private volatile Day day;
+
+    public BusinessClock(Clock clock) {
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock cannot be null");
+        }
+        this.clock = clock;
+        this.day = dayAt(clock.millis());
+    }
+
+    // Wall clock in the default time zone
+    public static BusinessClock system() {
+        return new BusinessClock(Clock.systemDefaultZone());
+    }
+
+    // Simulated time that starts at the given moment and runs speed times faster than real time
+    public static BusinessClock accelerated(LocalDateTime start, ZoneId zone, double speed) {
+        return new BusinessClock(new AcceleratedClock(start.atZone(zone).toInstant(), zone, speed));
+    }
+
+    public LocalDate today() {
+        long now = clock.millis();
+        Day current = day;
+        if (now >= current.startMillis() && now < current.endMillis()) {
+            return current.date();
+        }
+        current = dayAt(now);
+        day = current;
+        return current.date();
+    }
+
+    public LocalDateTime now() {
+        return LocalDateTime.now(clock);
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    private Day dayAt(long millis) {
+        ZoneId zone = clock.getZone();
+        LocalDate date = LocalDate.ofInstant(Instant.ofEpochMilli(millis), zone);
+        long start = date.atStartOfDay(zone).toInstant().toEpochMilli();
+        long end = date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        return new Day(date, start, end);
+    }
+
+    // A business day and the epoch milliseconds it covers, end exclusive
+    private record Day(LocalDate date, long startMillis, long endMillis) {
+    }
+
+    private static class AcceleratedClock extends Clock {
+
+        private final Instant start;
+        private final ZoneId zone;
+        private final double speed;
+        private final long startNanos;
+
+        AcceleratedClock(Instant start, ZoneId zone, double speed) {
+            this(start, zone, speed, System.nanoTime());
+        }
+
+        private AcceleratedClock(Instant start, ZoneId zone, double speed, long startNanos) {
+            if (!(speed > 0)) {
+                throw new IllegalArgumentException("Speed must be positive: " + speed);
+            }
+            this.start = start;
+            this.zone = zone;
+            this.speed = speed;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return zone;
+        }
+
+        // Same simulated timeline, seen from another zone
+        @Override
+        public Clock withZone(ZoneId newZone) {
+            return new AcceleratedClock(start, newZone, speed, startNanos);
+        }
+
+        @Override
+        public long millis() {
+            return start.toEpochMilli() + (long) ((System.nanoTime() - startNanos) / 1_000_000.0 * speed);
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package org.informatics.store;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.informatics.entity.Basket;
+import org.informatics.entity.CashDesk;
+import org.informatics.entity.Cashier;
+import org.informatics.entity.Customer;
+import org.informatics.entity.Receipt;
+
+// Runs every open cash desk of a store at the same time.
+// Each desk gets its own virtual thread that serves a queue of customers in order.
+public class DeskRuntime implements AutoCloseable {
+
+    private final Store store;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    public DeskRuntime(Store store) {
+        this.store = store;
+    }
+
+    // Start a session for every desk that has a cashier and no session yet; returns how many were started
+    public int open() {
+        int started = 0;
+        for (CashDesk desk : store.listCashDesks()) {
+            Cashier cashier = desk.getCurrentCashier();
+            if (cashier == null || sessions.containsKey(desk.getId())) {
+                continue;
+            }
+            Session session = new Session(desk.getId(), cashier);
+            sessions.put(desk.getId(), session);
+            session.start();
+            started++;
+        }
+        return started;
+    }
+
+    // Queue a customer at a desk; the future completes when the basket has been checked out
+    public CompletableFuture<Receipt> submit(String deskId, Customer customer, Basket basket) {
+        Session session = sessions.get(deskId);
+        if (session == null) {
+            throw new IllegalArgumentException("No open session for desk " + deskId);
+        }
+        return session.enqueue(customer, basket);
+    }
+
+    public List<DeskStats> report() {
+        List<DeskStats> stats = new ArrayList<>();
+        for (Session session : sessions.values()) {
+            stats.add(session.stats());
+        }
+        stats.sort((a, b) -> a.deskId().compareTo(b.deskId()));
+        return stats;
+    }
+
+    // Serve everyone already queued, then stop all desk threads
+    @Override
+    public void close() {
+        for (Session session : sessions.values()) {
+            session.stop();
+        }
+        try {
+            for (Session session : sessions.values()) {
+                session.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Served and failed checkouts, throughput in customers per second and latency from queueing to receipt
+    public record DeskStats(String deskId, long served, long failed, double throughputPerSecond,
+                            double averageLatencyMillis, double maxLatencyMillis) {
+    }
+
+    private record Order(Customer customer, Basket basket, long queuedAt, CompletableFuture<Receipt> result) {
+    }
+
+    private class Session {
+
+        private final Order stopSignal = new Order(null, null, 0, null);
+        private final String deskId;
+        private final Cashier cashier;
+        private final BlockingQueue<Order> queue = new LinkedBlockingQueue<>();
+        private final AtomicLong served = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong totalLatency = new AtomicLong();
+        private final AtomicLong maxLatency = new AtomicLong();
+        private volatile long startedAt;
+        private volatile long stoppedAt;
+        private volatile boolean stopping;
+        private Thread thread;
+
+        Session(String deskId, Cashier cashier) {
+            this.deskId = deskId;
+            this.cashier = cashier;
+        }
+
+        void start() {
+            startedAt = System.nanoTime();
+            thread = Thread.ofVirtual().name("desk-" + deskId).start(this::serve);
+        }
+
+        // Synchronized with stop() so nothing can be queued behind the stop signal
+        synchronized CompletableFuture<Receipt> enqueue(Customer customer, Basket basket) {
+            if (stopping) {
+                throw new IllegalStateException("Desk " + deskId + " is closing");
+            }
+            CompletableFuture<Receipt> result = new CompletableFuture<>();
+            queue.add(new Order(customer, basket, System.nanoTime(), result));
+            return result;
+        }
+
+        synchronized void stop() {
+            if (stopping) {
+                return;
+            }
+            stopping = true;
+            queue.add(stopSignal);
+        }
+
+        void join() throws InterruptedException {
+            thread.join();
+        }
+
+        private void serve() {
+            try {
+                while (true) {
+                    Order order = queue.take();
+                    if (order == stopSignal) {
+                        break;
+                    }
+                    try {
+                        Receipt receipt = store.checkout(cashier, order.basket(), order.customer());
+                        served.incrementAndGet();
+                        order.result().complete(receipt);
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                        order.result().completeExceptionally(e);
+                    }
+                    long latency = System.nanoTime() - order.queuedAt();
+                    totalLatency.addAndGet(latency);
+                    maxLatency.accumulateAndGet(latency, Math::max);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                stoppedAt = System.nanoTime();
+            }
+        }
+
+        DeskStats stats() {
+            long end = stoppedAt != 0 ? stoppedAt : System.nanoTime();
+            double seconds = Math.max(end - startedAt, 1) / 1e9;
+            long servedCount = served.get();
+            long handled = servedCount + failed.get();
+            double averageLatency = handled == 0 ? 0 : totalLatency.get() / 1e6 / handled;
+            return new DeskStats(deskId, servedCount, failed.get(), servedCount / seconds,
+                    averageLatency, maxLatency.get() / 1e6);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.informatics.store;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.informatics.config.StoreConfig;
+import org.informatics.entity.Product;
+
+// Sale prices of the current business day, so a sale looks its price up instead of recomputing it.
+// Prices only depend on the product, the config and the date, so they stay valid for the whole day.
+// A new day or a config change starts an empty table that is filled again as products are sold.
+public class PriceTable {
+
+    private volatile Day current;
+
+    public PriceTable(StoreConfig cfg, LocalDate today) {
+        this.current = new Day(cfg, today);
+    }
+
+    public BigDecimal price(Product p, LocalDate today) {
+        return dayFor(today).price(p);
+    }
+
+    // Price a product ahead of its first sale, e.g. when it is added to the store
+    public void precompute(Product p, LocalDate today) {
+        dayFor(today).price(p);
+    }
+
+    // Prices computed with the old config are dropped together with the old table
+    public synchronized void updateConfig(StoreConfig cfg) {
+        current = new Day(cfg, current.date);
+    }
+
+    public StoreConfig getConfig() {
+        return current.cfg;
+    }
+
+    // Number of products priced for the current day
+    public int size() {
+        return current.prices.size();
+    }
+
+    private Day dayFor(LocalDate today) {
+        Day day = current;
+        if (day.date.equals(today)) {
+            return day;
+        }
+        return rollOver(today);
+    }
+
+    private synchronized Day rollOver(LocalDate today) {
+        Day day = current;
+        if (!day.date.equals(today)) {
+            day = new Day(day.cfg, today);
+            current = day;
+        }
+        return day;
+    }
+
+    // A table never changes config or date, so every price in it is consistent
+    private static class Day {
+        private final StoreConfig cfg;
+        private final LocalDate date;
+        private final Map<String, BigDecimal> prices = new ConcurrentHashMap<>();
+
+        Day(StoreConfig cfg, LocalDate date) {
+            this.cfg = cfg;
+            this.date = date;
+        }
+
+        BigDecimal price(Product p) {
+            BigDecimal price = prices.get(p.getId());
+            if (price == null) {
+                price = prices.computeIfAbsent(p.getId(), id -> p.salePrice(cfg, date));
+            }
+            return price;
+        }
+    }
+}
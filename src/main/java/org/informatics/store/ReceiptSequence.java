@@ -0,0 +1,123 @@
+package org.informatics.store;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Hands out receipt numbers for one store.
+// Every desk takes a block of numbers at a time and numbers from its own block,
+// so desks don't compete for a shared counter. Numbers only grow within a desk
+// and are never reused; the unused rest of a block is simply skipped.
+public class ReceiptSequence {
+
+    public static final int DEFAULT_BLOCK_SIZE = 100;
+
+    private final int blockSize;
+    private final File stateFile; // null when the sequence is not persisted
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+    private int nextFree; // First number not yet given to any desk
+
+    // In-memory sequence starting at 1
+    public ReceiptSequence() {
+        this.blockSize = DEFAULT_BLOCK_SIZE;
+        this.stateFile = null;
+        this.nextFree = 1;
+    }
+
+    // Persistent sequence that continues after the last block handed out before a restart
+    public ReceiptSequence(File stateFile, int blockSize) throws IOException {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.blockSize = blockSize;
+        this.stateFile = stateFile;
+        this.nextFree = stateFile.exists() ? load(stateFile) : 1;
+    }
+
+    public int next(String deskId) {
+        return blocks.computeIfAbsent(deskId, id -> new Block()).next();
+    }
+
+    // No number below next is handed out from now on, e.g. after numbers found in a journal.
+    // Blocks the desks already hold are dropped, so call it before the first sale.
+    public synchronized void skipTo(int next) {
+        if (next <= nextFree) {
+            return;
+        }
+        if (stateFile != null) {
+            try {
+                save(next);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to save receipt sequence state: " + stateFile.getAbsolutePath(), e);
+            }
+        }
+        nextFree = next;
+        blocks.clear();
+    }
+
+    // First number that has not been handed out to any desk yet
+    public synchronized int peekNextFree() {
+        return nextFree;
+    }
+
+    // The new limit is saved before the block is used, so a restart can never hand out the same numbers again
+    private synchronized int reserveBlock() {
+        int start = nextFree;
+        int end = Math.addExact(start, blockSize);
+        if (stateFile != null) {
+            try {
+                save(end);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to save receipt sequence state: " + stateFile.getAbsolutePath(), e);
+            }
+        }
+        nextFree = end;
+        return start;
+    }
+
+    private void save(int value) throws IOException {
+        File dir = stateFile.getAbsoluteFile().getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Unable to create directory: " + dir.getAbsolutePath());
+        }
+        File tmp = new File(dir, stateFile.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(Integer.toString(value).getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync(); // On disk before it replaces the old state, so a crash can't leave an empty file
+        }
+        Files.move(tmp.toPath(), stateFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int load(File stateFile) throws IOException {
+        String text = Files.readString(stateFile.toPath(), StandardCharsets.UTF_8).trim();
+        try {
+            int value = Integer.parseInt(text);
+            if (value > 0) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IOException("Unreadable receipt sequence state \"" + text + "\": " + stateFile.getAbsolutePath());
+    }
+
+    // Numbers still available to one desk; only that desk's thread normally touches it
+    private class Block {
+        private int next;
+        private int end;
+
+        synchronized int next() {
+            if (next == end) {
+                next = reserveBlock();
+                end = next + blockSize;
+            }
+            return next++;
+        }
+    }
+}
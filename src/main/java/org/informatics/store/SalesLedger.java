@@ -0,0 +1,88 @@
+package org.informatics.store;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Running sales totals, updated when a sale is committed so reports never walk the receipts.
+// Every desk adds to its own totals, so desks selling at the same time don't contend;
+// reading a total only sums one entry per desk.
+public class SalesLedger {
+
+    private final Map<String, DeskTotals> desks = new ConcurrentHashMap<>();
+
+    public void recordSale(String deskId, BigDecimal revenue, BigDecimal cost) {
+        totalsFor(deskId).addSale(revenue, cost);
+    }
+
+    public void recordReceipt(String deskId) {
+        totalsFor(deskId).addReceipt();
+    }
+
+    // Replaces all totals, e.g. with the ones of a snapshot; they are booked to one desk
+    public void restore(String deskId, BigDecimal turnover, BigDecimal cost, int receipts) {
+        desks.clear();
+        totalsFor(deskId).set(turnover, cost, receipts);
+    }
+
+    public BigDecimal turnover() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (DeskTotals totals : desks.values()) {
+            total = total.add(totals.turnover());
+        }
+        return total;
+    }
+
+    public BigDecimal costOfSoldGoods() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (DeskTotals totals : desks.values()) {
+            total = total.add(totals.cost());
+        }
+        return total;
+    }
+
+    public int receiptCount() {
+        int count = 0;
+        for (DeskTotals totals : desks.values()) {
+            count += totals.receipts();
+        }
+        return count;
+    }
+
+    private DeskTotals totalsFor(String deskId) {
+        return desks.computeIfAbsent(deskId, id -> new DeskTotals());
+    }
+
+    private static class DeskTotals {
+        private BigDecimal turnover = BigDecimal.ZERO;
+        private BigDecimal cost = BigDecimal.ZERO;
+        private int receipts;
+
+        synchronized void addSale(BigDecimal revenue, BigDecimal saleCost) {
+            turnover = turnover.add(revenue);
+            cost = cost.add(saleCost);
+        }
+
+        synchronized void set(BigDecimal newTurnover, BigDecimal newCost, int newReceipts) {
+            turnover = newTurnover;
+            cost = newCost;
+            receipts = newReceipts;
+        }
+
+        synchronized void addReceipt() {
+            receipts++;
+        }
+
+        synchronized BigDecimal turnover() {
+            return turnover;
+        }
+
+        synchronized BigDecimal cost() {
+            return cost;
+        }
+
+        synchronized int receipts() {
+            return receipts;
+        }
+    }
+}
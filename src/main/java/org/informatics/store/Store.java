@@ -3,12 +3,17 @@ package org.informatics.store;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.informatics.config.StoreConfig;
+import org.informatics.entity.Basket;
 import org.informatics.entity.CashDesk;
 import org.informatics.entity.Cashier;
 import org.informatics.entity.Customer;
@@ -19,28 +24,66 @@ import org.informatics.exception.InsufficientBudgetException;
 import org.informatics.exception.InsufficientQuantityException;
 import org.informatics.exception.ProductExpiredException;
 import org.informatics.exception.ProductNotFoundException;
+import org.informatics.storage.ReceiptCatalog;
+
+// Thread-safe: many cash desks can sell against one store at the same time.
+// Stock is reserved with a lock-free compare-and-set on each product, so sales
+// never block each other and a product can't be oversold.
+// The store is also the catalog binary receipts are read back against.
+public class Store implements ReceiptCatalog {
+
+    private static final String UNASSIGNED_DESK = "-"; // Ledger entry for lines added after the cashier left the desk
+    private static final String RECOVERED_DESK = "recovered"; // Ledger entry for sales restored after a restart
+
+    private final PriceTable priceTable;                                   // Today's sale prices, holds the current config
+    private final Map<String, Product> inventory = new ConcurrentHashMap<>();
+    private final List<Receipt> receipts = Collections.synchronizedList(new ArrayList<>());
+    private final List<Cashier> cashiers = new CopyOnWriteArrayList<>();
+    private final List<CashDesk> cashDesks = new CopyOnWriteArrayList<>();
+    // Lookup indexes so desk checks on every sale don't scan the lists.
+    // deskByCashierId follows assignments made through the store; one made on a CashDesk directly
+    // is found by scanning the desks on a miss, and indexed from then on.
+    private final Map<String, Cashier> cashiersById = new ConcurrentHashMap<>();
+    private final Map<String, CashDesk> desksById = new ConcurrentHashMap<>();
+    private final Map<String, CashDesk> deskByCashierId = new ConcurrentHashMap<>();
+    private final Map<String, Integer> soldItems = new ConcurrentHashMap<>(); // Track quantities sold by product ID
+    private final Map<String, Integer> suppliedItems = new ConcurrentHashMap<>(); // Quantities ever supplied, for snapshots
+    private final Object supplyLock = new Object(); // Keeps products, supplied quantities and their cost consistent
+    private final AtomicReference<BigDecimal> totalCostOfAllGoodsSupplied =
+            new AtomicReference<>(BigDecimal.ZERO);                        // Total inventory investment
+    private final AtomicReference<BigDecimal> salaryExpenses =
+            new AtomicReference<>(BigDecimal.ZERO);                        // Monthly salaries of all cashiers
+    private final SalesLedger ledger = new SalesLedger();                  // Turnover, cost of sold goods, receipt count
+    private final ReceiptSequence receiptSequence;
+    private final BusinessClock clock;                                     // Business date for expiry, prices and receipts
 
-public class Store {
+    public Store(StoreConfig cfg) {
+        this(cfg, new ReceiptSequence());
+    }
 
-    private final StoreConfig cfg;
-    private final Map<String, Product> inventory = new HashMap<>();
-    private final List<Receipt> receipts = new ArrayList<>();
-    private final List<Cashier> cashiers = new ArrayList<>();
-    private final List<CashDesk> cashDesks = new ArrayList<>();
-    private final Map<String, Integer> soldItems = new HashMap<>(); // Track quantities sold by product ID
-    private BigDecimal costOfSoldGoods = BigDecimal.ZERO;           // Purchase price of sold items
-    private BigDecimal totalCostOfAllGoodsSupplied = BigDecimal.ZERO; // Total inventory investment
+    public Store(StoreConfig cfg, ReceiptSequence receiptSequence) {
+        this(cfg, receiptSequence, BusinessClock.system());
+    }
 
-    public Store(StoreConfig cfg) {
-        this.cfg = cfg;
+    public Store(StoreConfig cfg, ReceiptSequence receiptSequence, BusinessClock clock) {
+        this.clock = clock;
+        this.priceTable = new PriceTable(cfg, clock.today());
+        this.receiptSequence = receiptSequence;
     }
 
     public void addCashier(Cashier c) {
         cashiers.add(c);
+        cashiersById.putIfAbsent(c.getId(), c);
+        salaryExpenses.accumulateAndGet(c.getMonthlySalary(), BigDecimal::add);
     }
 
     public void addCashDesk(CashDesk desk) {
         cashDesks.add(desk);
+        desksById.putIfAbsent(desk.getId(), desk);
+        Cashier current = desk.getCurrentCashier();
+        if (current != null) {
+            deskByCashierId.putIfAbsent(current.getId(), desk);
+        }
     }
 
     public List<CashDesk> listCashDesks() {
@@ -48,24 +91,23 @@ public class Store {
     }
 
     public Optional<CashDesk> findCashDeskById(String deskId) {
-        return cashDesks.stream().filter(d -> d.getId().equals(deskId)).findFirst();
+        return Optional.ofNullable(desksById.get(deskId));
     }
 
     public Optional<Cashier> findCashierById(String cashierId) {
-        return cashiers.stream().filter(c -> c.getId().equals(cashierId)).findFirst();
+        return Optional.ofNullable(cashiersById.get(cashierId));
     }
 
-    public void assignCashierToDesk(String cashierId, String deskId) throws Exception {
+    public synchronized void assignCashierToDesk(String cashierId, String deskId) throws Exception {
         Cashier cashier = findCashierById(cashierId)
                 .orElseThrow(() -> new Exception("Cashier with ID " + cashierId + " not found."));
         CashDesk desk = findCashDeskById(deskId)
                 .orElseThrow(() -> new Exception("CashDesk with ID " + deskId + " not found."));
 
         // Check if cashier is already assigned to a different desk
-        for (CashDesk d : cashDesks) {
-            if (d.getCurrentCashier() != null && d.getCurrentCashier().getId().equals(cashierId) && !d.getId().equals(deskId)) {
-                throw new Exception("Cashier " + cashierId + " is already assigned to desk " + d.getId());
-            }
+        Optional<CashDesk> current = getAssignedDeskForCashier(cashierId);
+        if (current.isPresent() && current.get() != desk) {
+            throw new Exception("Cashier " + cashierId + " is already assigned to desk " + current.get().getId());
         }
         // Check if target desk is occupied by a different cashier
         if (desk.isOccupied() && !desk.getCurrentCashier().getId().equals(cashierId)) {
@@ -73,42 +115,59 @@ public class Store {
         }
 
         // Release cashier from current desk before reassigning
-        cashDesks.stream()
-                .filter(d -> d.getCurrentCashier() != null && d.getCurrentCashier().getId().equals(cashierId))
-                .findFirst()
-                .ifPresent(CashDesk::releaseCashier);
+        current.ifPresent(CashDesk::releaseCashier);
 
         try {
             desk.assignCashier(cashier);
+            deskByCashierId.put(cashierId, desk);
             System.out.println("Cashier " + cashier.getName() + " assigned to desk " + desk.getId());
         } catch (CashDeskOccupiedException e) {
             throw new Exception(e.getMessage());
         }
     }
 
-    public void releaseCashierFromDesk(String deskId) throws Exception {
+    public synchronized void releaseCashierFromDesk(String deskId) throws Exception {
         CashDesk desk = findCashDeskById(deskId)
                 .orElseThrow(() -> new Exception("CashDesk with ID " + deskId + " not found."));
-        if (!desk.isOccupied()) {
+        Cashier current = desk.getCurrentCashier();
+        if (current == null) {
             return;
         }
+        deskByCashierId.remove(current.getId(), desk);
         desk.releaseCashier();
     }
 
     public Optional<CashDesk> getAssignedDeskForCashier(String cashierId) {
-        return cashDesks.stream()
-                .filter(desk -> desk.isOccupied() && desk.getCurrentCashier().getId().equals(cashierId))
-                .findFirst();
+        CashDesk desk = deskByCashierId.get(cashierId);
+        if (desk != null && isAt(desk, cashierId)) {
+            return Optional.of(desk);
+        }
+        // Not indexed, or the desk was released or reassigned directly, without going through the store
+        for (CashDesk candidate : cashDesks) {
+            if (isAt(candidate, cashierId)) {
+                deskByCashierId.put(cashierId, candidate);
+                return Optional.of(candidate);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static boolean isAt(CashDesk desk, String cashierId) {
+        Cashier current = desk.getCurrentCashier();
+        return current != null && current.getId().equals(cashierId);
     }
 
     public boolean addProduct(Product p) {
-        if (inventory.containsKey(p.getId())) {
-            return false;
+        synchronized (supplyLock) {
+            if (inventory.putIfAbsent(p.getId(), p) != null) {
+                return false;
+            }
+            suppliedItems.put(p.getId(), p.getQuantity());
+            // Track total investment in inventory
+            totalCostOfAllGoodsSupplied.accumulateAndGet(
+                    p.getPurchasePrice().multiply(BigDecimal.valueOf(p.getQuantity())), BigDecimal::add);
         }
-        inventory.put(p.getId(), p);
-        // Track total investment in inventory
-        totalCostOfAllGoodsSupplied = totalCostOfAllGoodsSupplied.add(
-                p.getPurchasePrice().multiply(BigDecimal.valueOf(p.getQuantity())));
+        priceTable.precompute(p, clock.today());
         return true;
     }
 
@@ -123,25 +182,99 @@ public class Store {
             return false; // Product doesn't exist
         }
         
-        existing.addQuantity(additionalQuantity);
-        
-        // Update total cost of goods supplied
-        totalCostOfAllGoodsSupplied = totalCostOfAllGoodsSupplied.add(
-                existing.getPurchasePrice().multiply(BigDecimal.valueOf(additionalQuantity)));
+        synchronized (supplyLock) {
+            existing.addQuantity(additionalQuantity);
+            suppliedItems.merge(productId, additionalQuantity, Integer::sum);
+
+            // Update total cost of goods supplied
+            totalCostOfAllGoodsSupplied.accumulateAndGet(
+                    existing.getPurchasePrice().multiply(BigDecimal.valueOf(additionalQuantity)), BigDecimal::add);
+        }
         
         return true;
     }
 
+    ReceiptSequence getReceiptSequence() {
+        return receiptSequence;
+    }
+
+    // Supply side of a snapshot; sales are taken from the receipt journal instead (see StoreSnapshotter)
+    public StoreSnapshot.Supply captureSupply() {
+        synchronized (supplyLock) {
+            return new StoreSnapshot.Supply(new ArrayList<>(inventory.values()), new HashMap<>(suppliedItems));
+        }
+    }
+
+    // Brings a freshly set-up store back to a snapshot, before it sells anything.
+    // Products the store doesn't have yet are added; for the others the snapshot's supplied quantity wins.
+    // Stock is supplied minus sold; sales totals and receipt count come from the snapshot.
+    public void restore(StoreSnapshot snapshot) {
+        Map<String, Integer> sold = snapshot.sales().sold();
+        synchronized (supplyLock) {
+            for (Product p : snapshot.supply().products()) {
+                if (inventory.putIfAbsent(p.getId(), p) == null) {
+                    priceTable.precompute(p, clock.today());
+                }
+            }
+            suppliedItems.putAll(snapshot.supply().supplied());
+            BigDecimal suppliedCost = BigDecimal.ZERO;
+            for (Product p : inventory.values()) {
+                int supplied = suppliedItems.getOrDefault(p.getId(), 0);
+                int stock = Math.max(0, supplied - sold.getOrDefault(p.getId(), 0));
+                p.addQuantity(stock - p.getQuantity());
+                suppliedCost = suppliedCost.add(p.getPurchasePrice().multiply(BigDecimal.valueOf(supplied)));
+            }
+            totalCostOfAllGoodsSupplied.set(suppliedCost);
+        }
+        soldItems.clear();
+        soldItems.putAll(sold);
+        ledger.restore(RECOVERED_DESK, snapshot.sales().turnover(), snapshot.sales().costOfSoldGoods(),
+                snapshot.sales().receiptCount());
+    }
+
+    // Applies a receipt read back from the journal after the snapshot: stock, sold quantities and totals
+    // change as they did when it was sold. Lines for products the store doesn't know are skipped.
+    public void replay(Receipt receipt) {
+        for (Receipt.Line line : receipt.getLines()) {
+            Product p = inventory.get(line.product().getId());
+            if (p == null) {
+                System.out.println("Warning: Receipt #" + receipt.getNumber() + " sold unknown product "
+                        + line.product().getId() + ", line skipped");
+                continue;
+            }
+            if (!p.tryDecrement(line.quantity())) {
+                System.out.println("Warning: Receipt #" + receipt.getNumber() + " sold more " + p.getId()
+                        + " than is in stock, stock set to 0");
+                p.addQuantity(-p.getQuantity());
+            }
+            recordSale(RECOVERED_DESK, p, line.quantity(), line.price());
+        }
+        ledger.recordReceipt(RECOVERED_DESK);
+    }
+
     public Product find(String id) {
         return inventory.get(id);
     }
 
+    @Override
+    public Product findProduct(String productId) {
+        return inventory.get(productId);
+    }
+
+    @Override
+    public Cashier findCashier(String cashierId) {
+        return cashiersById.get(cashierId);
+    }
+
     public List<Product> listProducts() {
         return new ArrayList<>(inventory.values());
     }
 
+    // Receipts issued since the store was set up; recovery restores totals only (StoreSnapshotter)
     public List<Receipt> listReceipts() {
-        return new ArrayList<>(receipts);
+        synchronized (receipts) {
+            return new ArrayList<>(receipts);
+        }
     }
 
     public List<Cashier> listCashiers() {
@@ -152,31 +285,41 @@ public class Store {
     public Receipt sell(Cashier cashier, String productId, int qty, Customer cust)
             throws ProductNotFoundException, ProductExpiredException, InsufficientQuantityException, InsufficientBudgetException {
 
-        if (getAssignedDeskForCashier(cashier.getId()).isEmpty()) {
-            throw new IllegalStateException("Cashier " + cashier.getName() + " is not assigned to an open cash desk.");
-        }
+        CashDesk desk = requireAssignedDesk(cashier);
+        // Numbered before anything is taken or charged: a failing sequence must not leave a sale without a receipt
+        int number = receiptSequence.next(desk.getId());
 
         // Use common sale logic
-        BigDecimal price = processSaleItem(productId, qty, cust);
+        BigDecimal price = processSaleItem(desk.getId(), productId, qty, cust);
         
-        Receipt r = new Receipt(cashier);
+        Receipt r = openReceipt(number, cashier, desk);
         r.add(inventory.get(productId), qty, price);
-        receipts.add(r);
+        r.seal();
         return r;
     }
 
     public Receipt addToReceipt(Receipt receipt, String productId, int qty, Customer cust)
             throws ProductNotFoundException, ProductExpiredException, InsufficientQuantityException, InsufficientBudgetException {
 
+        // Check before anything is charged or taken off the shelf
+        if (receipt.isSealed()) {
+            throw new IllegalStateException("Receipt #" + receipt.getNumber() + " is sealed and cannot be changed");
+        }
+
+        // Sales are booked to the desk the receipt's cashier currently works at
+        String deskId = getAssignedDeskForCashier(receipt.getCashier().getId())
+                .map(CashDesk::getId)
+                .orElse(UNASSIGNED_DESK);
+
         // Use common sale logic
-        BigDecimal price = processSaleItem(productId, qty, cust);
+        BigDecimal price = processSaleItem(deskId, productId, qty, cust);
         
         receipt.add(inventory.get(productId), qty, price);
         return receipt;
     }
 
     // Common sale logic
-    private BigDecimal processSaleItem(String productId, int qty, Customer cust)
+    private BigDecimal processSaleItem(String deskId, String productId, int qty, Customer cust)
             throws ProductNotFoundException, ProductExpiredException, InsufficientQuantityException, InsufficientBudgetException {
         
         if (qty <= 0) {
@@ -187,45 +330,133 @@ public class Store {
         if (p == null) {
             throw new ProductNotFoundException(productId);
         }
-        if (p.isExpired(LocalDate.now())) {
+
+        LocalDate today = clock.today();
+        if (p.isExpired(today)) {
             throw new ProductExpiredException(productId);
         }
-        if (p.getQuantity() < qty) {
+        BigDecimal price = priceTable.price(p, today);
+
+        // Reserve the goods first, give them back if the payment fails for any reason
+        if (!p.tryDecrement(qty)) {
             throw new InsufficientQuantityException(productId, qty, p.getQuantity());
         }
-        
-        BigDecimal price = p.salePrice(cfg, LocalDate.now());
-        BigDecimal totalPrice = price.multiply(BigDecimal.valueOf(qty));
-        cust.pay(totalPrice);
-        p.addQuantity(-qty);
-        
-        // Track sold quantities for reporting
-        soldItems.merge(productId, qty, Integer::sum);
-        
-        // Add to cost of sold goods
-        costOfSoldGoods = costOfSoldGoods.add(
-                p.getPurchasePrice().multiply(BigDecimal.valueOf(qty)));
-        
+        boolean paid = false;
+        try {
+            cust.pay(price.multiply(BigDecimal.valueOf(qty)));
+            paid = true;
+        } finally {
+            if (!paid) {
+                p.addQuantity(qty);
+            }
+        }
+
+        recordSale(deskId, p, qty, price);
         return price;
     }
 
-    public Receipt createReceipt(Cashier cashier) {
-        if (getAssignedDeskForCashier(cashier.getId()).isEmpty()) {
-            throw new IllegalStateException("Cashier " + cashier.getName() + " is not assigned to an open cash desk.");
+    // Sell a whole basket as one receipt: either every line is sold or nothing is
+    public Receipt checkout(Cashier cashier, Basket basket, Customer cust)
+            throws ProductNotFoundException, ProductExpiredException, InsufficientQuantityException, InsufficientBudgetException {
+
+        CashDesk desk = requireAssignedDesk(cashier);
+        if (basket.isEmpty()) {
+            throw new IllegalArgumentException("Basket is empty");
+        }
+
+        Map<String, Integer> items = basket.getItems();
+        List<Product> products = new ArrayList<>(items.size());
+        for (String productId : items.keySet()) {
+            Product p = inventory.get(productId);
+            if (p == null) {
+                throw new ProductNotFoundException(productId);
+            }
+            products.add(p);
         }
 
-        Receipt r = new Receipt(cashier);
+        // Price every line before touching the stock, all with the same business date
+        LocalDate today = clock.today();
+        List<BigDecimal> prices = new ArrayList<>(items.size());
+        BigDecimal total = BigDecimal.ZERO;
+        for (Product p : products) {
+            if (p.isExpired(today)) {
+                throw new ProductExpiredException(p.getId());
+            }
+            BigDecimal price = priceTable.price(p, today);
+            prices.add(price);
+            total = total.add(price.multiply(BigDecimal.valueOf(items.get(p.getId()))));
+        }
+
+        // Numbered before anything is taken or charged: a failing sequence must not leave a sale without a receipt
+        int number = receiptSequence.next(desk.getId());
+
+        // Reserve every line, then charge once for the whole basket.
+        // If anything fails, the lines reserved so far go back on the shelf.
+        int reserved = 0;
+        boolean paid = false;
+        try {
+            for (Product p : products) {
+                int qty = items.get(p.getId());
+                if (!p.tryDecrement(qty)) {
+                    throw new InsufficientQuantityException(p.getId(), qty, p.getQuantity());
+                }
+                reserved++;
+            }
+            cust.pay(total);
+            paid = true;
+        } finally {
+            if (!paid) {
+                for (int i = 0; i < reserved; i++) {
+                    Product p = products.get(i);
+                    p.addQuantity(items.get(p.getId()));
+                }
+            }
+        }
+
+        Receipt r = openReceipt(number, cashier, desk);
+        for (int i = 0; i < products.size(); i++) {
+            Product p = products.get(i);
+            int qty = items.get(p.getId());
+            r.add(p, qty, prices.get(i));
+            recordSale(desk.getId(), p, qty, prices.get(i));
+        }
+        r.seal();
+        return r;
+    }
+
+    private void recordSale(String deskId, Product p, int qty, BigDecimal price) {
+        // Track sold quantities for reporting
+        soldItems.merge(p.getId(), qty, Integer::sum);
+
+        // Add revenue and cost of sold goods to the desk's running totals
+        BigDecimal quantity = BigDecimal.valueOf(qty);
+        ledger.recordSale(deskId, price.multiply(quantity), p.getPurchasePrice().multiply(quantity));
+    }
+
+    public Receipt createReceipt(Cashier cashier) {
+        CashDesk desk = requireAssignedDesk(cashier);
+
+        return openReceipt(receiptSequence.next(desk.getId()), cashier, desk);
+    }
+
+    private CashDesk requireAssignedDesk(Cashier cashier) {
+        return getAssignedDeskForCashier(cashier.getId())
+                .orElseThrow(() -> new IllegalStateException(
+                        "Cashier " + cashier.getName() + " is not assigned to an open cash desk."));
+    }
+
+    // Number comes from the desk's own block of this store's sequence; a sale that fails after
+    // taking one leaves a gap in the numbering
+    private Receipt openReceipt(int number, Cashier cashier, CashDesk desk) {
+        Receipt r = new Receipt(number, cashier, clock.now());
         receipts.add(r);
+        ledger.recordReceipt(desk.getId());
         return r;
     }
 
     // Total revenue from all sales
     public BigDecimal turnover() {
-        BigDecimal total = BigDecimal.ZERO;
-        for (Receipt receipt : receipts) {
-            total = total.add(receipt.total());
-        }
-        return total;
+        return ledger.turnover();
     }
 
     public Map<String, Integer> getSoldItems() {
@@ -234,31 +465,39 @@ public class Store {
 
     // Total monthly salaries
     public BigDecimal salaryExpenses() {
-        BigDecimal total = BigDecimal.ZERO;
-        for (Cashier cashier : cashiers) {
-            total = total.add(cashier.getMonthlySalary());
-        }
-        return total;
+        return salaryExpenses.get();
     }
 
     public BigDecimal costOfSoldGoods() {
-        return costOfSoldGoods;
+        return ledger.costOfSoldGoods();
     }
 
     public BigDecimal getTotalCostOfAllGoodsSupplied() {
-        return totalCostOfAllGoodsSupplied;
+        return totalCostOfAllGoodsSupplied.get();
     }
 
     // Store profit: Revenue - Salary - Cost of Goods
     public BigDecimal profit() {
-        return turnover().subtract(salaryExpenses()).subtract(costOfSoldGoods);
+        return turnover().subtract(salaryExpenses()).subtract(costOfSoldGoods());
     }
 
     public int getReceiptCount() {
-        return Receipt.getReceiptCount();
+        return ledger.receiptCount();
+    }
+
+    public BusinessClock getClock() {
+        return clock;
     }
 
     public StoreConfig getConfig() {
-        return cfg;
+        return priceTable.getConfig();
+    }
+
+    // New markups and discounts apply from the next sale on
+    public void updateConfig(StoreConfig cfg) {
+        if (cfg == null) {
+            throw new IllegalArgumentException("Config cannot be null");
+        }
+        priceTable.updateConfig(cfg);
     }
 }
@@ -0,0 +1,143 @@
+package org.informatics.store;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.informatics.entity.FoodProduct;
+import org.informatics.entity.NonFoodProduct;
+import org.informatics.entity.Product;
+import org.informatics.storage.JournalPosition;
+import org.informatics.util.GoodsType;
+
+// Store state at one point of the receipt journal, so a restart only replays the receipts after it.
+// Supply is taken from the store: every product with the total quantity ever supplied.
+// Sales are folded from the journal itself, so they match `position` exactly: quantities sold,
+// turnover, cost of sold goods, the number of receipt records and the receipt numbers seen. Numbers can
+// repeat after a restart, so the count is stored rather than derived from them; the numbers only tell
+// how far the receipt sequence has got. Version 1 snapshots had no count and are read with the number of
+// distinct receipt numbers.
+// Stock on hand is not stored; it is supplied minus sold.
+public record StoreSnapshot(JournalPosition position, Supply supply, Sales sales) {
+
+    private static final int MAGIC = 0x53545353; // "STSS"
+    private static final byte VERSION = 2;
+
+    public record Supply(List<Product> products, Map<String, Integer> supplied) {
+    }
+
+    public record Sales(Map<String, Integer> sold, BigDecimal turnover, BigDecimal costOfSoldGoods, BitSet receipts,
+            int receiptCount) {
+
+        public static Sales empty() {
+            return new Sales(new HashMap<>(), BigDecimal.ZERO, BigDecimal.ZERO, new BitSet(), 0);
+        }
+    }
+
+    // Replaces the file in one step, so a crash leaves either the old snapshot or the new one
+    public void write(File target) throws IOException {
+        File dir = target.getAbsoluteFile().getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Unable to create directory: " + dir.getAbsolutePath());
+        }
+        File tmp = new File(dir, target.getName() + ".tmp");
+        FileOutputStream file = new FileOutputStream(tmp);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(position.segment());
+            out.writeLong(position.offset());
+
+            out.writeInt(supply.products().size());
+            for (Product p : supply.products()) {
+                out.writeByte(p.getType().ordinal());
+                out.writeUTF(p.getId());
+                out.writeUTF(p.getName());
+                out.writeUTF(p.getPurchasePrice().toString());
+                out.writeLong(p.getExpiry().toEpochDay());
+                out.writeInt(supply.supplied().getOrDefault(p.getId(), 0));
+            }
+
+            out.writeInt(sales.sold().size());
+            for (Map.Entry<String, Integer> e : sales.sold().entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeInt(e.getValue());
+            }
+            out.writeUTF(sales.turnover().toString());
+            out.writeUTF(sales.costOfSoldGoods().toString());
+            byte[] receipts = sales.receipts().toByteArray();
+            out.writeInt(receipts.length);
+            out.write(receipts);
+            out.writeInt(sales.receiptCount());
+            out.flush();
+            file.getFD().sync(); // On disk before it replaces the old snapshot
+        }
+        Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // null if there is no snapshot yet
+    public static StoreSnapshot read(File file) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a store snapshot: " + file.getAbsolutePath());
+            }
+            byte version = in.readByte();
+            if (version != 1 && version != VERSION) {
+                throw new IOException("Unsupported store snapshot version: " + version);
+            }
+            JournalPosition position = new JournalPosition(in.readInt(), in.readLong());
+
+            int productCount = in.readInt();
+            List<Product> products = new ArrayList<>(productCount);
+            Map<String, Integer> supplied = new HashMap<>();
+            for (int i = 0; i < productCount; i++) {
+                GoodsType type = GoodsType.values()[in.readByte()];
+                String id = in.readUTF();
+                String name = in.readUTF();
+                BigDecimal price = new BigDecimal(in.readUTF());
+                LocalDate expiry = LocalDate.ofEpochDay(in.readLong());
+                products.add(type == GoodsType.GROCERIES
+                        ? new FoodProduct(id, name, price, expiry, 0)
+                        : new NonFoodProduct(id, name, price, expiry, 0));
+                supplied.put(id, in.readInt());
+            }
+
+            int soldCount = in.readInt();
+            Map<String, Integer> sold = new HashMap<>();
+            for (int i = 0; i < soldCount; i++) {
+                sold.put(in.readUTF(), in.readInt());
+            }
+            BigDecimal turnover = new BigDecimal(in.readUTF());
+            BigDecimal cost = new BigDecimal(in.readUTF());
+            byte[] receipts = new byte[in.readInt()];
+            in.readFully(receipts);
+            BitSet numbers = BitSet.valueOf(receipts);
+            int receiptCount = version == 1 ? numbers.cardinality() : in.readInt();
+            return new StoreSnapshot(position, new Supply(products, supplied),
+                    new Sales(sold, turnover, cost, numbers, receiptCount));
+        } catch (EOFException e) {
+            throw new IOException("Store snapshot is truncated: " + file.getAbsolutePath(), e);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | NegativeArraySizeException | DateTimeException e) {
+            throw new IOException("Store snapshot is damaged: " + file.getAbsolutePath(), e);
+        }
+    }
+}
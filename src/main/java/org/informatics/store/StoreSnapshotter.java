@@ -0,0 +1,151 @@
+package org.informatics.store;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.informatics.entity.Receipt;
+import org.informatics.storage.JournalPosition;
+import org.informatics.storage.JournalReader;
+import org.informatics.storage.ReceiptJournal;
+
+// Keeps a store's state recoverable from a snapshot plus the tail of its receipt journal.
+// On start, recover() loads the last snapshot into a freshly set-up store and replays only the
+// receipts journaled after it. snapshot() (periodically after start(), and on close) folds the
+// receipts journaled since the previous snapshot into the sales totals and writes a new snapshot,
+// so the next restart has little to replay.
+// The journal is the record of what was sold: a sale whose receipt never reached the journal is not recovered.
+// Records are counted by their journal position, not by receipt number; recover() moves the store's
+// receipt sequence past every number in the journal, so an in-memory sequence doesn't hand them out again.
+// Only totals are recovered, not the Receipt objects: Store.listReceipts() starts empty after a restart,
+// and receipts sold before it are read back from the journal (FileService, JournalReader).
+public class StoreSnapshotter implements Closeable {
+
+    private final Store store;
+    private final ReceiptJournal journal;
+    private final File file;
+    private ScheduledExecutorService scheduler;
+
+    // Sales folded from the journal up to position; only touched while holding this
+    private JournalPosition position;
+    private final Map<String, Integer> sold = new HashMap<>();
+    private BigDecimal turnover = BigDecimal.ZERO;
+    private BigDecimal cost = BigDecimal.ZERO;
+    private final BitSet receipts = new BitSet(); // Numbers seen, for the receipt sequence
+    private int receiptCount; // Records folded
+
+    public StoreSnapshotter(Store store, ReceiptJournal journal, File file) {
+        this.store = store;
+        this.journal = journal;
+        this.file = file;
+    }
+
+    // Call once, after products, cashiers and desks are set up and before the first sale.
+    // Returns the number of receipts replayed from the journal.
+    // Throws UncheckedIOException when a persistent receipt sequence can't save its new start.
+    // An unreadable snapshot is ignored with a warning and the whole journal is replayed.
+    public synchronized int recover() throws IOException {
+        StoreSnapshot snapshot = null;
+        try {
+            snapshot = StoreSnapshot.read(file);
+        } catch (IOException e) {
+            System.out.println("Warning: Could not read store snapshot, replaying the whole journal - " + e.getMessage());
+        }
+        if (snapshot != null) {
+            store.restore(snapshot);
+            position = snapshot.position();
+            sold.putAll(snapshot.sales().sold());
+            turnover = snapshot.sales().turnover();
+            cost = snapshot.sales().costOfSoldGoods();
+            receipts.or(snapshot.sales().receipts());
+            receiptCount = snapshot.sales().receiptCount();
+        }
+        int replayed = catchUp(true);
+        store.getReceiptSequence().skipTo(Math.max(1, receipts.length())); // One past the highest number
+        return replayed;
+    }
+
+    // Writes a snapshot of the store as of the journal's current end
+    public synchronized StoreSnapshot snapshot() throws IOException {
+        catchUp(false);
+        StoreSnapshot snapshot = new StoreSnapshot(position, store.captureSupply(),
+                new StoreSnapshot.Sales(new HashMap<>(sold), turnover, cost, (BitSet) receipts.clone(), receiptCount));
+        snapshot.write(file);
+        return snapshot;
+    }
+
+    // Takes a snapshot every interval on a background thread until close()
+    public synchronized void start(Duration interval) {
+        if (scheduler != null) {
+            throw new IllegalStateException("Snapshots are already scheduled");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> Thread.ofPlatform()
+                .name("store-snapshotter").daemon().unstarted(r));
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Warning: Could not write store snapshot - " + e.getMessage());
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // Stops the schedule and writes a last snapshot, so a clean restart replays nothing
+    @Override
+    public void close() throws IOException {
+        ScheduledExecutorService running;
+        synchronized (this) {
+            running = scheduler;
+            scheduler = null;
+        }
+        if (running != null) {
+            running.shutdown();
+            try {
+                running.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        snapshot();
+    }
+
+    // Folds the receipts journaled after position into the totals, applying them to the store as well when recovering.
+    // Every record is counted once, by its position; receipt numbers may repeat after a restart.
+    private int catchUp(boolean apply) throws IOException {
+        int[] replayed = new int[1];
+        JournalPosition from = position;
+        JournalReader reader = new JournalReader(journal.getDirectory(), store);
+        position = reader.scan(from, journal.position(), (at, receipt) -> {
+            if (from != null && (at.segment() < from.segment()
+                    || at.segment() == from.segment() && at.offset() < from.offset())) {
+                return true; // Folded by an earlier catch-up
+            }
+            receipts.set(receipt.getNumber());
+            receiptCount++;
+            fold(receipt);
+            if (apply) {
+                store.replay(receipt);
+            }
+            replayed[0]++;
+            return true;
+        });
+        return replayed[0];
+    }
+
+    private void fold(Receipt receipt) {
+        for (Receipt.Line line : receipt.getLines()) {
+            BigDecimal quantity = BigDecimal.valueOf(line.quantity());
+            sold.merge(line.product().getId(), line.quantity(), Integer::sum);
+            turnover = turnover.add(line.price().multiply(quantity));
+            cost = cost.add(line.product().getPurchasePrice().multiply(quantity));
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package org.informatics.util;
+
+// How a saved receipt is stored next to its readable .txt copy
+public enum ReceiptFormat {
+    SERIALIZED(".ser"), // Java serialization of the whole receipt with its cashier and products
+    BINARY(".bin"),     // Compact ReceiptCodec format, cashier and products referenced by id
+    DICTIONARY(".bin"); // Journal only: BINARY with product ids numbered per segment; a separate file is saved as BINARY
+
+    private final String extension;
+
+    ReceiptFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
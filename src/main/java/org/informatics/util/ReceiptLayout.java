@@ -0,0 +1,7 @@
+package org.informatics.util;
+
+// Where saved receipt files go under the receipts directory
+public enum ReceiptLayout {
+    FLAT,    // receipt-N.* directly in the directory
+    SHARDED  // <day>/<bucket>/receipt-N.*, see ReceiptShards
+}
@@ -0,0 +1,151 @@
+package org.informatics.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormatSymbols;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+import org.informatics.entity.Receipt;
+
+// Writes the text form of a receipt (the .txt file and Receipt.toString()).
+// Output is the same, character for character, as the original String.format version:
+//   %-20s %3d x %7.2f = %8.2f per line, TOTAL: %33.2f, numbers rounded HALF_UP with the
+//   default locale's decimal separator, date as yyyy-MM-dd HH:mm:ss.
+// Fields are padded and appended directly instead of going through a Formatter for every line.
+// Values the fast path doesn't cover (negative amounts, locales with other digits, years past 9999)
+// fall back to String.format / DateTimeFormatter, so the output never differs.
+public final class ReceiptRenderer {
+
+    public static final String SEPARATOR = "----------------------------------------\n";
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static volatile Symbols symbols = Symbols.of(Locale.getDefault(Locale.Category.FORMAT));
+
+    private ReceiptRenderer() {
+    }
+
+    public static String render(Receipt receipt) {
+        StringBuilder sb = new StringBuilder(200 + receipt.getLines().size() * 48);
+        try {
+            render(receipt, sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Not thrown by a StringBuilder
+        }
+        return sb.toString();
+    }
+
+    public static void render(Receipt receipt, Appendable out) throws IOException {
+        Symbols sym = currentSymbols();
+        out.append("RECEIPT #").append(Integer.toString(receipt.getNumber())).append('\n');
+        out.append("Date: ");
+        appendTime(out, receipt.getTime());
+        out.append('\n');
+        out.append("Cashier: ").append(receipt.getCashier().getName())
+                .append(" (ID: ").append(receipt.getCashier().getId()).append(")\n");
+        out.append(SEPARATOR);
+        out.append("ITEMS:\n");
+
+        for (Receipt.Line line : receipt.getLines()) {
+            String name = String.valueOf(line.product().getName());
+            out.append(name);
+            pad(out, 20 - name.length());
+            out.append(' ');
+            appendInt(out, sym, line.quantity(), 3);
+            out.append(" x ");
+            appendAmount(out, sym, line.price(), 7);
+            out.append(" = ");
+            appendAmount(out, sym, line.total(), 8);
+            out.append('\n');
+        }
+
+        out.append(SEPARATOR);
+        out.append("TOTAL: ");
+        appendAmount(out, sym, receipt.total(), 33);
+        out.append('\n');
+    }
+
+    private static Symbols currentSymbols() {
+        Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        Symbols sym = symbols;
+        if (!sym.locale().equals(locale)) {
+            sym = Symbols.of(locale);
+            symbols = sym;
+        }
+        return sym;
+    }
+
+    private static void appendTime(Appendable out, LocalDateTime time) throws IOException {
+        int year = time.getYear();
+        if (year < 1 || year > 9999) {
+            out.append(time.format(DATE_FORMAT));
+            return;
+        }
+        appendDigits(out, year, 4);
+        out.append('-');
+        appendDigits(out, time.getMonthValue(), 2);
+        out.append('-');
+        appendDigits(out, time.getDayOfMonth(), 2);
+        out.append(' ');
+        appendDigits(out, time.getHour(), 2);
+        out.append(':');
+        appendDigits(out, time.getMinute(), 2);
+        out.append(':');
+        appendDigits(out, time.getSecond(), 2);
+    }
+
+    // Zero-padded to the given number of digits
+    private static void appendDigits(Appendable out, int value, int digits) throws IOException {
+        int div = 1;
+        for (int i = 1; i < digits; i++) {
+            div *= 10;
+        }
+        for (; div > 0; div /= 10) {
+            out.append((char) ('0' + value / div % 10));
+        }
+    }
+
+    // %<width>d
+    private static void appendInt(Appendable out, Symbols sym, int value, int width) throws IOException {
+        if (value < 0 || !sym.asciiDigits()) {
+            out.append(String.format(sym.locale(), "%" + width + "d", value));
+            return;
+        }
+        String digits = Integer.toString(value);
+        pad(out, width - digits.length());
+        out.append(digits);
+    }
+
+    // %<width>.2f
+    private static void appendAmount(Appendable out, Symbols sym, BigDecimal value, int width) throws IOException {
+        BigDecimal rounded = value.setScale(2, RoundingMode.HALF_UP);
+        if (value.signum() < 0 || rounded.precision() > 18 || !sym.asciiDigits()) {
+            out.append(String.format(sym.locale(), "%" + width + ".2f", value));
+            return;
+        }
+        long cents = rounded.unscaledValue().longValue();
+        String whole = Long.toString(cents / 100);
+        int fraction = (int) (cents % 100);
+        pad(out, width - whole.length() - 3);
+        out.append(whole).append(sym.decimalSeparator());
+        out.append((char) ('0' + fraction / 10)).append((char) ('0' + fraction % 10));
+    }
+
+    private static void pad(Appendable out, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.append(' ');
+        }
+    }
+
+    // What String.format takes from the locale for these fields
+    private record Symbols(Locale locale, char decimalSeparator, boolean asciiDigits) {
+
+        static Symbols of(Locale locale) {
+            DecimalFormatSymbols dfs = DecimalFormatSymbols.getInstance(locale);
+            return new Symbols(locale, dfs.getDecimalSeparator(), dfs.getZeroDigit() == '0');
+        }
+    }
+}
@@ -1,18 +1,26 @@
 package org.informatics.service;
 
+import org.informatics.config.StoreConfig;
+import org.informatics.entity.Basket;
 import org.informatics.entity.Cashier;
 import org.informatics.entity.Customer;
 import org.informatics.entity.Receipt;
 import org.informatics.exception.InsufficientQuantityException;
 import org.informatics.exception.ProductNotFoundException;
 import org.informatics.service.impl.StoreServiceImpl;
+import org.informatics.storage.AsyncReceiptWriter;
+import org.informatics.storage.JournalPosition;
 import org.informatics.store.Store;
+import org.informatics.util.ReceiptFormat;
+import org.informatics.util.ReceiptLayout;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import java.io.File;
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -78,6 +86,23 @@ class StoreServiceImplMockTest {
         assertTrue(exception.getMessage().contains(productId));
     }
 
+    @Test
+    void testCheckoutDelegatesToStoreAndReturnsReceipt() throws Exception {
+        // Arrange
+        Cashier mockCashier = Mockito.mock(Cashier.class);
+        Customer mockCustomer = Mockito.mock(Customer.class);
+        Receipt mockReceipt = Mockito.mock(Receipt.class);
+        Basket basket = new Basket().add("P1", 2).add("P2", 1);
+        Mockito.when(mockStore.checkout(mockCashier, basket, mockCustomer)).thenReturn(mockReceipt);
+
+        // Act
+        Receipt result = storeService.checkout(mockCashier, basket, mockCustomer);
+
+        // Assert
+        assertEquals(mockReceipt, result);
+        Mockito.verify(mockStore).checkout(mockCashier, basket, mockCustomer);
+    }
+
     @Test
     void testCreateReceiptDelegatesToStoreAndReturnsReceipt() {
         // Arrange
@@ -103,6 +128,41 @@ class StoreServiceImplMockTest {
         storeService.saveReceipt(mockReceipt, mockDir);
         
         // Assert
-        Mockito.verify(mockReceipt).save(mockDir);
+        Mockito.verify(mockReceipt).save(mockDir, ReceiptFormat.SERIALIZED, ReceiptLayout.FLAT);
+    }
+
+    @Test
+    void testUpdateConfigDelegatesToStore() {
+        // Arrange
+        StoreConfig config = new StoreConfig(new BigDecimal("0.10"), new BigDecimal("0.15"), 2, new BigDecimal("0.50"));
+
+        // Act
+        storeService.updateConfig(config);
+
+        // Assert
+        Mockito.verify(mockStore).updateConfig(config);
+    }
+
+    @Test
+    void testSaveReceiptAsyncQueuesReceiptWithWriter() throws Exception {
+        // Arrange
+        AsyncReceiptWriter mockWriter = Mockito.mock(AsyncReceiptWriter.class);
+        Receipt mockReceipt = Mockito.mock(Receipt.class);
+        Mockito.when(mockWriter.submit(mockReceipt))
+                .thenReturn(CompletableFuture.completedFuture(new JournalPosition(1, 0)));
+        StoreServiceImpl asyncService = new StoreServiceImpl(mockStore, mockWriter);
+
+        // Act
+        Receipt saved = asyncService.saveReceiptAsync(mockReceipt).get();
+
+        // Assert
+        assertEquals(mockReceipt, saved);
+        Mockito.verify(mockWriter).submit(mockReceipt);
+    }
+
+    @Test
+    void testSaveReceiptAsyncWithoutWriterThrows() {
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> storeService.saveReceiptAsync(Mockito.mock(Receipt.class)));
     }
-} 
\ No newline at end of file
+}
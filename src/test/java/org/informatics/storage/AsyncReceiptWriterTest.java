@@ -0,0 +1,207 @@
+package org.informatics.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.informatics.entity.Cashier;
+import org.informatics.entity.FoodProduct;
+import org.informatics.entity.Receipt;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AsyncReceiptWriterTest {
+
+    private Cashier cashier;
+    private FoodProduct product;
+    private final AtomicInteger numbers = new AtomicInteger();
+
+    @TempDir
+    File tempDir;
+
+    @BeforeEach
+    void setUp() {
+        cashier = new Cashier("C1", "Ivan Petrov", new BigDecimal("1000"));
+        product = new FoodProduct("F1", "Milk", new BigDecimal("2.00"), LocalDate.now().plusDays(10), 100);
+    }
+
+    @Test
+    void testConcurrentDesksAreWrittenInBatches() throws Exception {
+        // Arrange - a small queue so desks also hit back-pressure
+        List<CompletableFuture<JournalPosition>> acks = new ArrayList<>();
+        try (ReceiptJournal journal = new ReceiptJournal(tempDir);
+             AsyncReceiptWriter writer = new AsyncReceiptWriter(journal, 16, 64)) {
+
+            // Act - 8 desks save 250 receipts each
+            runOnDesks(8, () -> {
+                List<CompletableFuture<JournalPosition>> mine = new ArrayList<>();
+                for (int i = 0; i < 250; i++) {
+                    mine.add(writer.submit(receipt()));
+                }
+                synchronized (acks) {
+                    acks.addAll(mine);
+                }
+            });
+            CompletableFuture.allOf(acks.toArray(CompletableFuture[]::new)).get(1, TimeUnit.MINUTES);
+
+            // Assert - every receipt acknowledged at its own position, fewer syncs than receipts
+            Set<JournalPosition> positions = new HashSet<>();
+            for (CompletableFuture<JournalPosition> ack : acks) {
+                positions.add(ack.get());
+            }
+            assertEquals(2000, positions.size());
+            assertEquals(2000, writer.getWrittenCount());
+            assertTrue(writer.getBatchCount() < 2000);
+        }
+        assertEquals(2000, new JournalReader(tempDir).readAll().size());
+    }
+
+    @Test
+    void testCloseWritesEverythingQueued() throws Exception {
+        // Arrange
+        ReceiptJournal journal = new ReceiptJournal(tempDir);
+        AsyncReceiptWriter writer = new AsyncReceiptWriter(journal);
+        List<CompletableFuture<JournalPosition>> acks = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            acks.add(writer.submit(receipt()));
+        }
+
+        // Act
+        writer.close();
+        journal.close();
+
+        // Assert
+        for (CompletableFuture<JournalPosition> ack : acks) {
+            assertTrue(ack.isDone() && !ack.isCompletedExceptionally());
+        }
+        assertThrows(IllegalStateException.class, () -> writer.submit(receipt()));
+        assertEquals(500, new JournalReader(tempDir).readAll().size());
+    }
+
+    @Test
+    void testFailedWriteFailsOnlyItsAcknowledgement() throws Exception {
+        // Arrange - the journal is closed under the writer
+        ReceiptJournal journal = new ReceiptJournal(tempDir);
+        try (AsyncReceiptWriter writer = new AsyncReceiptWriter(journal)) {
+            writer.submit(receipt()).get();
+            journal.close();
+
+            // Act
+            CompletableFuture<JournalPosition> ack = writer.submit(receipt());
+
+            // Assert
+            assertThrows(Exception.class, ack::get);
+        }
+    }
+
+    @Test
+    void testFailedSyncReportsWhereTheReceiptWasJournaled() throws Exception {
+        // Arrange - the first sync fails, the ones after it succeed
+        AtomicInteger syncs = new AtomicInteger();
+        try (ReceiptJournal journal = new ReceiptJournal(tempDir) {
+            @Override
+            public synchronized void sync() throws IOException {
+                if (syncs.incrementAndGet() == 1) {
+                    throw new IOException("Disk full");
+                }
+                super.sync();
+            }
+        }; AsyncReceiptWriter writer = new AsyncReceiptWriter(journal)) {
+
+            // Act
+            CompletableFuture<JournalPosition> failed = writer.submit(receipt());
+            ExecutionException exception = assertThrows(ExecutionException.class, failed::get);
+            writer.submit(receipt()).get();
+
+            // Assert - appended once, and not to be submitted again
+            AsyncReceiptWriter.NotSyncedException notSynced =
+                    assertInstanceOf(AsyncReceiptWriter.NotSyncedException.class, exception.getCause());
+            assertEquals(new JournalPosition(1, 0), notSynced.getPosition());
+            assertEquals(List.of(1, 2), new JournalReader(tempDir).readAll().stream().map(Receipt::getNumber).toList());
+        }
+        ReceiptJournal closed = new ReceiptJournal(new File(tempDir, "closed"));
+        closed.close();
+        assertThrows(IOException.class, closed::sync);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void testGroupCommitVersusSyncPerReceipt() throws Exception {
+        int desks = 8;
+        int perDesk = 500;
+
+        File syncDir = new File(tempDir, "sync");
+        try (ReceiptJournal journal = new ReceiptJournal(syncDir)) {
+            long start = System.nanoTime();
+            runOnDesks(desks, () -> {
+                for (int i = 0; i < perDesk; i++) {
+                    journal.append(receipt());
+                    journal.sync();
+                }
+            });
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("sync per receipt %8.0f receipts/sec%n", desks * perDesk / seconds);
+        }
+
+        File asyncDir = new File(tempDir, "async");
+        try (ReceiptJournal journal = new ReceiptJournal(asyncDir);
+             AsyncReceiptWriter writer = new AsyncReceiptWriter(journal)) {
+            long start = System.nanoTime();
+            runOnDesks(desks, () -> {
+                CompletableFuture<JournalPosition> last = null;
+                for (int i = 0; i < perDesk; i++) {
+                    last = writer.submit(receipt());
+                }
+                last.get();
+            });
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("group commit     %8.0f receipts/sec, %d syncs%n",
+                    desks * perDesk / seconds, writer.getBatchCount());
+        }
+    }
+
+    private Receipt receipt() {
+        Receipt receipt = new Receipt(numbers.incrementAndGet(), cashier);
+        receipt.add(product, 2, new BigDecimal("2.40"));
+        return receipt;
+    }
+
+    private static void runOnDesks(int desks, DeskWork work) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(desks);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < desks; i++) {
+            results.add(pool.submit(() -> {
+                work.run();
+                return null;
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(1, TimeUnit.MINUTES));
+    }
+
+    @FunctionalInterface
+    private interface DeskWork {
+        void run() throws Exception;
+    }
+}
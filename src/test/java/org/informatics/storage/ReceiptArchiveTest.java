@@ -0,0 +1,217 @@
+package org.informatics.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+
+import org.informatics.entity.Cashier;
+import org.informatics.entity.FoodProduct;
+import org.informatics.entity.Receipt;
+import org.informatics.service.impl.FileServiceImpl;
+import org.informatics.util.ReceiptFormat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReceiptArchiveTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2025, 3, 10);
+
+    private Cashier ivan;
+    private Cashier maria;
+    private FoodProduct milk;
+    private ReceiptCatalog catalog;
+
+    @TempDir
+    File tempDir;
+
+    @BeforeEach
+    void setUp() {
+        ivan = new Cashier("C1", "Ivan Petrov", new BigDecimal("1000"));
+        maria = new Cashier("C2", "Maria Ivanova", new BigDecimal("1100"));
+        milk = new FoodProduct("F1", "Milk", new BigDecimal("2.00"), MONDAY.plusDays(30), 100);
+        catalog = ReceiptCatalog.of(List.of(milk), List.of(ivan, maria));
+    }
+
+    @Test
+    void testClosedDaysAreArchivedAndReadTransparently() throws Exception {
+        // Arrange - Monday to Wednesday, .ser and .bin mixed; Wednesday is still open
+        save(3, 40);
+        FileServiceImpl fileService = new FileServiceImpl(catalog);
+        List<String> before = texts(fileService.loadAll(tempDir));
+
+        // Act
+        ReceiptArchiver.Result result = new ReceiptArchiver(tempDir, () -> MONDAY.plusDays(2), 1024).archive();
+
+        // Assert
+        assertEquals(2, result.days());
+        assertEquals(80, result.receipts());
+        assertTrue(result.ratio() > 1, "ratio " + result.ratio());
+        assertEquals(List.of(new File(tempDir, ReceiptArchive.fileName(MONDAY)),
+                new File(tempDir, ReceiptArchive.fileName(MONDAY.plusDays(1)))), ReceiptArchive.list(tempDir));
+        assertFalse(new File(tempDir, "receipt-1.ser").exists());
+        assertFalse(new File(tempDir, "receipt-1.txt").exists());
+        assertTrue(new File(tempDir, "receipt-81.txt").exists());
+
+        assertEquals(before, texts(fileService.loadAll(tempDir)));
+        assertEquals(receipt(42, 40).toString(), fileService.load(tempDir, 42).toString());
+        assertNull(fileService.load(tempDir, 1_000));
+        assertEquals(20, fileService.findByCashier(tempDir, "C2", MONDAY.plusDays(1), MONDAY.plusDays(1)).size());
+        assertEquals(40, fileService.stream(tempDir, ReceiptFilter.between(MONDAY, MONDAY)).count());
+    }
+
+    @Test
+    void testLateReceiptIsMergedAndInterruptedRunIsCompleted() throws Exception {
+        // Arrange - Monday archived, then a Monday receipt saved late, and a file left behind by a
+        // run that died after writing the archive
+        save(1, 10);
+        FileServiceImpl fileService = new FileServiceImpl(catalog);
+        ReceiptArchiver archiver = new ReceiptArchiver(tempDir, () -> MONDAY.plusDays(1));
+        archiver.archive();
+        assertEquals(10, fileService.loadAll(tempDir).size()); // Archive index is now cached
+        receipt(11, 20).save(tempDir, ReceiptFormat.BINARY);
+        receipt(5).save(tempDir);
+
+        // Act
+        ReceiptArchiver.Result result = archiver.archive();
+
+        // Assert
+        assertEquals(2, result.receipts());
+        assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11),
+                fileService.loadAll(tempDir).stream().map(Receipt::getNumber).toList());
+        assertNotNull(fileService.load(tempDir, 11));
+        assertEquals(11, ReceiptArchive.open(new File(tempDir, ReceiptArchive.fileName(MONDAY))).size());
+    }
+
+    @Test
+    void testOpenDayIsArchivedOnceClosed() throws Exception {
+        // Arrange - Monday and Tuesday, archived while Tuesday is still open
+        save(2, 10);
+        LocalDate[] today = {MONDAY.plusDays(1)};
+        ReceiptArchiver archiver = new ReceiptArchiver(tempDir, () -> today[0]);
+        ReceiptArchiver.Result monday = archiver.archive();
+        ReceiptArchiver.Result again = archiver.archive();
+
+        // Act
+        today[0] = MONDAY.plusDays(2);
+        ReceiptArchiver.Result tuesday = archiver.archive();
+
+        // Assert
+        assertEquals(10, monday.receipts());
+        assertEquals(0, again.receipts());
+        assertEquals(10, tuesday.receipts());
+        assertFalse(new File(tempDir, "receipt-11.ser").exists());
+        assertEquals(20, new FileServiceImpl(catalog).loadAll(tempDir).size());
+    }
+
+    @Test
+    void testFailedArchiveWriteKeepsFilesAndLeavesNoTemporaryFile() throws Exception {
+        // Arrange - a non-empty directory where Monday's archive goes, so replacing it fails
+        save(1, 10);
+        File target = new File(tempDir, ReceiptArchive.fileName(MONDAY));
+        new File(target, "occupied").mkdirs();
+
+        // Act & Assert
+        assertThrows(IOException.class, () -> ReceiptArchive.write(target, MONDAY, List.of(), 1024));
+        assertFalse(new File(tempDir, target.getName() + ".tmp").exists());
+        assertThrows(IOException.class, () -> new ReceiptArchiver(tempDir, () -> MONDAY.plusDays(1)).archive());
+        assertTrue(new File(tempDir, "receipt-1.ser").exists());
+        assertTrue(new File(tempDir, "receipt-1.txt").exists());
+    }
+
+    @Test
+    void testDamagedBlockIsDetected() throws Exception {
+        // Arrange
+        save(1, 10);
+        new ReceiptArchiver(tempDir, () -> MONDAY.plusDays(1)).archive();
+        File archive = new File(tempDir, ReceiptArchive.fileName(MONDAY));
+        try (RandomAccessFile raf = new RandomAccessFile(archive, "rw")) {
+            raf.seek(20);
+            raf.write(raf.read() ^ 0xFF);
+        }
+
+        // Act
+        List<Receipt> loaded = new FileServiceImpl(catalog).loadAll(tempDir);
+
+        // Assert - the damaged archive is skipped with a warning, never decoded into wrong receipts
+        assertTrue(loaded.isEmpty());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void testCompressionRatioAndReadCost() throws Exception {
+        int days = 10;
+        int perDay = 1_000;
+        Random random = new Random(1);
+        for (ReceiptFormat format : ReceiptFormat.values()) {
+            File dir = new File(tempDir, format.name());
+            dir.mkdirs();
+            for (int n = 1; n <= days * perDay; n++) {
+                receipt(n, perDay).save(dir, format);
+            }
+            FileServiceImpl fileService = new FileServiceImpl(catalog);
+            double fileMicros = loadMicros(fileService, dir, days * perDay, random);
+            double fileAllMillis = loadAllMillis(fileService, dir);
+
+            ReceiptArchiver.Result result = new ReceiptArchiver(dir, () -> MONDAY.plusDays(days)).archive();
+            loadMicros(fileService, dir, days * perDay, random); // Warm-up, opens the archive indexes
+            double archiveMicros = loadMicros(fileService, dir, days * perDay, random);
+            double archiveAllMillis = loadAllMillis(fileService, dir);
+
+            System.out.printf("%s, %d receipts: %d KB of files -> %d KB archived (ratio %.1f); "
+                    + "load(n) %.0f us -> %.0f us, loadAll %.0f ms -> %.0f ms%n",
+                    format, days * perDay, result.originalBytes() >> 10, result.archivedBytes() >> 10, result.ratio(),
+                    fileMicros, archiveMicros, fileAllMillis, archiveAllMillis);
+        }
+    }
+
+    private static double loadMicros(FileServiceImpl fileService, File dir, int count, Random random) throws Exception {
+        int lookups = 500;
+        long start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            assertNotNull(fileService.load(dir, 1 + random.nextInt(count)));
+        }
+        return (System.nanoTime() - start) / 1e3 / lookups;
+    }
+
+    private static double loadAllMillis(FileServiceImpl fileService, File dir) throws Exception {
+        long start = System.nanoTime();
+        fileService.loadAll(dir);
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    // perDay receipts a day from Monday on; odd numbers as .ser, even as .bin
+    private void save(int days, int perDay) throws Exception {
+        for (int n = 1; n <= days * perDay; n++) {
+            receipt(n, perDay).save(tempDir, n % 2 == 1 ? ReceiptFormat.SERIALIZED : ReceiptFormat.BINARY);
+        }
+    }
+
+    private Receipt receipt(int number) {
+        return receipt(number, 10);
+    }
+
+    private Receipt receipt(int number, int perDay) {
+        int day = (number - 1) / perDay;
+        LocalDateTime time = MONDAY.plusDays(day).atTime(8, 0).plusSeconds(number % perDay * 30L);
+        Receipt receipt = new Receipt(number, number % 2 == 1 ? ivan : maria, time);
+        receipt.add(milk, 1 + number % 3, new BigDecimal("2.40"));
+        return receipt;
+    }
+
+    private static List<String> texts(List<Receipt> receipts) {
+        return receipts.stream().map(Receipt::toString).toList();
+    }
+}
@@ -0,0 +1,155 @@
+package org.informatics.storage;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.informatics.entity.Cashier;
+import org.informatics.entity.FoodProduct;
+import org.informatics.entity.Receipt;
+import org.informatics.service.impl.FileServiceImpl;
+import org.informatics.util.ReceiptFormat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReceiptCacheTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2025, 3, 10);
+
+    private Cashier ivan;
+    private FoodProduct milk;
+    private FileServiceImpl fileService;
+
+    @TempDir
+    File tempDir;
+
+    @BeforeEach
+    void setUp() {
+        ivan = new Cashier("C1", "Ivan Petrov", new BigDecimal("1000"));
+        milk = new FoodProduct("F1", "Milk", new BigDecimal("2.00"), MONDAY.plusDays(30), 100);
+        fileService = new FileServiceImpl(ReceiptCatalog.of(List.of(milk), List.of(ivan)));
+    }
+
+    @Test
+    void testRepeatedLoadsAreServedFromTheCache() throws Exception {
+        // Arrange
+        receipt(1, 1).save(tempDir);
+        receipt(2, 1).save(tempDir, ReceiptFormat.BINARY);
+        try (ReceiptJournal journal = new ReceiptJournal(tempDir)) {
+            journal.append(receipt(3, 1));
+        }
+        ReceiptCache cache = new ReceiptCache();
+        fileService.setCache(cache);
+
+        // Act
+        Receipt first = fileService.load(tempDir, 1);
+        Receipt again = fileService.load(tempDir, 1);
+        fileService.load(tempDir, 2);
+        fileService.load(tempDir, 2);
+        Receipt journaled = fileService.load(tempDir, 3);
+        Receipt journaledAgain = fileService.load(tempDir, 3);
+        Receipt missing = fileService.load(tempDir, 4);
+
+        // Assert
+        assertSame(first, again);
+        assertSame(journaled, journaledAgain);
+        assertNull(missing);
+        ReceiptCache.Stats stats = cache.stats();
+        assertEquals(3, stats.hits());
+        assertEquals(4, stats.misses());
+        assertEquals(3, stats.size());
+        assertEquals(0.43, stats.hitRate(), 0.01);
+    }
+
+    @Test
+    void testChangedOrArchivedFileIsReadAgain() throws Exception {
+        // Arrange
+        receipt(1, 1).save(tempDir);
+        receipt(2, 1).save(tempDir);
+        ReceiptCache cache = new ReceiptCache();
+        fileService.setCache(cache);
+        Receipt before = fileService.load(tempDir, 1);
+        fileService.load(tempDir, 2);
+
+        // Act - receipt 1 saved again with more lines, then both moved into a day archive
+        receipt(1, 3).save(tempDir);
+        Receipt after = fileService.load(tempDir, 1);
+        new ReceiptArchiver(tempDir, () -> MONDAY.plusDays(1)).archive();
+        Receipt archived = fileService.load(tempDir, 2);
+
+        // Assert
+        assertNotSame(before, after);
+        assertEquals(3, after.getLines().size());
+        assertEquals(receipt(2, 1).toString(), archived.toString());
+        assertEquals(2, cache.stats().invalidations());
+        assertSame(archived, fileService.load(tempDir, 2));
+    }
+
+    @Test
+    void testLeastRecentlyUsedReceiptsAreEvicted() throws Exception {
+        // Arrange - room for three receipts by count, and by weight for five one-line receipts
+        ReceiptCache cache = new ReceiptCache(3, 5 * ReceiptCache.weight(receipt(1, 1)));
+        ReceiptCache.Source source = ReceiptCache.Source.of(tempDir);
+
+        // Act
+        for (int n = 1; n <= 3; n++) {
+            cache.put(tempDir, receipt(n, 1), source);
+        }
+        cache.get(tempDir, 1);
+        cache.put(tempDir, receipt(4, 1), source);
+        cache.put(tempDir, receipt(5, 10), source);
+        cache.put(tempDir, receipt(6, 100), source);
+
+        // Assert - 2 went by count as the eldest, then 3 and 1 by weight; 6 is heavier than the whole cache
+        ReceiptCache.Stats stats = cache.stats();
+        assertEquals(3, stats.evictions());
+        assertEquals(2, stats.size());
+        assertEquals(ReceiptCache.weight(receipt(4, 1)) + ReceiptCache.weight(receipt(5, 10)), stats.weight());
+        assertThrows(IllegalArgumentException.class, () -> new ReceiptCache(0, 1));
+    }
+
+    @Test
+    @Tag("benchmark")
+    void testLoadWithAndWithoutCache() throws Exception {
+        int count = 1_000;
+        for (int n = 1; n <= count; n++) {
+            receipt(n, 5).save(tempDir);
+        }
+        FileServiceImpl cached = new FileServiceImpl(ReceiptCatalog.of(List.of(milk), List.of(ivan)));
+        cached.setCache(new ReceiptCache());
+        int loads = 20_000;
+
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < loads; i++) {
+                fileService.load(tempDir, 1 + i % 100); // The 100 most recent receipts, over and over
+            }
+            double plain = (System.nanoTime() - start) / 1e3 / loads;
+            start = System.nanoTime();
+            for (int i = 0; i < loads; i++) {
+                cached.load(tempDir, 1 + i % 100);
+            }
+            double withCache = (System.nanoTime() - start) / 1e3 / loads;
+            if (round == 1) {
+                System.out.printf("load of a .ser receipt: %.1f us, cached %.1f us (%s)%n", plain, withCache,
+                        cached.getCache().stats());
+            }
+        }
+    }
+
+    private Receipt receipt(int number, int lines) {
+        Receipt receipt = new Receipt(number, ivan, MONDAY.atTime(8, 0).plusSeconds(number * 2L));
+        for (int l = 0; l < lines; l++) {
+            receipt.add(milk, 1 + l % 3, new BigDecimal("2.40"));
+        }
+        return receipt;
+    }
+}
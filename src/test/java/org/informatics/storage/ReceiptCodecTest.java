@@ -0,0 +1,183 @@
+package org.informatics.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import org.informatics.config.StoreConfig;
+import org.informatics.entity.Cashier;
+import org.informatics.entity.FoodProduct;
+import org.informatics.entity.NonFoodProduct;
+import org.informatics.entity.Receipt;
+import org.informatics.service.impl.FileServiceImpl;
+import org.informatics.store.Store;
+import org.informatics.util.ReceiptFormat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReceiptCodecTest {
+
+    private Store store;
+    private Cashier cashier;
+
+    @TempDir
+    File tempDir;
+
+    @BeforeEach
+    void setUp() {
+        store = new Store(new StoreConfig(
+                new BigDecimal("0.20"), // 20% food markup
+                new BigDecimal("0.25"), // 25% non-food markup
+                3, // near expiry days
+                new BigDecimal("0.30") // near expiry discount
+        ));
+        cashier = new Cashier("C1", "Ivan Petrov", new BigDecimal("1000"));
+        store.addCashier(cashier);
+        store.addProduct(new FoodProduct("F1", "Milk", new BigDecimal("2.00"), LocalDate.now().plusDays(10), 100));
+        store.addProduct(new NonFoodProduct("N1", "Soap", new BigDecimal("3.00"), LocalDate.now().plusDays(300), 100));
+    }
+
+    @Test
+    void testBinaryRoundTripResolvesCatalogObjects() throws IOException {
+        // Arrange
+        Receipt receipt = receipt(42);
+
+        // Act
+        Receipt decoded = ReceiptCodec.decode(ReceiptCodec.encode(receipt), store);
+
+        // Assert
+        assertEquals(receipt.toString(), decoded.toString());
+        assertEquals(receipt.getTime(), decoded.getTime());
+        assertEquals(0, receipt.total().compareTo(decoded.total()));
+        assertSame(cashier, decoded.getCashier());
+        assertSame(store.find("F1"), decoded.getLines().getFirst().product());
+        assertTrue(decoded.isSealed());
+    }
+
+    @Test
+    void testUnreadableRecordsAreRejected() {
+        // Arrange
+        byte[] data = ReceiptCodec.encode(receipt(1));
+        byte[] truncated = Arrays.copyOf(data, data.length - 3);
+        byte[] newerVersion = data.clone();
+        newerVersion[0] = ReceiptCodec.VERSION + 1;
+        ReceiptCatalog withoutMilk = ReceiptCatalog.of(List.of(store.find("N1")), List.of(cashier));
+
+        // Act & Assert
+        assertThrows(IOException.class, () -> ReceiptCodec.decode(truncated, store));
+        assertThrows(IOException.class, () -> ReceiptCodec.decode(newerVersion, store));
+        assertThrows(IOException.class, () -> ReceiptCodec.decode(data, withoutMilk));
+        assertThrows(IOException.class, () -> ReceiptCodec.decode(data, null));
+    }
+
+    @Test
+    void testBinaryFilesAreLoadedThroughFileService() throws Exception {
+        // Arrange
+        receipt(1).save(tempDir, ReceiptFormat.BINARY);
+        receipt(2).save(tempDir);
+        FileServiceImpl fileService = new FileServiceImpl(store);
+
+        // Act
+        List<Receipt> all = fileService.loadAll(tempDir);
+        Receipt loaded = fileService.load(tempDir, 1);
+
+        // Assert
+        assertEquals(2, all.size());
+        assertEquals(receipt(1).total(), loaded.total());
+        assertTrue(new File(tempDir, "receipt-1.bin").length() < new File(tempDir, "receipt-2.ser").length());
+        assertEquals(1, new FileServiceImpl().loadAll(tempDir).size()); // no catalog, the .bin file is skipped
+    }
+
+    @Test
+    void testJournalWithBinaryRecords() throws IOException {
+        // Arrange
+        try (ReceiptJournal journal = new ReceiptJournal(tempDir, ReceiptJournal.DEFAULT_SEGMENT_SIZE, ReceiptFormat.BINARY)) {
+            journal.append(receipt(1));
+            journal.append(receipt(2));
+        }
+
+        // Act
+        List<Receipt> loaded = new JournalReader(tempDir, store).readAll();
+
+        // Assert
+        assertEquals(2, loaded.size());
+        assertEquals(receipt(2).toString(), loaded.get(1).toString());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void testBinaryCodecVersusJavaSerialization() throws Exception {
+        Receipt receipt = receipt(1);
+        int iterations = 100_000;
+
+        // First round only warms up the JIT
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            byte[] serialized = null;
+            for (int i = 0; i < iterations; i++) {
+                serialized = serialize(receipt);
+            }
+            double serializeNanos = (double) (System.nanoTime() - start) / iterations;
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                JournalFormat.decode(withTag(JournalFormat.JAVA_SERIALIZED, serialized), null);
+            }
+            double deserializeNanos = (double) (System.nanoTime() - start) / iterations;
+
+            start = System.nanoTime();
+            byte[] binary = null;
+            for (int i = 0; i < iterations; i++) {
+                binary = ReceiptCodec.encode(receipt);
+            }
+            double encodeNanos = (double) (System.nanoTime() - start) / iterations;
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                ReceiptCodec.decode(binary, store);
+            }
+            double decodeNanos = (double) (System.nanoTime() - start) / iterations;
+
+            if (round == 1) {
+                System.out.printf("serialization %4d bytes, %6.0f ns write, %6.0f ns read%n",
+                        serialized.length, serializeNanos, deserializeNanos);
+                System.out.printf("binary codec  %4d bytes, %6.0f ns write, %6.0f ns read%n",
+                        binary.length, encodeNanos, decodeNanos);
+            }
+        }
+    }
+
+    // Receipt with three lines and a fixed time
+    private Receipt receipt(int number) {
+        Receipt receipt = new Receipt(number, cashier, LocalDateTime.of(2025, 3, 14, 10, 15, 30, 123_456_000));
+        receipt.add(store.find("F1"), 2, new BigDecimal("2.40"));
+        receipt.add(store.find("N1"), 1, new BigDecimal("3.75"));
+        receipt.add(store.find("F1"), 1, new BigDecimal("1.68"));
+        return receipt;
+    }
+
+    private static byte[] serialize(Receipt receipt) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(receipt);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] withTag(byte tag, byte[] body) {
+        byte[] payload = new byte[body.length + 1];
+        payload[0] = tag;
+        System.arraycopy(body, 0, payload, 1, body.length);
+        return payload;
+    }
+}
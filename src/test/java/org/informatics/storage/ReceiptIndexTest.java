@@ -0,0 +1,232 @@
+package org.informatics.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.informatics.entity.Cashier;
+import org.informatics.entity.FoodProduct;
+import org.informatics.entity.Receipt;
+import org.informatics.service.impl.FileServiceImpl;
+import org.informatics.util.ReceiptFormat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReceiptIndexTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2025, 3, 10);
+
+    private Cashier ivan;
+    private Cashier maria;
+    private FoodProduct product;
+    private ReceiptCatalog catalog;
+
+    @TempDir
+    File tempDir;
+
+    @BeforeEach
+    void setUp() {
+        ivan = new Cashier("C1", "Ivan Petrov", new BigDecimal("1000"));
+        maria = new Cashier("C2", "Maria Ivanova", new BigDecimal("1100"));
+        product = new FoodProduct("F1", "Milk", new BigDecimal("2.00"), MONDAY.plusDays(30), 100);
+        catalog = ReceiptCatalog.of(List.of(product), List.of(ivan, maria));
+    }
+
+    @Test
+    void testLookupsByNumberDateAndCashier() throws Exception {
+        // Arrange - a week of receipts, cashiers taking turns
+        writeWeek(ReceiptFormat.SERIALIZED);
+        FileServiceImpl fileService = new FileServiceImpl(catalog);
+
+        // Act
+        Receipt byNumber = fileService.load(tempDir, 42);
+        List<Receipt> tuesday = fileService.findByDate(tempDir, MONDAY.plusDays(1), MONDAY.plusDays(1));
+        List<Receipt> mariaMidweek = fileService.findByCashier(tempDir, "C2", MONDAY.plusDays(2), MONDAY.plusDays(4));
+
+        // Assert
+        assertEquals(42, byNumber.getNumber());
+        assertEquals(20, tuesday.size());
+        assertEquals(21, tuesday.getFirst().getNumber());
+        assertEquals(30, mariaMidweek.size());
+        for (Receipt r : mariaMidweek) {
+            assertEquals("C2", r.getCashier().getId());
+            assertTrue(!r.getTime().toLocalDate().isBefore(MONDAY.plusDays(2)));
+        }
+        assertEquals(null, fileService.load(tempDir, 1000));
+    }
+
+    @Test
+    void testMissingOrLaggingIndexIsCompletedOnOpen() throws Exception {
+        // Arrange - binary records, so the rebuild must work without a catalog
+        writeWeek(ReceiptFormat.BINARY);
+        File indexFile = new File(tempDir, ReceiptIndex.FILE_NAME);
+        try (RandomAccessFile file = new RandomAccessFile(indexFile, "rw")) {
+            file.setLength(file.length() / 2 - 3); // crash halfway through writing an entry
+        }
+
+        // Act
+        new ReceiptJournal(tempDir).close();
+        ReceiptIndex repaired = new ReceiptIndex(tempDir);
+        repaired.refresh();
+        assertTrue(indexFile.delete());
+        new ReceiptJournal(tempDir).close();
+        ReceiptIndex rebuilt = new ReceiptIndex(tempDir);
+        rebuilt.refresh();
+
+        // Assert
+        assertEquals(140, repaired.size());
+        assertEquals(140, rebuilt.size());
+        assertEquals(140, rebuilt.last().number());
+        assertEquals(20, rebuilt.findByDate(MONDAY.plusDays(6), MONDAY.plusDays(6)).size());
+    }
+
+    @Test
+    void testEntriesPastTruncatedSegmentAreDropped() throws Exception {
+        // Arrange - a crash lost the last five records of the journal but not their index entries
+        writeWeek(ReceiptFormat.BINARY);
+        FileServiceImpl before = new FileServiceImpl(catalog);
+        assertEquals(136, before.load(tempDir, 136).getNumber());
+        ReceiptIndex index = new ReceiptIndex(tempDir);
+        index.refresh();
+        JournalPosition cut = index.find(136).position();
+        try (RandomAccessFile file = new RandomAccessFile(new File(tempDir, JournalFormat.segmentName(cut.segment())), "rw")) {
+            file.setLength(cut.offset());
+        }
+
+        // Act - the records written after the restart take the same offsets
+        try (ReceiptJournal journal = new ReceiptJournal(tempDir, 4096, ReceiptFormat.BINARY)) {
+            for (int n = 200; n < 205; n++) {
+                journal.append(receipt(n, ivan, MONDAY.plusDays(6).atTime(12, 0).plusMinutes(n - 200)));
+            }
+        }
+        FileServiceImpl after = new FileServiceImpl(catalog);
+
+        // Assert
+        assertEquals(null, after.load(tempDir, 136));
+        assertEquals(null, before.load(tempDir, 136)); // Its index entry now points at receipt 200
+        assertEquals(200, after.load(tempDir, 200).getNumber());
+        List<Receipt> sunday = after.findByDate(tempDir, MONDAY.plusDays(6), MONDAY.plusDays(6));
+        assertEquals(20, sunday.size());
+        assertEquals(20, sunday.stream().mapToInt(Receipt::getNumber).distinct().count());
+        assertEquals(204, sunday.getLast().getNumber());
+    }
+
+    @Test
+    void testReaderNoticesIndexRewrittenPastWhereItStopped() throws Exception {
+        // Arrange - a long-lived reader, then a crash that lost the last five records and a restart that writes eight
+        writeWeek(ReceiptFormat.BINARY);
+        ReceiptIndex reader = new ReceiptIndex(tempDir);
+        reader.refresh();
+        JournalPosition cut = reader.find(136).position();
+        try (RandomAccessFile file = new RandomAccessFile(new File(tempDir, JournalFormat.segmentName(cut.segment())), "rw")) {
+            file.setLength(cut.offset());
+        }
+        try (ReceiptJournal journal = new ReceiptJournal(tempDir, 4096, ReceiptFormat.BINARY)) {
+            for (int n = 200; n < 208; n++) {
+                journal.append(receipt(n, ivan, MONDAY.plusDays(6).atTime(12, 0).plusMinutes(n - 200)));
+            }
+        }
+
+        // Act
+        reader.refresh();
+
+        // Assert - read again from the start, not from the middle of an entry
+        ReceiptIndex fresh = new ReceiptIndex(tempDir);
+        fresh.refresh();
+        assertEquals(null, reader.find(136));
+        assertEquals(fresh.size(), reader.size());
+        assertEquals(fresh.find(207), reader.find(207));
+        assertEquals(23, reader.findByDate(MONDAY.plusDays(6), MONDAY.plusDays(6)).size());
+    }
+
+    @Test
+    void testReaderFollowsJournalThatIsStillWritten() throws Exception {
+        // Arrange
+        FileServiceImpl fileService = new FileServiceImpl(catalog);
+        try (ReceiptJournal journal = new ReceiptJournal(tempDir)) {
+            journal.append(receipt(1, ivan, MONDAY.atTime(9, 0)));
+            assertEquals(1, fileService.findByDate(tempDir, MONDAY, MONDAY).size());
+
+            // Act
+            journal.append(receipt(2, ivan, MONDAY.atTime(9, 5)));
+
+            // Assert
+            assertEquals(2, fileService.findByDate(tempDir, MONDAY, MONDAY).size());
+            assertEquals(2, fileService.load(tempDir, 2).getNumber());
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void testIndexedLookupVersusFullLoad() throws Exception {
+        int days = 50;
+        int perDay = 1_000;
+        try (ReceiptJournal journal = new ReceiptJournal(tempDir, ReceiptJournal.DEFAULT_SEGMENT_SIZE, ReceiptFormat.BINARY)) {
+            int number = 0;
+            for (int day = 0; day < days; day++) {
+                for (int i = 0; i < perDay; i++) {
+                    number++;
+                    Cashier cashier = i % 2 == 0 ? ivan : maria;
+                    journal.append(receipt(number, cashier, MONDAY.plusDays(day).atTime(8, 0).plusSeconds(i * 30L)));
+                }
+            }
+        }
+        LocalDate day = MONDAY.plusDays(days / 2);
+
+        // First round only warms up the JIT
+        for (int round = 0; round < 2; round++) {
+            FileServiceImpl fileService = new FileServiceImpl(catalog);
+            long start = System.nanoTime();
+            List<Receipt> scanned = fileService.loadAll(tempDir).stream()
+                    .filter(r -> r.getCashier().getId().equals("C1") && r.getTime().toLocalDate().equals(day))
+                    .toList();
+            double scanMillis = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            fileService.findByCashier(tempDir, "C1", day, day); // Also reads journal.idx
+            double firstMillis = (System.nanoTime() - start) / 1e6;
+            start = System.nanoTime();
+            List<Receipt> indexed = fileService.findByCashier(tempDir, "C1", day, day);
+            double indexMillis = (System.nanoTime() - start) / 1e6;
+            start = System.nanoTime();
+            for (int n = 1; n <= 1_000; n++) {
+                fileService.load(tempDir, n * 37);
+            }
+            double pointMicros = (System.nanoTime() - start) / 1e3 / 1_000;
+
+            assertEquals(scanned.size(), indexed.size());
+            if (round == 1) {
+                System.out.printf("%d receipts: cashier/day via loadAll %.0f ms, via index %.1f ms (%.0f ms with opening the index); load(n) %.0f us%n",
+                        days * perDay, scanMillis, indexMillis, firstMillis, pointMicros);
+            }
+        }
+    }
+
+    // 7 days x 20 receipts, numbered 1..140; odd receipts by Ivan, even by Maria
+    private void writeWeek(ReceiptFormat format) throws IOException {
+        try (ReceiptJournal journal = new ReceiptJournal(tempDir, 4096, format)) {
+            int number = 0;
+            for (int day = 0; day < 7; day++) {
+                for (int i = 0; i < 20; i++) {
+                    number++;
+                    Cashier cashier = number % 2 == 1 ? ivan : maria;
+                    journal.append(receipt(number, cashier, MONDAY.plusDays(day).atTime(9, 0).plusMinutes(i)));
+                }
+            }
+        }
+    }
+
+    private Receipt receipt(int number, Cashier cashier, LocalDateTime time) {
+        Receipt receipt = new Receipt(number, cashier, time);
+        receipt.add(product, 1, new BigDecimal("2.40"));
+        return receipt;
+    }
+}
@@ -0,0 +1,298 @@
+package org.informatics.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.informatics.config.StoreConfig;
+import org.informatics.entity.Cashier;
+import org.informatics.entity.FoodProduct;
+import org.informatics.entity.Receipt;
+import org.informatics.service.impl.FileServiceImpl;
+import org.informatics.service.impl.StoreServiceImpl;
+import org.informatics.store.Store;
+import org.informatics.util.ReceiptFormat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReceiptJournalTest {
+
+    private Cashier cashier;
+    private FoodProduct product;
+
+    @TempDir
+    File tempDir;
+
+    @BeforeEach
+    void setUp() {
+        cashier = new Cashier("C1", "Ivan Petrov", new BigDecimal("1000"));
+        product = new FoodProduct("F1", "Milk", new BigDecimal("2.00"), LocalDate.now().plusDays(10), 100);
+    }
+
+    @Test
+    void testAppendedReceiptsAreReadBackInOrder() throws IOException {
+        // Arrange
+        Receipt first = receipt(1, 2);
+        Receipt second = receipt(2, 5);
+
+        // Act
+        JournalPosition firstPosition;
+        JournalPosition secondPosition;
+        try (ReceiptJournal journal = new ReceiptJournal(tempDir)) {
+            firstPosition = journal.append(first);
+            secondPosition = journal.append(second);
+        }
+        List<Receipt> loaded = new JournalReader(tempDir).readAll();
+
+        // Assert
+        assertTrue(first.isSealed());
+        assertEquals(new JournalPosition(1, 0), firstPosition);
+        assertTrue(secondPosition.offset() > firstPosition.offset());
+        assertEquals(2, loaded.size());
+        assertEquals(first.toString(), loaded.get(0).toString());
+        assertEquals(second.toString(), loaded.get(1).toString());
+        assertEquals(0, second.total().compareTo(loaded.get(1).total()));
+    }
+
+    @Test
+    void testFullSegmentRollsOverToNextFile() throws IOException {
+        // Arrange - room for only a couple of records per segment
+        try (ReceiptJournal journal = new ReceiptJournal(tempDir, 2048)) {
+
+            // Act
+            for (int i = 1; i <= 10; i++) {
+                journal.append(receipt(i, 1));
+            }
+
+            // Assert
+            assertTrue(journal.position().segment() > 1);
+        }
+        assertTrue(JournalFormat.segments(tempDir).size() > 1);
+        List<Receipt> loaded = new JournalReader(tempDir).readAll();
+        assertEquals(10, loaded.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i + 1, loaded.get(i).getNumber());
+        }
+    }
+
+    @Test
+    void testHalfWrittenRecordIsCutOffOnReopen() throws IOException {
+        // Arrange - simulate a crash in the middle of the second record
+        try (ReceiptJournal journal = new ReceiptJournal(tempDir)) {
+            journal.append(receipt(1, 1));
+            journal.append(receipt(2, 1));
+        }
+        File segment = JournalFormat.segments(tempDir).getFirst();
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.setLength(file.length() - 10);
+        }
+
+        // Act
+        try (ReceiptJournal journal = new ReceiptJournal(tempDir)) {
+            journal.append(receipt(3, 1));
+        }
+        List<Receipt> loaded = new JournalReader(tempDir).readAll();
+
+        // Assert
+        assertEquals(2, loaded.size());
+        assertEquals(1, loaded.get(0).getNumber());
+        assertEquals(3, loaded.get(1).getNumber());
+    }
+
+    @Test
+    void testFileServiceReadsJournalAndReceiptFiles() throws Exception {
+        // Arrange
+        receipt(1, 1).save(tempDir);
+        try (ReceiptJournal journal = new ReceiptJournal(tempDir)) {
+            journal.append(receipt(2, 1));
+            journal.append(receipt(3, 1));
+        }
+        FileServiceImpl fileService = new FileServiceImpl();
+
+        // Act
+        List<Receipt> all = fileService.loadAll(tempDir);
+        Receipt journaled = fileService.load(tempDir, 3);
+
+        // Assert
+        assertEquals(3, all.size());
+        assertNotNull(journaled);
+        assertEquals(3, journaled.getNumber());
+        assertEquals(null, fileService.load(tempDir, 4));
+    }
+
+    @Test
+    void testJournalModeSavesNoReceiptFiles() throws IOException {
+        // Arrange
+        Store store = new Store(config());
+        try (ReceiptJournal journal = new ReceiptJournal(tempDir)) {
+            StoreServiceImpl storeService = new StoreServiceImpl(store, journal);
+
+            // Act
+            storeService.saveReceipt(receipt(1, 1), tempDir);
+
+            // Assert
+            assertThrows(IllegalArgumentException.class,
+                    () -> storeService.saveReceipt(receipt(2, 1), new File(tempDir, "other")));
+        }
+        try (var files = Files.list(tempDir.toPath())) {
+            assertEquals(0, files.map(Path::getFileName).map(Path::toString).filter(n -> n.startsWith("receipt-")).count());
+        }
+        assertEquals(1, new JournalReader(tempDir).readAll().size());
+    }
+
+    @Test
+    void testMemoryMappedReadMatchesStreamRead() throws IOException {
+        // Arrange - both record formats, spread over several segments
+        ReceiptCatalog catalog = ReceiptCatalog.of(List.of(product), List.of(cashier));
+        try (ReceiptJournal serialized = new ReceiptJournal(tempDir, 4096)) {
+            for (int i = 1; i <= 5; i++) {
+                serialized.append(receipt(i, i));
+            }
+        }
+        try (ReceiptJournal binary = new ReceiptJournal(tempDir, 4096, ReceiptFormat.BINARY)) {
+            for (int i = 6; i <= 30; i++) {
+                binary.append(receipt(i, i));
+            }
+        }
+
+        // Act
+        List<Receipt> streamed = new JournalReader(tempDir, catalog).readAll();
+        List<Receipt> mapped = new JournalReader(tempDir, catalog, true).readAll();
+
+        // Assert
+        assertTrue(JournalFormat.segments(tempDir).size() > 1);
+        assertEquals(30, mapped.size());
+        for (int i = 0; i < 30; i++) {
+            assertEquals(streamed.get(i).toString(), mapped.get(i).toString());
+        }
+    }
+
+    @Test
+    void testMemoryMappedReadStopsAtDamagedRecord() throws Exception {
+        // Arrange - flip a byte inside the second record's payload
+        JournalPosition second;
+        try (ReceiptJournal journal = new ReceiptJournal(tempDir)) {
+            journal.append(receipt(1, 1));
+            second = journal.append(receipt(2, 1));
+            journal.append(receipt(3, 1));
+        }
+        try (RandomAccessFile file = new RandomAccessFile(JournalFormat.segments(tempDir).getFirst(), "rw")) {
+            long at = second.offset() + JournalFormat.HEADER_SIZE + 20;
+            file.seek(at);
+            int b = file.read();
+            file.seek(at);
+            file.write(b ^ 0xFF);
+        }
+        FileServiceImpl fileService = new FileServiceImpl();
+        fileService.setMemoryMapped(true);
+
+        // Act
+        List<Receipt> loaded = fileService.loadAll(tempDir);
+
+        // Assert - a scan stops at the damage, the index still reaches the intact record after it
+        assertEquals(1, loaded.size());
+        assertEquals(1, loaded.getFirst().getNumber());
+        assertEquals(null, fileService.load(tempDir, 2));
+        assertEquals(3, fileService.load(tempDir, 3).getNumber());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void testMemoryMappedBulkLoad() throws Exception {
+        int count = 50_000;
+        ReceiptCatalog catalog = ReceiptCatalog.of(List.of(product), List.of(cashier));
+        File filesDir = new File(tempDir, "files");
+        File journalDir = new File(tempDir, "journal");
+        for (int i = 1; i <= count; i++) {
+            receipt(i, 3).save(filesDir, ReceiptFormat.BINARY);
+        }
+        try (ReceiptJournal journal = new ReceiptJournal(journalDir, 8L * 1024 * 1024, ReceiptFormat.BINARY)) {
+            for (int i = 1; i <= count; i++) {
+                journal.append(receipt(i, 3));
+            }
+        }
+
+        // First round only warms up the JIT
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            int fromFiles = new FileServiceImpl(catalog).loadAll(filesDir).size();
+            double filesMillis = (System.nanoTime() - start) / 1e6;
+            start = System.nanoTime();
+            int streamed = new JournalReader(journalDir, catalog).readAll().size();
+            double streamMillis = (System.nanoTime() - start) / 1e6;
+            start = System.nanoTime();
+            int mapped = new JournalReader(journalDir, catalog, true).readAll().size();
+            double mappedMillis = (System.nanoTime() - start) / 1e6;
+
+            assertEquals(count, fromFiles);
+            assertEquals(count, streamed);
+            assertEquals(count, mapped);
+            if (round == 1) {
+                System.out.printf("%d receipts: .bin files %.0f ms, journal streamed %.0f ms, journal mapped %.0f ms%n",
+                        count, filesMillis, streamMillis, mappedMillis);
+            }
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void testJournalVersusFilePerReceipt() throws IOException {
+        int count = 5_000;
+
+        // First round only warms up the JIT
+        for (int round = 0; round < 2; round++) {
+            File filesDir = new File(tempDir, "files-" + round);
+            long start = System.nanoTime();
+            for (int i = 1; i <= count; i++) {
+                receipt(i, 3).save(filesDir);
+            }
+            double filesMillis = (System.nanoTime() - start) / 1e6;
+
+            File journalDir = new File(tempDir, "journal-" + round);
+            start = System.nanoTime();
+            try (ReceiptJournal journal = new ReceiptJournal(journalDir)) {
+                for (int i = 1; i <= count; i++) {
+                    journal.append(receipt(i, 3));
+                }
+            }
+            double journalMillis = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            int loadedFromFiles = new FileServiceImpl().loadAll(filesDir).size();
+            double filesLoadMillis = (System.nanoTime() - start) / 1e6;
+            start = System.nanoTime();
+            int loadedFromJournal = new JournalReader(journalDir).readAll().size();
+            double journalLoadMillis = (System.nanoTime() - start) / 1e6;
+
+            assertEquals(count, loadedFromFiles);
+            assertEquals(count, loadedFromJournal);
+            if (round == 1) {
+                System.out.printf("%d receipts: files save %.0f ms / load %.0f ms (%d files), "
+                                + "journal save %.0f ms / load %.0f ms (%d segments)%n",
+                        count, filesMillis, filesLoadMillis, filesDir.list().length,
+                        journalMillis, journalLoadMillis, JournalFormat.segments(journalDir).size());
+            }
+        }
+    }
+
+    private Receipt receipt(int number, int quantity) {
+        Receipt receipt = new Receipt(number, cashier);
+        receipt.add(product, quantity, new BigDecimal("2.40"));
+        return receipt;
+    }
+
+    private static StoreConfig config() {
+        return new StoreConfig(new BigDecimal("0.20"), new BigDecimal("0.25"), 3, new BigDecimal("0.30"));
+    }
+}
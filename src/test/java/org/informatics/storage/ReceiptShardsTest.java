@@ -0,0 +1,180 @@
+package org.informatics.storage;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.informatics.entity.Cashier;
+import org.informatics.entity.FoodProduct;
+import org.informatics.entity.Receipt;
+import org.informatics.service.impl.FileServiceImpl;
+import org.informatics.util.ReceiptFormat;
+import org.informatics.util.ReceiptLayout;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReceiptShardsTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2025, 3, 10);
+
+    private Cashier ivan;
+    private FoodProduct milk;
+    private ReceiptCatalog catalog;
+
+    @TempDir
+    File tempDir;
+
+    @BeforeEach
+    void setUp() {
+        ivan = new Cashier("C1", "Ivan Petrov", new BigDecimal("1000"));
+        milk = new FoodProduct("F1", "Milk", new BigDecimal("2.00"), MONDAY.plusDays(30), 100);
+        catalog = ReceiptCatalog.of(List.of(milk), List.of(ivan));
+    }
+
+    @Test
+    void testShardedReceiptsAreReadWithFlatOnes() throws Exception {
+        // Arrange - 2,500 receipts a day over two days, plus two old flat files
+        for (int n = 1; n <= 5_000; n += 250) {
+            receipt(n, 2_500).save(tempDir, n % 2 == 1 ? ReceiptFormat.SERIALIZED : ReceiptFormat.BINARY,
+                    ReceiptLayout.SHARDED);
+        }
+        receipt(10_001, MONDAY.minusDays(1)).save(tempDir);
+        receipt(10_002, MONDAY.minusDays(1)).save(tempDir, ReceiptFormat.BINARY);
+        FileServiceImpl fileService = new FileServiceImpl(catalog);
+
+        // Act
+        List<Receipt> all = fileService.loadAll(tempDir);
+        List<Receipt> tuesday = fileService.findByDate(tempDir, MONDAY.plusDays(1), MONDAY.plusDays(1));
+
+        // Assert
+        assertTrue(new File(tempDir, "2025-03-10/0002/receipt-2001.ser").exists());
+        assertTrue(new File(tempDir, "2025-03-10/0002/receipt-2001.txt").exists());
+        assertTrue(new File(tempDir, "2025-03-11/0004/receipt-4751.ser").exists());
+        assertEquals(22, all.size());
+        assertEquals(10, tuesday.size());
+        assertEquals(4_751, fileService.load(tempDir, 4_751).getNumber());
+        assertEquals(10_002, fileService.load(tempDir, 10_002).getNumber());
+        assertEquals(receipt(2_251, 2_500).toString(), fileService.load(tempDir, 2_251).toString());
+    }
+
+    @Test
+    void testMigrationMovesFlatFilesIntoShards() throws Exception {
+        // Arrange
+        for (int n = 1; n <= 30; n++) {
+            receipt(n, 10).save(tempDir, n % 3 == 0 ? ReceiptFormat.BINARY : ReceiptFormat.SERIALIZED);
+        }
+        FileServiceImpl fileService = new FileServiceImpl(catalog);
+        List<String> before = texts(fileService.loadAll(tempDir));
+
+        // Act
+        int moved = ReceiptShards.migrate(tempDir);
+        int movedAgain = ReceiptShards.migrate(tempDir);
+
+        // Assert
+        assertEquals(30, moved);
+        assertEquals(0, movedAgain);
+        assertEquals(3, ReceiptShards.days(tempDir).size());
+        assertEquals(3, tempDir.listFiles().length);
+        assertTrue(new File(tempDir, "2025-03-12/0000/receipt-30.bin").exists());
+        assertTrue(new File(tempDir, "2025-03-12/0000/receipt-30.txt").exists());
+        assertEquals(before, texts(fileService.loadAll(tempDir)));
+        assertNotNull(fileService.load(tempDir, 17));
+    }
+
+    @Test
+    void testArchivedShardsAreRemoved() throws Exception {
+        // Arrange
+        for (int n = 1; n <= 20; n++) {
+            receipt(n, 10).save(tempDir, ReceiptFormat.BINARY, ReceiptLayout.SHARDED);
+        }
+        File saving = ReceiptShards.directory(tempDir, MONDAY.plusDays(1), 5000); // Created, file not written yet
+        saving.mkdirs();
+
+        // Act - Monday is closed, Tuesday is open
+        ReceiptArchiver.Result result = new ReceiptArchiver(tempDir, () -> MONDAY.plusDays(1)).archive();
+
+        // Assert
+        assertEquals(10, result.receipts());
+        assertFalse(new File(tempDir, MONDAY.toString()).exists());
+        assertTrue(new File(tempDir, MONDAY.plusDays(1).toString()).exists());
+        assertTrue(saving.isDirectory());
+        assertEquals(20, new FileServiceImpl(catalog).loadAll(tempDir).size());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void testListingFlatVersusSharded() throws Exception {
+        int days = 20;
+        int perDay = 5_000;
+        File flat = new File(tempDir, "flat");
+        File sharded = new File(tempDir, "sharded");
+        flat.mkdirs();
+        // Empty files are enough to measure listing and lookup
+        for (int n = 1; n <= days * perDay; n++) {
+            LocalDate day = MONDAY.plusDays((n - 1) / perDay);
+            new File(flat, "receipt-" + n + ".ser").createNewFile();
+            File dir = ReceiptShards.directory(sharded, day, n);
+            if (!dir.exists()) {
+                dir.mkdirs();
+            }
+            new File(dir, "receipt-" + n + ".ser").createNewFile();
+        }
+        ReceiptFilter oneDay = ReceiptFilter.between(MONDAY.plusDays(7), MONDAY.plusDays(7));
+
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            int flatAll = flat.listFiles((File d, String name) -> ReceiptShards.isReceiptFile(name)).length;
+            double flatMillis = (System.nanoTime() - start) / 1e6;
+            start = System.nanoTime();
+            int shardedAll = ReceiptShards.receiptFiles(sharded, ReceiptFilter.ALL).size();
+            double shardedMillis = (System.nanoTime() - start) / 1e6;
+            start = System.nanoTime();
+            int shardedDay = ReceiptShards.receiptFiles(sharded, oneDay).size();
+            double dayMillis = (System.nanoTime() - start) / 1e6;
+
+            int lookups = 1_000;
+            start = System.nanoTime();
+            for (int i = 1; i <= lookups; i++) {
+                assertTrue(new File(flat, "receipt-" + (i * 97) + ".ser").exists());
+            }
+            double flatLookup = (System.nanoTime() - start) / 1e3 / lookups;
+            start = System.nanoTime();
+            for (int i = 1; i <= lookups; i++) {
+                assertNotNull(ReceiptShards.find(sharded, i * 97));
+            }
+            double shardedLookup = (System.nanoTime() - start) / 1e3 / lookups;
+
+            assertEquals(flatAll, shardedAll);
+            assertEquals(perDay, shardedDay);
+            if (round == 1) {
+                System.out.printf("%d files: list all flat %.0f ms, sharded %.0f ms, one day sharded %.0f ms; "
+                        + "lookup flat %.0f us, sharded %.0f us%n", flatAll, flatMillis, shardedMillis, dayMillis,
+                        flatLookup, shardedLookup);
+            }
+        }
+    }
+
+    // perDay receipts a day from Monday on
+    private Receipt receipt(int number, int perDay) {
+        return receipt(number, MONDAY.plusDays((number - 1) / perDay));
+    }
+
+    private Receipt receipt(int number, LocalDate day) {
+        LocalDateTime time = day.atTime(8, 0).plusSeconds(number % 1_000 * 20L);
+        Receipt receipt = new Receipt(number, ivan, time);
+        receipt.add(milk, 1 + number % 3, new BigDecimal("2.40"));
+        return receipt;
+    }
+
+    private static List<String> texts(List<Receipt> receipts) {
+        return receipts.stream().map(Receipt::toString).toList();
+    }
+}
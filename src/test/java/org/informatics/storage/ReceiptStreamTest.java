@@ -0,0 +1,178 @@
+package org.informatics.storage;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.informatics.entity.Cashier;
+import org.informatics.entity.FoodProduct;
+import org.informatics.entity.Product;
+import org.informatics.entity.Receipt;
+import org.informatics.service.impl.FileServiceImpl;
+import org.informatics.util.ReceiptFormat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReceiptStreamTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2025, 3, 10);
+
+    private Cashier ivan;
+    private Cashier maria;
+    private FoodProduct milk;
+    private ReceiptCatalog catalog;
+
+    @TempDir
+    File tempDir;
+
+    @BeforeEach
+    void setUp() {
+        ivan = new Cashier("C1", "Ivan Petrov", new BigDecimal("1000"));
+        maria = new Cashier("C2", "Maria Ivanova", new BigDecimal("1100"));
+        milk = new FoodProduct("F1", "Milk", new BigDecimal("2.00"), MONDAY.plusDays(30), 100);
+        catalog = ReceiptCatalog.of(List.of(milk), List.of(ivan, maria));
+    }
+
+    @Test
+    void testStreamMatchesListQueries() throws Exception {
+        // Arrange - journal receipts 1..100 over 5 days plus two separate files
+        writeJournal(ReceiptFormat.BINARY, 5, 20);
+        receipt(101, maria, MONDAY.plusDays(2).atTime(18, 0), milk).save(tempDir);
+        receipt(102, maria, MONDAY.plusDays(2).atTime(18, 5), milk).save(tempDir, ReceiptFormat.BINARY);
+        FileServiceImpl fileService = new FileServiceImpl(catalog);
+        ReceiptFilter filter = ReceiptFilter.byCashier("C2", MONDAY.plusDays(1), MONDAY.plusDays(2));
+
+        // Act
+        List<Receipt> streamed;
+        try (Stream<Receipt> receipts = fileService.stream(tempDir, filter)) {
+            streamed = receipts.toList();
+        }
+        List<Receipt> listed = fileService.findByCashier(tempDir, "C2", MONDAY.plusDays(1), MONDAY.plusDays(2));
+
+        // Assert
+        assertEquals(22, streamed.size());
+        assertEquals(listed.stream().map(Receipt::getNumber).toList(),
+                streamed.stream().map(Receipt::getNumber).toList());
+        assertTrue(streamed.stream().allMatch(filter));
+    }
+
+    @Test
+    void testEarlyTerminationReadsInOrderAndStops() throws Exception {
+        // Arrange - no index, so the journal itself is walked
+        writeJournal(ReceiptFormat.SERIALIZED, 3, 50);
+        assertTrue(new File(tempDir, ReceiptIndex.FILE_NAME).delete());
+        JournalReader reader = new JournalReader(tempDir, catalog);
+
+        // Act
+        List<Integer> firstThree;
+        try (Stream<Receipt> receipts = reader.stream(ReceiptFilter.between(MONDAY.plusDays(1), null))) {
+            firstThree = receipts.limit(3).map(Receipt::getNumber).toList();
+        }
+        int all;
+        try (Stream<Receipt> receipts = reader.stream(ReceiptFilter.ALL)) {
+            all = (int) receipts.count();
+        }
+
+        // Assert
+        assertEquals(List.of(51, 52, 53), firstThree);
+        assertEquals(150, all);
+    }
+
+    @Test
+    void testBinaryRecordsOutsideFilterAreNotDecoded() throws Exception {
+        // Arrange - a catalog that counts how many records get resolved through it
+        writeJournal(ReceiptFormat.BINARY, 5, 20);
+        assertTrue(new File(tempDir, ReceiptIndex.FILE_NAME).delete());
+        AtomicInteger lookups = new AtomicInteger();
+        ReceiptCatalog counting = new ReceiptCatalog() {
+            @Override
+            public Product findProduct(String id) {
+                return catalog.findProduct(id);
+            }
+
+            @Override
+            public Cashier findCashier(String id) {
+                lookups.incrementAndGet();
+                return catalog.findCashier(id);
+            }
+        };
+        JournalReader reader = new JournalReader(tempDir, counting);
+
+        // Act
+        long mariaOnWednesday;
+        try (Stream<Receipt> receipts = reader.stream(
+                ReceiptFilter.byCashier("C2", MONDAY.plusDays(2), MONDAY.plusDays(2)))) {
+            mariaOnWednesday = receipts.count();
+        }
+
+        // Assert - the other 90 records were skipped by their header
+        assertEquals(10, mariaOnWednesday);
+        assertEquals(10, lookups.get());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void testStreamingReportVersusLoadAll() throws Exception {
+        int days = 100;
+        int perDay = 2_000;
+        writeJournal(ReceiptFormat.BINARY, days, perDay);
+        FileServiceImpl fileService = new FileServiceImpl(catalog);
+
+        // First round only warms up the JIT
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            List<Receipt> loaded = fileService.loadAll(tempDir);
+            BigDecimal loadedTotal = loaded.stream().map(Receipt::total).reduce(BigDecimal.ZERO, BigDecimal::add);
+            double loadMillis = (System.nanoTime() - start) / 1e6;
+            long heldByList = usedHeap();
+            loaded = null;
+            heldByList -= usedHeap();
+
+            start = System.nanoTime();
+            BigDecimal streamedTotal;
+            try (Stream<Receipt> receipts = fileService.stream(tempDir, ReceiptFilter.ALL)) {
+                streamedTotal = receipts.map(Receipt::total).reduce(BigDecimal.ZERO, BigDecimal::add);
+            }
+            double streamMillis = (System.nanoTime() - start) / 1e6;
+
+            assertEquals(loadedTotal, streamedTotal);
+            if (round == 1) {
+                System.out.printf("%d receipts: loadAll + sum %.0f ms (list holds ~%d MB), stream + sum %.0f ms%n",
+                        days * perDay, loadMillis, heldByList >> 20, streamMillis);
+            }
+        }
+    }
+
+    private void writeJournal(ReceiptFormat format, int days, int perDay) throws Exception {
+        try (ReceiptJournal journal = new ReceiptJournal(tempDir, ReceiptJournal.DEFAULT_SEGMENT_SIZE, format)) {
+            int number = 0;
+            for (int day = 0; day < days; day++) {
+                for (int i = 0; i < perDay; i++) {
+                    number++;
+                    Cashier cashier = number % 2 == 1 ? ivan : maria;
+                    journal.append(receipt(number, cashier, MONDAY.plusDays(day).atTime(8, 0).plusSeconds(i * 10L), milk));
+                }
+            }
+        }
+    }
+
+    private Receipt receipt(int number, Cashier cashier, LocalDateTime time, FoodProduct product) {
+        Receipt receipt = new Receipt(number, cashier, time);
+        receipt.add(product, 1, new BigDecimal("2.40"));
+        return receipt;
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
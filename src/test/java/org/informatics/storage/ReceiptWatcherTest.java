@@ -0,0 +1,227 @@
+package org.informatics.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import org.informatics.entity.Cashier;
+import org.informatics.entity.FoodProduct;
+import org.informatics.entity.Receipt;
+import org.informatics.service.impl.FileServiceImpl;
+import org.informatics.service.impl.ReceiptWatcher;
+import org.informatics.util.ReceiptFormat;
+import org.informatics.util.ReceiptLayout;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReceiptWatcherTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2025, 3, 10);
+
+    private Cashier ivan;
+    private FoodProduct milk;
+    private FileServiceImpl fileService;
+
+    @TempDir
+    File tempDir;
+
+    @BeforeEach
+    void setUp() {
+        ivan = new Cashier("C1", "Ivan Petrov", new BigDecimal("1000"));
+        milk = new FoodProduct("F1", "Milk", new BigDecimal("2.00"), MONDAY.plusDays(30), 100);
+        fileService = new FileServiceImpl(ReceiptCatalog.of(List.of(milk), List.of(ivan)));
+    }
+
+    @Test
+    void testNewReceiptsAreAddedOnRefresh() throws Exception {
+        // Arrange
+        for (int n = 1; n <= 10; n++) {
+            receipt(n).save(tempDir);
+        }
+        List<Receipt> seen = new CopyOnWriteArrayList<>();
+        try (ReceiptWatcher watcher = fileService.watch(tempDir, Duration.ofHours(1), false)) {
+            watcher.addListener(seen::add);
+            int before = watcher.size();
+
+            // Act - one of each kind of storage, then an archive of files already in the view
+            receipt(11).save(tempDir, ReceiptFormat.BINARY);
+            receipt(12).save(tempDir, ReceiptFormat.SERIALIZED, ReceiptLayout.SHARDED);
+            try (ReceiptJournal journal = new ReceiptJournal(tempDir)) {
+                journal.append(receipt(13));
+            }
+            int added = watcher.refresh();
+            new ReceiptArchiver(tempDir, () -> MONDAY.plusDays(1)).archive();
+            int addedAgain = watcher.refresh();
+
+            // Assert
+            assertEquals(10, before);
+            assertEquals(3, added);
+            assertEquals(0, addedAgain);
+            assertEquals(List.of(11, 12, 13), seen.stream().map(Receipt::getNumber).sorted().toList());
+            assertEquals(texts(fileService.loadAll(tempDir)), texts(watcher.receipts()));
+        }
+    }
+
+    @Test
+    void testWatcherPicksUpFilesInTheBackground() throws Exception {
+        // Arrange
+        receipt(1).save(tempDir);
+        List<Receipt> seen = new CopyOnWriteArrayList<>();
+        try (ReceiptWatcher watcher = fileService.watch(tempDir, Duration.ofMillis(50), true)) {
+            watcher.addListener(seen::add);
+
+            // Act - a flat file, then a file in a shard directory that did not exist when watching began
+            receipt(2).save(tempDir, ReceiptFormat.BINARY);
+            receipt(3).save(tempDir, ReceiptFormat.BINARY, ReceiptLayout.SHARDED);
+            boolean arrived = await(() -> watcher.size() == 3);
+
+            // Assert
+            assertTrue(arrived, "receipts " + watcher.receipts());
+            assertEquals(2, seen.size());
+            assertNotNull(watcher.get(3));
+            assertEquals(receipt(3).toString(), watcher.get(3).toString());
+        }
+    }
+
+    @Test
+    void testLaterFilesInNewShardDirectoryAreSeen() throws Exception {
+        // Arrange - no periodic listing within the test, only events
+        try (ReceiptWatcher watcher = fileService.watch(tempDir, Duration.ofHours(1), true)) {
+            if (watcher.isPolling()) {
+                return; // No WatchService on this file system
+            }
+            receipt(1).save(tempDir, ReceiptFormat.BINARY, ReceiptLayout.SHARDED); // Creates day and bucket at once
+            assertTrue(await(() -> watcher.size() == 1));
+
+            // Act - the bucket already exists, so only an event from the bucket itself reports this one
+            receipt(2).save(tempDir, ReceiptFormat.BINARY, ReceiptLayout.SHARDED);
+            boolean arrived = await(() -> watcher.size() == 2);
+
+            // Assert
+            assertTrue(arrived, "receipts " + watcher.receipts());
+        }
+    }
+
+    @Test
+    void testHalfWrittenJournalRecordIsReadOnceComplete() throws Exception {
+        // Arrange - the second record is cut short, as if its writer were still in the middle of it
+        JournalPosition first;
+        try (ReceiptJournal journal = new ReceiptJournal(tempDir)) {
+            journal.append(receipt(1));
+            first = journal.position();
+            journal.append(receipt(2));
+        }
+        File segment = JournalFormat.segments(tempDir).getFirst();
+        byte[] written = Files.readAllBytes(segment.toPath());
+        Files.write(segment.toPath(), Arrays.copyOf(written, (int) first.offset() + 5));
+        PrintStream out = System.out;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(printed, true));
+        try (ReceiptWatcher watcher = fileService.watch(tempDir, Duration.ofHours(1), false)) {
+
+            // Act
+            int beforeComplete = watcher.refresh();
+            Files.write(segment.toPath(), written);
+            int afterComplete = watcher.refresh();
+
+            // Assert
+            assertEquals(0, beforeComplete);
+            assertEquals(1, afterComplete);
+            assertEquals(2, watcher.size());
+        } finally {
+            System.setOut(out);
+        }
+        assertFalse(printed.toString().contains("damaged"), printed.toString());
+    }
+
+    @Test
+    void testPollingWatcherPicksUpFiles() throws Exception {
+        // Arrange
+        try (ReceiptWatcher watcher = fileService.watch(tempDir, Duration.ofMillis(20), false)) {
+            assertTrue(watcher.isPolling());
+            assertEquals(0, watcher.size());
+
+            // Act
+            receipt(1).save(tempDir);
+            boolean arrived = await(() -> watcher.size() == 1);
+
+            // Assert
+            assertTrue(arrived);
+            assertFalse(watcher.receipts().isEmpty());
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void testRefreshVersusLoadAll() throws Exception {
+        int existing = 20_000;
+        for (int n = 1; n <= existing; n++) {
+            receipt(n).save(tempDir, ReceiptFormat.BINARY);
+        }
+        try (ReceiptWatcher watcher = fileService.watch(tempDir, Duration.ofHours(1), false);
+                ReceiptWatcher watching = fileService.watch(tempDir, Duration.ofHours(1), true)) {
+            for (int round = 0; round < 3; round++) {
+                int first = existing + round * 10 + 1;
+                for (int n = first; n < first + 10; n++) {
+                    receipt(n).save(tempDir, ReceiptFormat.BINARY);
+                }
+                long start = System.nanoTime();
+                int added = watcher.refresh();
+                double refreshMillis = (System.nanoTime() - start) / 1e6;
+                start = System.nanoTime();
+                int all = fileService.loadAll(tempDir).size();
+                double loadMillis = (System.nanoTime() - start) / 1e6;
+
+                // The background thread has been reading the events since the files were saved
+                start = System.nanoTime();
+                assertTrue(await(() -> watching.size() == all));
+                double eventMillis = (System.nanoTime() - start) / 1e6;
+
+                assertEquals(10, added);
+                assertEquals(all, watcher.size());
+                if (round == 2) {
+                    System.out.printf("%d files, 10 new: refresh %.0f ms, loadAll %.0f ms, watch service %.0f ms more%n",
+                            all, refreshMillis, loadMillis, eventMillis);
+                }
+            }
+        }
+    }
+
+    private Receipt receipt(int number) {
+        LocalDateTime time = MONDAY.atTime(8, 0).plusSeconds(number * 2L);
+        Receipt receipt = new Receipt(number, ivan, time);
+        receipt.add(milk, 1 + number % 3, new BigDecimal("2.40"));
+        return receipt;
+    }
+
+    // Waits up to 10 s for the background thread
+    private static boolean await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    private static List<String> texts(List<Receipt> receipts) {
+        return receipts.stream().map(Receipt::toString).toList();
+    }
+}
@@ -0,0 +1,237 @@
+package org.informatics.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.informatics.entity.Cashier;
+import org.informatics.entity.FoodProduct;
+import org.informatics.entity.Product;
+import org.informatics.entity.Receipt;
+import org.informatics.service.impl.FileServiceImpl;
+import org.informatics.storage.SalesExport.Column;
+import org.informatics.storage.SalesExportReader.Condition;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SalesExportTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2025, 3, 10);
+
+    private List<Cashier> cashiers;
+    private List<Product> products;
+    private ReceiptCatalog catalog;
+
+    @TempDir
+    File tempDir;
+
+    @BeforeEach
+    void setUp() {
+        cashiers = List.of(new Cashier("C1", "Ivan Petrov", new BigDecimal("1000")),
+                new Cashier("C2", "Maria Ivanova", new BigDecimal("1100")));
+        products = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            products.add(new FoodProduct("P" + i, "Product " + i, new BigDecimal("1.50"), MONDAY.plusDays(30), 1_000_000));
+        }
+        catalog = ReceiptCatalog.of(products, cashiers);
+    }
+
+    @Test
+    void testLinesSurviveRoundTrip() throws Exception {
+        // Arrange - chunks of 64 rows, so receipts are split across chunks and prices of both scales share one
+        List<Receipt> receipts = receipts(100, new Random(1));
+        File target = new File(tempDir, "sales.rcc");
+        try (SalesExport export = new SalesExport(target, 64)) {
+            for (Receipt receipt : receipts) {
+                export.add(receipt);
+            }
+        }
+
+        // Act
+        SalesExportReader reader = SalesExportReader.open(target);
+        List<String> read = new ArrayList<>();
+        SalesExportReader.Scan scan = reader.scan(EnumSet.allOf(Column.class), List.of(), batch -> {
+            for (int r = 0; r < batch.size(); r++) {
+                read.add(row(batch.number(r), batch.time(r), batch.cashierId(r), batch.productId(r),
+                        batch.quantity(r), batch.price(r)));
+            }
+        });
+
+        // Assert
+        List<String> written = new ArrayList<>();
+        for (Receipt receipt : receipts) {
+            for (Receipt.Line line : receipt.getLines()) {
+                written.add(row(receipt.getNumber(), receipt.getTime(), receipt.getCashier().getId(),
+                        line.product().getId(), line.quantity(), line.price()));
+            }
+        }
+        assertEquals(written, read);
+        assertEquals(written.size(), reader.rows());
+        assertEquals((written.size() + 63) / 64, reader.chunks());
+        assertEquals(reader.chunks(), scan.chunksRead());
+        assertFalse(new File(tempDir, "sales.rcc.tmp").exists());
+    }
+
+    @Test
+    void testChunksAreSkippedByStats() throws Exception {
+        // Arrange
+        List<Receipt> receipts = receipts(1_000, new Random(2));
+        File target = new File(tempDir, "sales.rcc");
+        try (SalesExport export = new SalesExport(target, 100)) {
+            for (Receipt receipt : receipts) {
+                export.add(receipt);
+            }
+        }
+        SalesExportReader reader = SalesExportReader.open(target);
+        LocalDateTime from = MONDAY.atTime(10, 0);
+        LocalDateTime to = MONDAY.atTime(10, 59, 59);
+        int[] rows = new int[1];
+
+        // Act - one hour of a day's sales, then one cashier in that hour, then a product never sold
+        SalesExportReader.Scan hour = reader.scan(EnumSet.of(Column.QUANTITY), List.of(Condition.time(from, to)),
+                batch -> rows[0] += batch.size());
+        SalesExportReader.Scan cashier = reader.scan(EnumSet.of(Column.CASHIER),
+                List.of(Condition.time(from, to), reader.cashier("C2")), batch -> {
+                    for (int r = 0; r < batch.size(); r++) {
+                        assertEquals("C2", batch.cashierId(r));
+                    }
+                });
+        SalesExportReader.Scan unknown = reader.scan(EnumSet.of(Column.QUANTITY), List.of(reader.product("X")),
+                batch -> rows[0] = -1);
+
+        // Assert
+        long expected = receipts.stream().filter(r -> !r.getTime().isBefore(from) && !r.getTime().isAfter(to))
+                .mapToLong(r -> r.getLines().size()).sum();
+        long expectedC2 = receipts.stream().filter(r -> !r.getTime().isBefore(from) && !r.getTime().isAfter(to))
+                .filter(r -> r.getCashier().getId().equals("C2")).mapToLong(r -> r.getLines().size()).sum();
+        assertEquals(expected, hour.rows());
+        assertEquals(expected, rows[0]);
+        assertEquals(expectedC2, cashier.rows());
+        assertTrue(hour.chunksSkipped() > hour.chunksRead(), hour.toString());
+        assertEquals(0, unknown.rows());
+        assertEquals(0, unknown.chunksRead());
+        assertThrows(IllegalStateException.class, () -> reader.scan(EnumSet.of(Column.QUANTITY), List.of(),
+                batch -> batch.price(0)));
+    }
+
+    @Test
+    void testDamagedExportIsRejected() throws Exception {
+        // Arrange
+        File target = new File(tempDir, "sales.rcc");
+        SalesExport.export(receipts(50, new Random(3)).stream(), target);
+        File truncated = new File(tempDir, "truncated.rcc");
+        Files.copy(target.toPath(), truncated.toPath());
+        try (RandomAccessFile file = new RandomAccessFile(truncated, "rw")) {
+            file.setLength(file.length() - 5);
+        }
+        try (RandomAccessFile file = new RandomAccessFile(target, "rw")) {
+            file.seek(8);
+            file.write(file.read() ^ 0xFF); // Inside the first column chunk
+        }
+
+        // Act & Assert
+        assertThrows(IOException.class, () -> SalesExportReader.open(truncated));
+        SalesExportReader reader = SalesExportReader.open(target);
+        assertThrows(IOException.class, () -> reader.scan(EnumSet.of(Column.NUMBER), List.of(), batch -> { }));
+        assertThrows(IllegalArgumentException.class, () -> new Condition(Column.PRICE, 0, 1));
+    }
+
+    @Test
+    @Tag("benchmark")
+    void testRevenueByProductFromExportVersusLoadAll() throws Exception {
+        File dir = new File(tempDir, "receipts");
+        List<Receipt> receipts = receipts(20_000, new Random(4));
+        try (ReceiptJournal journal = new ReceiptJournal(dir)) {
+            for (Receipt receipt : receipts) {
+                journal.append(receipt);
+            }
+        }
+        FileServiceImpl fileService = new FileServiceImpl(catalog);
+        File target = new File(tempDir, "sales.rcc");
+
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            Map<String, BigDecimal> fromReceipts = new HashMap<>();
+            for (Receipt receipt : fileService.loadAll(dir)) {
+                for (Receipt.Line line : receipt.getLines()) {
+                    fromReceipts.merge(line.product().getId(), line.total(), BigDecimal::add);
+                }
+            }
+            double loadMillis = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            long rows;
+            try (var stream = fileService.stream(dir, ReceiptFilter.ALL)) {
+                rows = SalesExport.export(stream, target);
+            }
+            double exportMillis = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            Map<String, BigDecimal> fromExport = new HashMap<>();
+            SalesExportReader reader = SalesExportReader.open(target);
+            reader.scan(EnumSet.of(Column.PRODUCT, Column.QUANTITY, Column.PRICE), List.of(), batch -> {
+                for (int r = 0; r < batch.size(); r++) {
+                    fromExport.merge(batch.productId(r), batch.price(r).multiply(BigDecimal.valueOf(batch.quantity(r))),
+                            BigDecimal::add);
+                }
+            });
+            double scanMillis = (System.nanoTime() - start) / 1e6;
+
+            start = System.nanoTime();
+            SalesExportReader.Scan hour = reader.scan(EnumSet.of(Column.QUANTITY),
+                    List.of(Condition.time(MONDAY.atTime(10, 0), MONDAY.atTime(10, 59, 59))), batch -> { });
+            double hourMillis = (System.nanoTime() - start) / 1e6;
+
+            assertEquals(fromReceipts.keySet(), fromExport.keySet());
+            for (String id : fromReceipts.keySet()) {
+                assertEquals(0, fromReceipts.get(id).compareTo(fromExport.get(id)));
+            }
+            if (round == 1) {
+                long journalBytes = 0;
+                for (File segment : JournalFormat.segments(dir)) {
+                    journalBytes += segment.length();
+                }
+                System.out.printf("%d rows: serialized journal %d KB, export %d KB; revenue by product: loadAll %.0f ms, "
+                        + "export %.0f ms, scan of 3 columns %.0f ms; one hour %.1f ms (%s)%n", rows, journalBytes >> 10,
+                        target.length() >> 10, loadMillis, exportMillis, scanMillis, hourMillis, hour);
+            }
+        }
+    }
+
+    private static String row(int number, LocalDateTime time, String cashierId, String productId, int quantity,
+            BigDecimal price) {
+        return number + " " + time + " " + cashierId + " " + productId + " " + quantity + " "
+                + price.stripTrailingZeros().toPlainString();
+    }
+
+    // Receipts every 5 seconds through one day, one to eight lines each, prices with 2 or 3 decimals
+    private List<Receipt> receipts(int count, Random random) {
+        List<Receipt> receipts = new ArrayList<>(count);
+        for (int n = 1; n <= count; n++) {
+            LocalDateTime time = MONDAY.atTime(8, 0).plusSeconds(n * 5L).plusNanos(random.nextInt(1_000_000_000));
+            Receipt receipt = new Receipt(n, cashiers.get(random.nextInt(cashiers.size())), time);
+            for (int l = 0, lines = 1 + random.nextInt(8); l < lines; l++) {
+                receipt.add(products.get(random.nextInt(products.size())), 1 + random.nextInt(4),
+                        BigDecimal.valueOf(100 + random.nextInt(9_000), random.nextInt(4) == 0 ? 3 : 2));
+            }
+            receipts.add(receipt);
+        }
+        return receipts;
+    }
+}
@@ -0,0 +1,155 @@
+package org.informatics.storage;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.informatics.entity.Cashier;
+import org.informatics.entity.FoodProduct;
+import org.informatics.entity.Product;
+import org.informatics.entity.Receipt;
+import org.informatics.service.impl.FileServiceImpl;
+import org.informatics.util.ReceiptFormat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SegmentDictionaryTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2025, 3, 10);
+
+    private Cashier ivan;
+    private List<Product> products;
+    private ReceiptCatalog catalog;
+
+    @TempDir
+    File tempDir;
+
+    @BeforeEach
+    void setUp() {
+        ivan = new Cashier("C1", "Ivan Petrov", new BigDecimal("1000"));
+        products = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            // EAN-13 style ids, as a real catalog would have
+            products.add(new FoodProduct(String.valueOf(3800000000000L + i * 7919L), "Product " + i,
+                    new BigDecimal("1.50"), MONDAY.plusDays(30), 1_000_000));
+        }
+        catalog = ReceiptCatalog.of(products, List.of(ivan));
+    }
+
+    @Test
+    void testReceiptsSurviveRoundTripAcrossSegments() throws Exception {
+        // Arrange - small segments, so several dictionaries are written
+        List<Receipt> written = receipts(300, new Random(1));
+        try (ReceiptJournal journal = new ReceiptJournal(tempDir, 4 * 1024, ReceiptFormat.DICTIONARY)) {
+            for (Receipt receipt : written) {
+                journal.append(receipt);
+            }
+        }
+
+        // Act
+        List<Receipt> read = new JournalReader(tempDir, catalog).readAll();
+        Receipt found = new FileServiceImpl(catalog).load(tempDir, 123);
+
+        // Assert - same text, and products come from the catalog instead of being copied per receipt
+        int segments = JournalFormat.segments(tempDir).size();
+        assertTrue(segments > 2, "segments " + segments);
+        assertTrue(new File(tempDir, JournalFormat.dictionaryName(segments)).exists());
+        assertEquals(texts(written), texts(read));
+        assertEquals(written.get(122).toString(), found.toString());
+        Receipt.Line line = read.getLast().getLines().getFirst();
+        assertSame(catalog.findProduct(line.product().getId()), line.product());
+    }
+
+    @Test
+    void testHalfWrittenDictionaryEntryIsDropped() throws Exception {
+        // Arrange - a crash left a partial id at the end of the dictionary
+        List<Receipt> written = receipts(40, new Random(2));
+        try (ReceiptJournal journal = new ReceiptJournal(tempDir, ReceiptJournal.DEFAULT_SEGMENT_SIZE, ReceiptFormat.DICTIONARY)) {
+            for (Receipt receipt : written.subList(0, 20)) {
+                journal.append(receipt);
+            }
+        }
+        try (FileOutputStream out = new FileOutputStream(new File(tempDir, JournalFormat.dictionaryName(1)), true)) {
+            out.write(new byte[] {0, 13, '3', '8'});
+        }
+
+        // Act - a reader opened before the rest is written has to pick up the ids added later
+        JournalReader reader = new JournalReader(tempDir, catalog);
+        assertEquals(20, reader.readAll().size());
+        try (ReceiptJournal journal = new ReceiptJournal(tempDir, ReceiptJournal.DEFAULT_SEGMENT_SIZE, ReceiptFormat.DICTIONARY)) {
+            for (Receipt receipt : written.subList(20, 40)) {
+                journal.append(receipt);
+            }
+        }
+
+        // Assert
+        assertEquals(texts(written), texts(reader.readAll()));
+    }
+
+    @Test
+    @Tag("benchmark")
+    void testSizeAndLoadCostByFormat() throws Exception {
+        List<Receipt> receipts = receipts(50_000, new Random(3));
+        System.out.println("format        bytes/receipt   loadAll     heap held");
+        for (int round = 0; round < 2; round++) {
+            for (ReceiptFormat format : ReceiptFormat.values()) {
+                File dir = new File(tempDir, format.name() + round);
+                try (ReceiptJournal journal = new ReceiptJournal(dir, ReceiptJournal.DEFAULT_SEGMENT_SIZE, format)) {
+                    for (Receipt receipt : receipts) {
+                        journal.append(receipt);
+                    }
+                }
+                long bytes = 0;
+                for (File file : dir.listFiles((File d, String name) -> name.startsWith("journal-"))) {
+                    bytes += file.length();
+                }
+
+                long heapBefore = usedHeap();
+                long start = System.nanoTime();
+                List<Receipt> loaded = new JournalReader(dir, catalog).readAll();
+                double millis = (System.nanoTime() - start) / 1e6;
+                long held = usedHeap() - heapBefore;
+                assertEquals(receipts.size(), loaded.size());
+                if (round == 1) {
+                    System.out.printf("%-12s %10d   %8.0f ms   %6d MB%n",
+                            format, bytes / receipts.size(), millis, held >> 20);
+                }
+            }
+        }
+    }
+
+    // Five lines a receipt from a 200-product catalog
+    private List<Receipt> receipts(int count, Random random) {
+        List<Receipt> receipts = new ArrayList<>(count);
+        for (int n = 1; n <= count; n++) {
+            LocalDateTime time = MONDAY.atTime(8, 0).plusSeconds(n * 3L);
+            Receipt receipt = new Receipt(n, ivan, time);
+            for (int l = 0; l < 5; l++) {
+                receipt.add(products.get(random.nextInt(products.size())), 1 + random.nextInt(4),
+                        BigDecimal.valueOf(100 + random.nextInt(900), 2));
+            }
+            receipts.add(receipt);
+        }
+        return receipts;
+    }
+
+    private static List<String> texts(List<Receipt> receipts) {
+        return receipts.stream().map(Receipt::toString).toList();
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -124,5 +124,34 @@ class BasicOperationsTest {
         assertEquals(5, product.getQuantity());
     }
 
+    @Test
+    void testTryDecrementReducesStock() {
+        // Arrange
+        Product product = new FoodProduct("F1", "Test Milk", new BigDecimal("2.50"), 
+                LocalDate.now().plusDays(7), 5);
+        
+        // Act
+        boolean taken = product.tryDecrement(5);
+        
+        // Assert
+        assertTrue(taken);
+        assertEquals(0, product.getQuantity());
+    }
+
+    @Test
+    void testTryDecrementFailsCleanlyWhenStockIsInsufficient() {
+        // Arrange
+        Product product = new FoodProduct("F1", "Test Milk", new BigDecimal("2.50"), 
+                LocalDate.now().plusDays(7), 5);
+        
+        // Act
+        boolean taken = product.tryDecrement(6);
+        
+        // Assert - nothing is taken and no exception is thrown
+        assertFalse(taken);
+        assertEquals(5, product.getQuantity());
+        assertThrows(IllegalArgumentException.class, () -> product.tryDecrement(0));
+    }
+
 
 } 
\ No newline at end of file
@@ -0,0 +1,146 @@
+package org.informatics.store;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.informatics.config.StoreConfig;
+import org.informatics.entity.CashDesk;
+import org.informatics.entity.Cashier;
+import org.informatics.entity.Customer;
+import org.informatics.entity.FoodProduct;
+import org.informatics.entity.Receipt;
+import org.informatics.exception.ProductExpiredException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+class BusinessClockTest {
+
+    private static final ZoneId ZONE = ZoneOffset.UTC;
+
+    private StoreConfig config;
+    private ManualClock time;
+    private BusinessClock clock;
+
+    @BeforeEach
+    void setUp() {
+        config = new StoreConfig(
+                new BigDecimal("0.20"), // 20% food markup
+                new BigDecimal("0.25"), // 25% non-food markup
+                3, // near expiry days
+                new BigDecimal("0.30") // near expiry discount
+        );
+        time = new ManualClock(LocalDateTime.of(2025, 3, 14, 23, 59, 58).atZone(ZONE).toInstant());
+        clock = new BusinessClock(time);
+    }
+
+    @Test
+    void testTodayChangesExactlyAtMidnight() {
+        // Act & Assert
+        assertEquals(LocalDate.of(2025, 3, 14), clock.today());
+        time.advanceMillis(1_999);
+        assertEquals(LocalDate.of(2025, 3, 14), clock.today());
+        time.advanceMillis(1);
+        assertEquals(LocalDate.of(2025, 3, 15), clock.today());
+        assertEquals(LocalDateTime.of(2025, 3, 15, 0, 0), clock.now());
+    }
+
+    @Test
+    void testStoreSellsByBusinessDate() throws Exception {
+        // Arrange - the milk expires on the 15th
+        Store store = new Store(config, new ReceiptSequence(), clock);
+        store.addProduct(new FoodProduct("F1", "Milk", new BigDecimal("10.00"), LocalDate.of(2025, 3, 15), 10));
+        Cashier cashier = new Cashier("C1", "Cashier", new BigDecimal("1000"));
+        CashDesk desk = new CashDesk();
+        store.addCashier(cashier);
+        store.addCashDesk(desk);
+        store.assignCashierToDesk(cashier.getId(), desk.getId());
+        Customer customer = new Customer("CU1", "Customer", new BigDecimal("100"));
+
+        // Act
+        Receipt receipt = store.sell(cashier, "F1", 1, customer);
+        time.advanceMillis(2_000);
+
+        // Assert - still sellable (with the near-expiry discount) on the 14th, expired after midnight
+        assertEquals(LocalDateTime.of(2025, 3, 14, 23, 59, 58), receipt.getTime());
+        assertEquals(0, new BigDecimal("8.40").compareTo(receipt.total()));
+        assertThrows(ProductExpiredException.class, () -> store.sell(cashier, "F1", 1, customer));
+    }
+
+    @Test
+    void testAcceleratedClockRunsFasterThanRealTime() throws Exception {
+        // Arrange - one real millisecond is one simulated day
+        BusinessClock fast = BusinessClock.accelerated(LocalDateTime.of(2025, 1, 1, 0, 0), ZONE, 86_400_000);
+
+        // Act
+        Thread.sleep(20);
+
+        // Assert
+        assertTrue(fast.today().isAfter(LocalDate.of(2025, 1, 10)));
+    }
+
+    @Test
+    @Tag("benchmark")
+    void testCachedDateVersusLocalDateNow() {
+        BusinessClock system = BusinessClock.system();
+        int calls = 5_000_000;
+
+        // First round only warms up the JIT
+        for (int round = 0; round < 2; round++) {
+            LocalDate sink = null;
+            long start = System.nanoTime();
+            for (int i = 0; i < calls; i++) {
+                sink = LocalDate.now();
+            }
+            double nowNanos = (double) (System.nanoTime() - start) / calls;
+
+            start = System.nanoTime();
+            for (int i = 0; i < calls; i++) {
+                sink = system.today();
+            }
+            double cachedNanos = (double) (System.nanoTime() - start) / calls;
+
+            if (round == 1) {
+                System.out.printf("LocalDate.now() %5.1f ns, BusinessClock.today() %5.1f ns (%s)%n",
+                        nowNanos, cachedNanos, sink);
+            }
+        }
+    }
+
+    // Clock that only moves when the test says so
+    private static class ManualClock extends Clock {
+
+        private Instant instant;
+
+        ManualClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advanceMillis(long millis) {
+            instant = instant.plusMillis(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZONE;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
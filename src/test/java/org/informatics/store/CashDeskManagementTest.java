@@ -1,6 +1,7 @@
 package org.informatics.store;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -198,5 +199,51 @@ class CashDeskManagementTest {
         assertEquals(desk2.getId(), store.getAssignedDeskForCashier("C1").orElseThrow().getId());
     }
 
+    @Test
+    void testDeskAssignedDirectlyIsFound() throws Exception {
+        // Arrange - assigned on the desk itself, after the desk was added to the store
+        Cashier cashier = new Cashier("C1", "Test Cashier", new BigDecimal("1000"));
+        CashDesk desk = new CashDesk();
+        store.addCashier(cashier);
+        store.addCashDesk(desk);
+
+        // Act
+        desk.assignCashier(cashier);
+
+        // Assert
+        assertEquals(desk.getId(), store.getAssignedDeskForCashier("C1").orElseThrow().getId());
+        desk.releaseCashier();
+        assertFalse(store.getAssignedDeskForCashier("C1").isPresent());
+    }
+
+    @Test
+    void testLookupsOnStoreWithThousandsOfDesks() throws Exception {
+        // Arrange
+        List<CashDesk> desks = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            CashDesk desk = new CashDesk();
+            store.addCashier(new Cashier("C" + i, "Cashier " + i, new BigDecimal("1000")));
+            store.addCashDesk(desk);
+            desks.add(desk);
+        }
+        for (int i = 0; i < 5000; i++) {
+            store.assignCashierToDesk("C" + i, desks.get(i).getId());
+        }
+        
+        // Act - move the last cashier to a new desk
+        CashDesk extraDesk = new CashDesk();
+        store.addCashDesk(extraDesk);
+        store.releaseCashierFromDesk(desks.get(4999).getId());
+        store.assignCashierToDesk("C4999", extraDesk.getId());
+        
+        // Assert
+        assertEquals(desks.get(1234).getId(), store.getAssignedDeskForCashier("C1234").orElseThrow().getId());
+        assertEquals(extraDesk.getId(), store.getAssignedDeskForCashier("C4999").orElseThrow().getId());
+        assertFalse(desks.get(4999).isOccupied());
+        assertEquals("Cashier 42", store.findCashierById("C42").orElseThrow().getName());
+        assertTrue(store.findCashDeskById(extraDesk.getId()).isPresent());
+        assertFalse(store.findCashDeskById("NO_DESK").isPresent());
+    }
+
 
 } 
\ No newline at end of file
@@ -0,0 +1,145 @@
+package org.informatics.store;
+
+import java.io.File;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import org.informatics.config.StoreConfig;
+import org.informatics.entity.Basket;
+import org.informatics.entity.CashDesk;
+import org.informatics.entity.Cashier;
+import org.informatics.entity.Customer;
+import org.informatics.entity.FoodProduct;
+import org.informatics.entity.NonFoodProduct;
+import org.informatics.entity.Receipt;
+import org.informatics.exception.InsufficientBudgetException;
+import org.informatics.exception.InsufficientQuantityException;
+import org.informatics.exception.ProductNotFoundException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CheckoutTest {
+
+    private Store store;
+    private Cashier cashier;
+
+    @TempDir
+    File tempDir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        StoreConfig config = new StoreConfig(
+                new BigDecimal("0.20"), // 20% food markup
+                new BigDecimal("0.25"), // 25% non-food markup
+                3, // near expiry days
+                new BigDecimal("0.30") // near expiry discount
+        );
+        store = new Store(config);
+        cashier = new Cashier("C1", "Test Cashier", new BigDecimal("1000"));
+        store.addCashier(cashier);
+        CashDesk desk = new CashDesk();
+        store.addCashDesk(desk);
+        store.assignCashierToDesk(cashier.getId(), desk.getId());
+
+        store.addProduct(new FoodProduct("F1", "Milk", new BigDecimal("2.00"), LocalDate.now().plusDays(10), 10));
+        store.addProduct(new NonFoodProduct("N1", "Soap", new BigDecimal("4.00"), LocalDate.now().plusYears(1), 5));
+    }
+
+    @Test
+    void testCheckoutCreatesSingleReceiptForWholeBasket() throws Exception {
+        // Arrange
+        Customer customer = new Customer("CU1", "Test Customer", new BigDecimal("100"));
+        Basket basket = new Basket().add("F1", 2).add("N1", 1);
+
+        // Act
+        Receipt receipt = store.checkout(cashier, basket, customer);
+
+        // Assert - 2 * 2.40 + 1 * 5.00 = 9.80
+        assertEquals(2, receipt.getLines().size());
+        assertEquals(0, new BigDecimal("9.80").compareTo(receipt.total()));
+        assertEquals(0, new BigDecimal("90.20").compareTo(customer.getBalance()));
+        assertEquals(8, store.find("F1").getQuantity());
+        assertEquals(4, store.find("N1").getQuantity());
+        assertEquals(1, store.listReceipts().size());
+    }
+
+    @Test
+    void testRepeatedProductInBasketIsMerged() throws Exception {
+        // Arrange
+        Customer customer = new Customer("CU1", "Test Customer", new BigDecimal("100"));
+        Basket basket = new Basket().add("F1", 6).add("F1", 5);
+
+        // Act & Assert - 11 in total is more than the 10 in stock
+        assertEquals(1, basket.size());
+        assertThrows(InsufficientQuantityException.class, () -> store.checkout(cashier, basket, customer));
+        assertEquals(10, store.find("F1").getQuantity());
+    }
+
+    @Test
+    void testFailingLineLeavesStockAndBalanceUntouched() {
+        // Arrange
+        Customer customer = new Customer("CU1", "Test Customer", new BigDecimal("100"));
+        Basket basket = new Basket().add("F1", 2).add("N1", 1).add("MISSING", 1);
+
+        // Act
+        ProductNotFoundException exception = assertThrows(ProductNotFoundException.class,
+                () -> store.checkout(cashier, basket, customer));
+
+        // Assert
+        assertTrue(exception.getMessage().contains("MISSING"));
+        assertEquals(10, store.find("F1").getQuantity());
+        assertEquals(5, store.find("N1").getQuantity());
+        assertEquals(0, new BigDecimal("100").compareTo(customer.getBalance()));
+        assertTrue(store.getSoldItems().isEmpty());
+        assertTrue(store.listReceipts().isEmpty());
+    }
+
+    @Test
+    void testInsufficientBudgetChargesNothing() {
+        // Arrange
+        Customer customer = new Customer("CU1", "Test Customer", new BigDecimal("5.00"));
+        Basket basket = new Basket().add("F1", 1).add("N1", 1); // 2.40 + 5.00 = 7.40
+
+        // Act & Assert
+        assertThrows(InsufficientBudgetException.class, () -> store.checkout(cashier, basket, customer));
+        assertEquals(0, new BigDecimal("5.00").compareTo(customer.getBalance()));
+        assertEquals(10, store.find("F1").getQuantity());
+        assertEquals(5, store.find("N1").getQuantity());
+        assertEquals(0, BigDecimal.ZERO.compareTo(store.costOfSoldGoods()));
+    }
+
+    @Test
+    void testFailingReceiptSequenceSellsNothing() throws Exception {
+        // Arrange - the sequence state can't be saved, its directory is a file
+        File blocker = new File(tempDir, "blocker");
+        blocker.createNewFile();
+        Store failing = new Store(store.getConfig(), new ReceiptSequence(new File(blocker, "sequence"), 10));
+        failing.addCashier(cashier);
+        CashDesk desk = new CashDesk();
+        failing.addCashDesk(desk);
+        failing.assignCashierToDesk(cashier.getId(), desk.getId());
+        failing.addProduct(new FoodProduct("F1", "Milk", new BigDecimal("2.00"), LocalDate.now().plusDays(10), 10));
+        Customer customer = new Customer("CU1", "Test Customer", new BigDecimal("100"));
+
+        // Act & Assert
+        assertThrows(UncheckedIOException.class, () -> failing.checkout(cashier, new Basket().add("F1", 2), customer));
+        assertThrows(UncheckedIOException.class, () -> failing.sell(cashier, "F1", 1, customer));
+        assertEquals(10, failing.find("F1").getQuantity());
+        assertEquals(0, new BigDecimal("100").compareTo(customer.getBalance()));
+        assertTrue(failing.listReceipts().isEmpty());
+    }
+
+    @Test
+    void testEmptyBasketThrowsIllegalArgumentException() {
+        // Arrange
+        Customer customer = new Customer("CU1", "Test Customer", new BigDecimal("100"));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> store.checkout(cashier, new Basket(), customer));
+    }
+}
@@ -0,0 +1,217 @@
+package org.informatics.store;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.informatics.config.StoreConfig;
+import org.informatics.entity.Basket;
+import org.informatics.entity.CashDesk;
+import org.informatics.entity.Cashier;
+import org.informatics.entity.Customer;
+import org.informatics.entity.FoodProduct;
+import org.informatics.entity.Receipt;
+import org.informatics.exception.InsufficientQuantityException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentSaleTest {
+
+    private static final int THREADS = 8;
+
+    private StoreConfig config;
+    private Store store;
+
+    @BeforeEach
+    void setUp() {
+        config = new StoreConfig(
+                new BigDecimal("0.20"), // 20% food markup
+                new BigDecimal("0.25"), // 25% non-food markup
+                3, // near expiry days
+                new BigDecimal("0.30") // near expiry discount
+        );
+        store = new Store(config);
+    }
+
+    @Test
+    void testConcurrentSalesOfSameProductDoNotOversell() throws Exception {
+        // Arrange
+        store.addProduct(new FoodProduct("F1", "Milk", new BigDecimal("2.00"), LocalDate.now().plusDays(10), 1000));
+        List<Cashier> cashiers = openDesks(store, THREADS);
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        // Act - 8 desks try to sell 1600 units of a product with 1000 in stock
+        runOnDesks(cashiers, (cashier, customer) -> {
+            for (int i = 0; i < 200; i++) {
+                try {
+                    store.sell(cashier, "F1", 1, customer);
+                    sold.incrementAndGet();
+                } catch (InsufficientQuantityException e) {
+                    rejected.incrementAndGet();
+                }
+            }
+        });
+
+        // Assert
+        assertEquals(1000, sold.get());
+        assertEquals(600, rejected.get());
+        assertEquals(0, store.find("F1").getQuantity());
+        assertEquals(1000, store.getSoldItems().get("F1"));
+        assertEquals(0, new BigDecimal("2000.00").compareTo(store.costOfSoldGoods()));
+        assertEquals(0, new BigDecimal("2400.00").compareTo(store.turnover()));
+    }
+
+    @Test
+    void testConcurrentSalesOfDifferentProducts() throws Exception {
+        // Arrange - one product per desk
+        for (int i = 0; i < THREADS; i++) {
+            store.addProduct(new FoodProduct("F" + i, "Product " + i, new BigDecimal("1.00"),
+                    LocalDate.now().plusDays(10), 500));
+        }
+        List<Cashier> cashiers = openDesks(store, THREADS);
+
+        // Act
+        runOnDesks(cashiers, (cashier, customer) -> {
+            String productId = "F" + cashier.getId().substring(1);
+            for (int i = 0; i < 500; i++) {
+                store.sell(cashier, productId, 1, customer);
+            }
+        });
+
+        // Assert
+        for (int i = 0; i < THREADS; i++) {
+            assertEquals(0, store.find("F" + i).getQuantity());
+            assertEquals(500, store.getSoldItems().get("F" + i));
+        }
+        assertEquals(THREADS * 500, store.listReceipts().size());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void testThroughputScalesWithThreadCount() throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int salesPerThread = 20_000;
+
+        System.out.println("threads  sales/sec");
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            Store benchStore = new Store(config);
+            for (int i = 0; i < 256; i++) {
+                benchStore.addProduct(new FoodProduct("P" + i, "Product " + i, new BigDecimal("1.00"),
+                        LocalDate.now().plusDays(10), Integer.MAX_VALUE / 2));
+            }
+            List<Cashier> cashiers = openDesks(benchStore, threads);
+
+            long start = System.nanoTime();
+            runOnDesks(cashiers, (cashier, customer) -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < salesPerThread; i++) {
+                    benchStore.sell(cashier, "P" + random.nextInt(256), 1, customer);
+                }
+            });
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("%7d  %9.0f%n", threads, threads * salesPerThread / seconds);
+            assertEquals(threads * salesPerThread, benchStore.listReceipts().size());
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void testBasketCheckoutVersusLineByLineSale() throws Exception {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        int basketsPerThread = 5_000;
+
+        // First round only warms up the JIT
+        for (int round = 0; round < 2; round++) {
+            for (boolean basketMode : new boolean[]{false, true}) {
+                double basketsPerSecond = measureBaskets(threads, basketsPerThread, basketMode);
+                if (round == 1) {
+                    System.out.printf("%-12s %9.0f baskets/sec%n", basketMode ? "checkout" : "line-by-line",
+                            basketsPerSecond);
+                }
+            }
+        }
+    }
+
+    private double measureBaskets(int threads, int basketsPerThread, boolean basketMode) throws Exception {
+        Store benchStore = new Store(config);
+        for (int i = 0; i < 64; i++) {
+            benchStore.addProduct(new FoodProduct("P" + i, "Product " + i, new BigDecimal("1.00"),
+                    LocalDate.now().plusDays(10), Integer.MAX_VALUE / 2));
+        }
+        List<Cashier> cashiers = openDesks(benchStore, threads);
+
+        long start = System.nanoTime();
+        runOnDesks(cashiers, (cashier, customer) -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < basketsPerThread; i++) {
+                Basket basket = new Basket();
+                for (int line = 0; line < 5; line++) {
+                    basket.add("P" + random.nextInt(64), 1);
+                }
+                if (basketMode) {
+                    benchStore.checkout(cashier, basket, customer);
+                } else {
+                    Receipt receipt = benchStore.createReceipt(cashier);
+                    for (var item : basket.getItems().entrySet()) {
+                        benchStore.addToReceipt(receipt, item.getKey(), item.getValue(), customer);
+                    }
+                }
+            }
+        });
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return threads * basketsPerThread / seconds;
+    }
+
+    // Adds one cashier per desk and assigns them
+    private static List<Cashier> openDesks(Store target, int count) throws Exception {
+        List<Cashier> cashiers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Cashier cashier = new Cashier("C" + i, "Cashier " + i, new BigDecimal("1000"));
+            CashDesk desk = new CashDesk();
+            target.addCashier(cashier);
+            target.addCashDesk(desk);
+            target.assignCashierToDesk(cashier.getId(), desk.getId());
+            cashiers.add(cashier);
+        }
+        return cashiers;
+    }
+
+    // Starts all desks at the same moment and waits for them to finish
+    private static void runOnDesks(List<Cashier> cashiers, DeskWork work) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(cashiers.size());
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (Cashier cashier : cashiers) {
+            Customer customer = new Customer("CU" + cashier.getId(), "Customer", new BigDecimal("1000000000"));
+            results.add(pool.submit(() -> {
+                start.await();
+                work.run(cashier, customer);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get();
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(1, TimeUnit.MINUTES));
+    }
+
+    @FunctionalInterface
+    private interface DeskWork {
+        void run(Cashier cashier, Customer customer) throws Exception;
+    }
+}
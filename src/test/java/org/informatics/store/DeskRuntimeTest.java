@@ -0,0 +1,152 @@
+package org.informatics.store;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.informatics.config.StoreConfig;
+import org.informatics.entity.Basket;
+import org.informatics.entity.CashDesk;
+import org.informatics.entity.Cashier;
+import org.informatics.entity.Customer;
+import org.informatics.entity.FoodProduct;
+import org.informatics.entity.Receipt;
+import org.informatics.exception.ProductNotFoundException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+class DeskRuntimeTest {
+
+    private Store store;
+
+    @BeforeEach
+    void setUp() {
+        StoreConfig config = new StoreConfig(
+                new BigDecimal("0.20"), // 20% food markup
+                new BigDecimal("0.25"), // 25% non-food markup
+                3, // near expiry days
+                new BigDecimal("0.30") // near expiry discount
+        );
+        store = new Store(config);
+        store.addProduct(new FoodProduct("F1", "Milk", new BigDecimal("2.00"), LocalDate.now().plusDays(10), 100_000));
+        store.addProduct(new FoodProduct("F2", "Bread", new BigDecimal("1.00"), LocalDate.now().plusDays(10), 100_000));
+    }
+
+    @Test
+    void testHundredsOfDesksServeTheirQueues() throws Exception {
+        // Arrange
+        List<String> deskIds = openDesks(200);
+        List<CompletableFuture<Receipt>> results = new ArrayList<>();
+
+        // Act - 5 customers at every desk
+        try (DeskRuntime runtime = new DeskRuntime(store)) {
+            assertEquals(200, runtime.open());
+            for (String deskId : deskIds) {
+                for (int i = 0; i < 5; i++) {
+                    Customer customer = new Customer("CU" + i, "Customer", new BigDecimal("100"));
+                    results.add(runtime.submit(deskId, customer, new Basket().add("F1", 1).add("F2", 2)));
+                }
+            }
+            for (CompletableFuture<Receipt> result : results) {
+                assertEquals(2, result.get().getLines().size());
+            }
+
+            // Assert
+            List<DeskRuntime.DeskStats> report = runtime.report();
+            assertEquals(200, report.size());
+            for (DeskRuntime.DeskStats stats : report) {
+                assertEquals(5, stats.served());
+                assertEquals(0, stats.failed());
+                assertTrue(stats.throughputPerSecond() > 0);
+            }
+        }
+        assertEquals(100_000 - 1000, store.find("F1").getQuantity());
+        assertEquals(100_000 - 2000, store.find("F2").getQuantity());
+        assertEquals(1000, store.listReceipts().size());
+    }
+
+    @Test
+    void testFailedCheckoutIsReportedAndDeskKeepsServing() throws Exception {
+        // Arrange
+        String deskId = openDesks(1).getFirst();
+        Customer customer = new Customer("CU1", "Customer", new BigDecimal("100"));
+
+        try (DeskRuntime runtime = new DeskRuntime(store)) {
+            runtime.open();
+
+            // Act
+            CompletableFuture<Receipt> failed = runtime.submit(deskId, customer, new Basket().add("MISSING", 1));
+            CompletableFuture<Receipt> served = runtime.submit(deskId, customer, new Basket().add("F1", 1));
+
+            // Assert
+            ExecutionException exception = assertThrows(ExecutionException.class, failed::get);
+            assertInstanceOf(ProductNotFoundException.class, exception.getCause());
+            assertEquals(1, served.get().getLines().size());
+            DeskRuntime.DeskStats stats = runtime.report().getFirst();
+            assertEquals(1, stats.served());
+            assertEquals(1, stats.failed());
+        }
+    }
+
+    @Test
+    void testSubmitToDeskWithoutSessionThrowsException() throws Exception {
+        // Arrange
+        try (DeskRuntime runtime = new DeskRuntime(store)) {
+            runtime.open();
+
+            // Act & Assert
+            assertThrows(IllegalArgumentException.class,
+                    () -> runtime.submit("NO_DESK", new Customer("CU1", "Customer", BigDecimal.TEN), new Basket().add("F1", 1)));
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void testPerDeskThroughputAndLatency() throws Exception {
+        List<String> deskIds = openDesks(500);
+        List<CompletableFuture<Receipt>> results = new ArrayList<>();
+
+        try (DeskRuntime runtime = new DeskRuntime(store)) {
+            runtime.open();
+            for (int i = 0; i < 100; i++) {
+                for (String deskId : deskIds) {
+                    Customer customer = new Customer("CU" + i, "Customer", new BigDecimal("100"));
+                    results.add(runtime.submit(deskId, customer, new Basket().add("F1", 1).add("F2", 1)));
+                }
+            }
+            for (CompletableFuture<Receipt> result : results) {
+                result.get();
+            }
+
+            double totalThroughput = 0;
+            double maxLatency = 0;
+            for (DeskRuntime.DeskStats stats : runtime.report()) {
+                totalThroughput += stats.throughputPerSecond();
+                maxLatency = Math.max(maxLatency, stats.maxLatencyMillis());
+            }
+            System.out.printf("%d desks: %.0f baskets/sec in total, worst latency %.1f ms%n",
+                    deskIds.size(), totalThroughput, maxLatency);
+        }
+    }
+
+    private List<String> openDesks(int count) throws Exception {
+        List<String> deskIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Cashier cashier = new Cashier("C" + i, "Cashier " + i, new BigDecimal("1000"));
+            CashDesk desk = new CashDesk();
+            store.addCashier(cashier);
+            store.addCashDesk(desk);
+            store.assignCashierToDesk(cashier.getId(), desk.getId());
+            deskIds.add(desk.getId());
+        }
+        return deskIds;
+    }
+}
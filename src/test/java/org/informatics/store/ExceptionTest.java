@@ -90,6 +90,24 @@ class ExceptionTest {
         assertTrue(exception.getMessage().contains("Insufficient budget"));
     }
 
+    @Test
+    void testFailedPaymentPutsStockBack() {
+        // Arrange - a payment that fails with something other than a budget shortfall
+        store.addProduct(new NonFoodProduct("P1", "Item", new BigDecimal("5.00"), LocalDate.MAX, 5));
+        Customer failing = new Customer("CU2", "Failing Customer", new BigDecimal("100.00")) {
+            @Override
+            public synchronized void pay(BigDecimal amt) {
+                throw new IllegalStateException("Card reader offline");
+            }
+        };
+
+        // Act
+        assertThrows(IllegalStateException.class, () -> store.sell(cashier, "P1", 2, failing));
+
+        // Assert
+        assertEquals(5, store.find("P1").getQuantity());
+    }
+
     @Test
     void testSaleWithInvalidProductIdThrowsNotFoundException() {
         // Arrange
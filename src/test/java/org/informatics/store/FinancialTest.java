@@ -5,6 +5,7 @@ import java.time.LocalDate;
 import java.util.List;
 
 import org.informatics.config.StoreConfig;
+import org.informatics.entity.Basket;
 import org.informatics.entity.CashDesk;
 import org.informatics.entity.Cashier;
 import org.informatics.entity.Customer;
@@ -161,4 +162,33 @@ class FinancialTest {
         // Assert
         assertEquals(0, expectedProfit.compareTo(store.profit()));
     }
+
+    @Test
+    void testRunningTotalsMatchReceiptsAcrossDesks() throws Exception {
+        // Arrange
+        store.addProduct(new FoodProduct("F1", "Organic Milk", new BigDecimal("2.00"), LocalDate.now().plusDays(10), 50));
+        store.addProduct(new NonFoodProduct("N1", "Soap", new BigDecimal("3.00"), LocalDate.now().plusYears(1), 50));
+        Cashier secondCashier = new Cashier("C2", "Second Cashier", new BigDecimal("1200"));
+        store.addCashier(secondCashier);
+        CashDesk secondDesk = new CashDesk();
+        store.addCashDesk(secondDesk);
+        store.assignCashierToDesk(secondCashier.getId(), secondDesk.getId());
+        
+        // Act - single sale, basket checkout and a receipt built line by line on two desks
+        store.sell(cashier, "F1", 2, customer);
+        store.checkout(secondCashier, new Basket().add("F1", 1).add("N1", 2), customer);
+        Receipt receipt = store.createReceipt(secondCashier);
+        store.addToReceipt(receipt, "N1", 1, customer);
+        store.addToReceipt(receipt, "F1", 3, customer);
+        
+        // Assert
+        BigDecimal receiptTotals = BigDecimal.ZERO;
+        for (Receipt r : store.listReceipts()) {
+            receiptTotals = receiptTotals.add(r.total());
+        }
+        assertEquals(0, receiptTotals.compareTo(store.turnover()));
+        assertEquals(0, new BigDecimal("21.00").compareTo(store.costOfSoldGoods())); // 6 * 2.00 + 3 * 3.00
+        assertEquals(0, new BigDecimal("2200").compareTo(store.salaryExpenses()));
+        assertEquals(3, store.getReceiptCount());
+    }
 }
@@ -0,0 +1,115 @@
+package org.informatics.store;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.informatics.config.StoreConfig;
+import org.informatics.entity.Cashier;
+import org.informatics.entity.FoodProduct;
+import org.informatics.entity.Receipt;
+import org.informatics.service.impl.FileServiceImpl;
+import org.informatics.storage.ReceiptCodec;
+import org.informatics.util.ReceiptFormat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ParallelLoadTest {
+
+    private Store store;
+    private Cashier cashier;
+    private FoodProduct product;
+
+    @TempDir
+    File tempDir;
+
+    @BeforeEach
+    void setUp() {
+        store = new Store(new StoreConfig(
+                new BigDecimal("0.20"), // 20% food markup
+                new BigDecimal("0.25"), // 25% non-food markup
+                3, // near expiry days
+                new BigDecimal("0.30") // near expiry discount
+        ));
+        cashier = new Cashier("C1", "Ivan Petrov", new BigDecimal("1000"));
+        product = new FoodProduct("F1", "Milk", new BigDecimal("2.00"), LocalDate.now().plusDays(10), 100);
+        store.addCashier(cashier);
+        store.addProduct(product);
+    }
+
+    @Test
+    void testParallelLoadReturnsReceiptsInNumberOrder() throws Exception {
+        // Arrange - both file formats, saved out of order
+        for (int i = 200; i >= 1; i--) {
+            receipt(i).save(tempDir, i % 2 == 0 ? ReceiptFormat.BINARY : ReceiptFormat.SERIALIZED);
+        }
+        FileServiceImpl fileService = new FileServiceImpl(store);
+        fileService.setParallelism(4);
+
+        // Act
+        List<Receipt> loaded = fileService.loadAll(tempDir);
+
+        // Assert
+        assertEquals(200, loaded.size());
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i + 1, loaded.get(i).getNumber());
+        }
+    }
+
+    @Test
+    void testParallelLoadSkipsUnreadableFiles() throws Exception {
+        // Arrange - a binary receipt for a product the catalog doesn't know
+        for (int i = 1; i <= 50; i++) {
+            receipt(i).save(tempDir, ReceiptFormat.BINARY);
+        }
+        try (FileOutputStream out = new FileOutputStream(new File(tempDir, "receipt-51.bin"))) {
+            Receipt unknown = new Receipt(51, cashier);
+            unknown.add(new FoodProduct("X1", "Unknown", BigDecimal.ONE, LocalDate.now().plusDays(5), 1), 1, BigDecimal.ONE);
+            out.write(ReceiptCodec.encode(unknown));
+        }
+        FileServiceImpl fileService = new FileServiceImpl(store);
+        fileService.setParallelism(8);
+
+        // Act
+        List<Receipt> loaded = fileService.loadAll(tempDir);
+
+        // Assert
+        assertEquals(50, loaded.size());
+        assertEquals(50, loaded.getLast().getNumber());
+        assertThrows(IllegalArgumentException.class, () -> fileService.setParallelism(0));
+    }
+
+    @Test
+    @Tag("benchmark")
+    void testParallelLoadOfLargeArchive() throws Exception {
+        int count = 100_000;
+        for (int i = 1; i <= count; i++) {
+            receipt(i).save(tempDir);
+        }
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("threads  load ms");
+        for (int threads = 1; threads <= Math.max(cores, 2); threads *= 2) {
+            FileServiceImpl fileService = new FileServiceImpl(store);
+            fileService.setParallelism(threads);
+            long start = System.nanoTime();
+            List<Receipt> loaded = fileService.loadAll(tempDir);
+            double millis = (System.nanoTime() - start) / 1e6;
+
+            assertEquals(count, loaded.size());
+            System.out.printf("%7d  %7.0f%n", threads, millis);
+        }
+    }
+
+    private Receipt receipt(int number) {
+        Receipt receipt = new Receipt(number, cashier);
+        receipt.add(product, 1 + number % 5, new BigDecimal("2.40"));
+        return receipt;
+    }
+}
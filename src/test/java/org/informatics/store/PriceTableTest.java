@@ -0,0 +1,128 @@
+package org.informatics.store;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.informatics.config.StoreConfig;
+import org.informatics.entity.CashDesk;
+import org.informatics.entity.Cashier;
+import org.informatics.entity.Customer;
+import org.informatics.entity.FoodProduct;
+import org.informatics.entity.Product;
+import org.informatics.entity.Receipt;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+class PriceTableTest {
+
+    private StoreConfig config;
+    private LocalDate today;
+
+    @BeforeEach
+    void setUp() {
+        config = new StoreConfig(
+                new BigDecimal("0.20"), // 20% food markup
+                new BigDecimal("0.25"), // 25% non-food markup
+                3, // near expiry days
+                new BigDecimal("0.30") // near expiry discount
+        );
+        today = LocalDate.now();
+    }
+
+    @Test
+    void testPriceIsComputedOncePerDay() {
+        // Arrange
+        PriceTable table = new PriceTable(config, today);
+        Product product = new FoodProduct("F1", "Milk", new BigDecimal("10.00"), today.plusDays(10), 5);
+
+        // Act
+        BigDecimal first = table.price(product, today);
+        BigDecimal second = table.price(product, today);
+
+        // Assert - the same cached value is returned and it matches the direct calculation
+        assertSame(first, second);
+        assertEquals(0, product.salePrice(config, today).compareTo(first));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    void testNewDayRepricesNearExpiryProducts() {
+        // Arrange - expiry is 4 days away today, 3 days away tomorrow
+        PriceTable table = new PriceTable(config, today);
+        Product product = new FoodProduct("F1", "Milk", new BigDecimal("10.00"), today.plusDays(4), 5);
+
+        // Act
+        BigDecimal todayPrice = table.price(product, today);
+        BigDecimal tomorrowPrice = table.price(product, today.plusDays(1));
+
+        // Assert - 10.00 * 1.20 = 12.00, then 12.00 * 0.70 = 8.40
+        assertEquals(0, new BigDecimal("12.00").compareTo(todayPrice));
+        assertEquals(0, new BigDecimal("8.40").compareTo(tomorrowPrice));
+    }
+
+    @Test
+    void testConfigChangeAppliesToNextSale() throws Exception {
+        // Arrange
+        Store store = new Store(config);
+        store.addProduct(new FoodProduct("F1", "Milk", new BigDecimal("10.00"), today.plusDays(10), 10));
+        Cashier cashier = new Cashier("C1", "Cashier", new BigDecimal("1000"));
+        CashDesk desk = new CashDesk();
+        store.addCashier(cashier);
+        store.addCashDesk(desk);
+        store.assignCashierToDesk(cashier.getId(), desk.getId());
+        Customer customer = new Customer("CU1", "Customer", new BigDecimal("100"));
+        StoreConfig higherMarkup = new StoreConfig(new BigDecimal("0.50"), new BigDecimal("0.25"), 3, new BigDecimal("0.30"));
+
+        // Act
+        Receipt before = store.sell(cashier, "F1", 1, customer);
+        store.updateConfig(higherMarkup);
+        Receipt after = store.sell(cashier, "F1", 1, customer);
+
+        // Assert
+        assertEquals(0, new BigDecimal("12.00").compareTo(before.total()));
+        assertEquals(0, new BigDecimal("15.00").compareTo(after.total()));
+        assertSame(higherMarkup, store.getConfig());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void testLookupVersusComputingPrice() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 1024; i++) {
+            products.add(new FoodProduct("P" + i, "Product " + i, new BigDecimal("1.99"),
+                    today.plusDays(1 + i % 10), 100));
+        }
+        PriceTable table = new PriceTable(config, today);
+        int rounds = 2_000;
+
+        // First round only warms up the JIT
+        for (int round = 0; round < 2; round++) {
+            BigDecimal sink = BigDecimal.ZERO;
+            long start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                for (Product p : products) {
+                    sink = p.salePrice(config, LocalDate.now());
+                }
+            }
+            double computeNanos = (double) (System.nanoTime() - start) / rounds / products.size();
+
+            start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                for (Product p : products) {
+                    sink = table.price(p, LocalDate.now());
+                }
+            }
+            double lookupNanos = (double) (System.nanoTime() - start) / rounds / products.size();
+
+            if (round == 1) {
+                System.out.printf("salePrice %6.1f ns/price, table %6.1f ns/price (last %s)%n",
+                        computeNanos, lookupNanos, sink);
+            }
+        }
+    }
+}
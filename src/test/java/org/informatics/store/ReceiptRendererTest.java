@@ -0,0 +1,183 @@
+package org.informatics.store;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.informatics.entity.Cashier;
+import org.informatics.entity.FoodProduct;
+import org.informatics.entity.NonFoodProduct;
+import org.informatics.entity.Product;
+import org.informatics.entity.Receipt;
+import org.informatics.util.ReceiptRenderer;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReceiptRendererTest {
+
+    private final Locale defaultLocale = Locale.getDefault();
+
+    @TempDir
+    File tempDir;
+
+    @AfterEach
+    void tearDown() {
+        Locale.setDefault(defaultLocale);
+    }
+
+    @Test
+    void testOutputMatchesFormatBasedRendering() {
+        // Arrange - awkward names, prices on rounding boundaries, big amounts, odd dates
+        List<Receipt> receipts = randomReceipts(500, new Random(42));
+
+        // Act + Assert
+        for (Receipt receipt : receipts) {
+            assertEquals(formatBased(receipt), ReceiptRenderer.render(receipt));
+        }
+    }
+
+    @Test
+    void testOutputMatchesInOtherLocales() {
+        // Arrange - decimal comma, and digits other than 0-9
+        List<Receipt> receipts = randomReceipts(50, new Random(7));
+
+        for (Locale locale : List.of(Locale.GERMANY, Locale.forLanguageTag("bg-BG"),
+                Locale.forLanguageTag("th-TH-u-nu-thai"))) {
+            // Act
+            Locale.setDefault(locale);
+
+            // Assert
+            for (Receipt receipt : receipts) {
+                assertEquals(formatBased(receipt), ReceiptRenderer.render(receipt), locale.toLanguageTag());
+            }
+        }
+    }
+
+    @Test
+    void testSavedTextFileIsByteIdentical() throws Exception {
+        // Arrange
+        Receipt receipt = randomReceipts(1, new Random(3)).getFirst();
+        File expected = new File(tempDir, "expected.txt");
+        try (PrintWriter pw = new PrintWriter(expected)) {
+            pw.print(formatBased(receipt));
+        }
+
+        // Act
+        receipt.save(tempDir);
+
+        // Assert
+        assertArrayEquals(Files.readAllBytes(expected.toPath()),
+                Files.readAllBytes(new File(tempDir, "receipt-" + receipt.getNumber() + ".txt").toPath()));
+    }
+
+    @Test
+    @Tag("benchmark")
+    void testRendererVersusStringFormat() throws Exception {
+        List<Receipt> receipts = randomReceipts(2_000, new Random(1));
+        int rounds = 50;
+        for (int warmUp = 0; warmUp < 2; warmUp++) {
+            long start = System.nanoTime();
+            long chars = 0;
+            for (int r = 0; r < rounds; r++) {
+                for (Receipt receipt : receipts) {
+                    chars += formatBased(receipt).length();
+                }
+            }
+            double formatMicros = (System.nanoTime() - start) / 1e3 / (rounds * receipts.size());
+
+            start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                for (Receipt receipt : receipts) {
+                    chars -= ReceiptRenderer.render(receipt).length();
+                }
+            }
+            double renderMicros = (System.nanoTime() - start) / 1e3 / (rounds * receipts.size());
+            assertEquals(0, chars);
+
+            File file = new File(tempDir, "bench.txt");
+            start = System.nanoTime();
+            for (Receipt receipt : receipts) {
+                try (PrintWriter pw = new PrintWriter(file)) {
+                    pw.print(formatBased(receipt));
+                }
+            }
+            double formatFileMicros = (System.nanoTime() - start) / 1e3 / receipts.size();
+            start = System.nanoTime();
+            for (Receipt receipt : receipts) {
+                try (Writer writer = new OutputStreamWriter(new FileOutputStream(file))) {
+                    ReceiptRenderer.render(receipt, writer);
+                }
+            }
+            double renderFileMicros = (System.nanoTime() - start) / 1e3 / receipts.size();
+
+            if (warmUp == 1) {
+                System.out.printf("per receipt: String.format %.1f us, renderer %.1f us; "
+                        + "as .txt file %.1f us vs %.1f us%n", formatMicros, renderMicros, formatFileMicros, renderFileMicros);
+            }
+        }
+    }
+
+    // Receipt.toString() as it was before the renderer
+    private static String formatBased(Receipt receipt) {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        StringBuilder sb = new StringBuilder();
+        sb.append("RECEIPT #").append(receipt.getNumber()).append("\n");
+        sb.append("Date: ").append(receipt.getTime().format(formatter)).append("\n");
+        sb.append("Cashier: ").append(receipt.getCashier().getName())
+                .append(" (ID: ").append(receipt.getCashier().getId()).append(")\n");
+        sb.append("----------------------------------------\n");
+        sb.append("ITEMS:\n");
+
+        for (Receipt.Line line : receipt.getLines()) {
+            sb.append(String.format("%-20s %3d x %7.2f = %8.2f\n",
+                    line.product().getName(),
+                    line.quantity(),
+                    line.price(),
+                    line.total()));
+        }
+
+        sb.append("----------------------------------------\n");
+        sb.append(String.format("TOTAL: %33.2f\n", receipt.total()));
+        return sb.toString();
+    }
+
+    private static List<Receipt> randomReceipts(int count, Random random) {
+        String[] names = {"Milk", "", "Extra virgin olive oil 1l", "Хляб Добруджа", "Exactly twenty chars", "A"};
+        String[] prices = {"2.345", "2.355", "0.005", "0.004", "0", "1234567.899", "12", "99999999999.995"};
+        List<Receipt> receipts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Cashier cashier = new Cashier("C" + i, i % 3 == 0 ? "Мария Иванова" : "Ivan Petrov", BigDecimal.ONE);
+            LocalDateTime time = LocalDateTime.of(1 + random.nextInt(9999), 1 + random.nextInt(12), 1 + random.nextInt(28),
+                    random.nextInt(24), random.nextInt(60), random.nextInt(60), random.nextInt(1_000_000_000));
+            Receipt receipt = new Receipt(1 + random.nextInt(Integer.MAX_VALUE - 1), cashier, time);
+            int lines = random.nextInt(6);
+            for (int l = 0; l < lines; l++) {
+                String name = names[random.nextInt(names.length)];
+                Product product = random.nextBoolean()
+                        ? new FoodProduct("F" + l, name, BigDecimal.ONE, LocalDate.of(2030, 1, 1), 1)
+                        : new NonFoodProduct("N" + l, name, BigDecimal.ONE, LocalDate.of(2030, 1, 1), 1);
+                BigDecimal price = random.nextInt(3) == 0
+                        ? new BigDecimal(prices[random.nextInt(prices.length)])
+                        : BigDecimal.valueOf(random.nextInt(100_000), random.nextInt(5));
+                receipt.add(product, 1 + random.nextInt(random.nextBoolean() ? 9 : 5_000), price);
+            }
+            receipts.add(receipt);
+        }
+        return receipts;
+    }
+}
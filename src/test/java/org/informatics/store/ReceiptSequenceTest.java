@@ -0,0 +1,133 @@
+package org.informatics.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.informatics.config.StoreConfig;
+import org.informatics.entity.CashDesk;
+import org.informatics.entity.Cashier;
+import org.informatics.entity.Receipt;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReceiptSequenceTest {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    void testEachDeskNumbersFromItsOwnBlock() throws Exception {
+        // Arrange
+        ReceiptSequence sequence = new ReceiptSequence(new File(tempDir, "sequence.state"), 10);
+
+        // Act
+        int first = sequence.next("D1");
+        int second = sequence.next("D1");
+        int otherDesk = sequence.next("D2");
+
+        // Assert
+        assertEquals(1, first);
+        assertEquals(2, second);
+        assertEquals(11, otherDesk);
+    }
+
+    @Test
+    void testNumbersAreUniqueAndIncreasingPerDeskUnderConcurrency() throws Exception {
+        // Arrange
+        ReceiptSequence sequence = new ReceiptSequence(new File(tempDir, "sequence.state"), 16);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<List<Integer>>> results = new ArrayList<>();
+
+        // Act - two threads share each desk
+        for (int t = 0; t < 8; t++) {
+            String deskId = "D" + (t % 4);
+            results.add(pool.submit(() -> {
+                List<Integer> numbers = new ArrayList<>();
+                for (int i = 0; i < 1000; i++) {
+                    numbers.add(sequence.next(deskId));
+                }
+                return numbers;
+            }));
+        }
+
+        // Assert
+        Set<Integer> all = new HashSet<>();
+        for (Future<List<Integer>> result : results) {
+            List<Integer> numbers = result.get();
+            for (int i = 1; i < numbers.size(); i++) {
+                assertTrue(numbers.get(i) > numbers.get(i - 1));
+            }
+            all.addAll(numbers);
+        }
+        pool.shutdown();
+        assertEquals(8000, all.size());
+    }
+
+    @Test
+    void testRestartContinuesAfterLastReservedBlock() throws Exception {
+        // Arrange
+        File state = new File(tempDir, "sequence.state");
+        ReceiptSequence beforeRestart = new ReceiptSequence(state, 10);
+        int lastBeforeRestart = 0;
+        for (int i = 0; i < 15; i++) {
+            lastBeforeRestart = beforeRestart.next("D1");
+        }
+
+        // Act
+        ReceiptSequence afterRestart = new ReceiptSequence(state, 10);
+        int firstAfterRestart = afterRestart.next("D1");
+
+        // Assert - the rest of the half-used block is skipped, never reused
+        assertEquals(15, lastBeforeRestart);
+        assertEquals(21, firstAfterRestart);
+    }
+
+    @Test
+    void testUnreadableStateIsReportedWithItsFile() throws Exception {
+        // Arrange - what a crash before the state reached the disk used to leave
+        File state = new File(tempDir, "sequence.state");
+        Files.write(state.toPath(), new byte[0]);
+
+        // Act
+        IOException exception = assertThrows(IOException.class, () -> new ReceiptSequence(state, 10));
+
+        // Assert
+        assertTrue(exception.getMessage().contains(state.getAbsolutePath()));
+    }
+
+    @Test
+    void testStoresNumberReceiptsIndependently() throws Exception {
+        // Arrange
+        StoreConfig config = new StoreConfig(new BigDecimal("0.20"), new BigDecimal("0.25"), 3, new BigDecimal("0.30"));
+        Store firstStore = new Store(config);
+        Store secondStore = new Store(config);
+        Cashier cashier = new Cashier("C1", "Test Cashier", new BigDecimal("1000"));
+        for (Store store : List.of(firstStore, secondStore)) {
+            CashDesk desk = new CashDesk();
+            store.addCashier(cashier);
+            store.addCashDesk(desk);
+            store.assignCashierToDesk(cashier.getId(), desk.getId());
+        }
+
+        // Act
+        Receipt first = firstStore.createReceipt(cashier);
+        Receipt second = secondStore.createReceipt(cashier);
+
+        // Assert
+        assertEquals(1, first.getNumber());
+        assertEquals(1, second.getNumber());
+        assertEquals(1, firstStore.getReceiptCount());
+    }
+}
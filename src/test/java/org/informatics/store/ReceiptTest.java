@@ -1,8 +1,12 @@
 package org.informatics.store;
 
 import java.io.File;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
 
 import org.informatics.config.StoreConfig;
 import org.informatics.entity.CashDesk;
@@ -12,7 +16,10 @@ import org.informatics.entity.FoodProduct;
 import org.informatics.entity.Receipt;
 import org.informatics.service.impl.FileServiceImpl;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -116,6 +123,37 @@ class ReceiptTest {
         assertTrue(serFile.exists());
     }
 
+    @Test
+    void testFailedSaveLeavesNoTemporaryFile() throws Exception {
+        // Arrange - a non-empty directory where the .ser file goes, so the final rename fails
+        store.addProduct(new FoodProduct("F1", "Milk", new BigDecimal("2.00"), LocalDate.now().plusDays(10), 10));
+        Receipt receipt = store.sell(cashier, "F1", 2, customer);
+        File serFile = new File(tempDir, "receipt-" + receipt.getNumber() + ".ser");
+        new File(serFile, "occupied").mkdirs();
+
+        // Act & Assert
+        assertThrows(IOException.class, () -> receipt.save(tempDir));
+        assertFalse(new File(tempDir, serFile.getName() + ".tmp").exists());
+    }
+
+    @Test
+    void testCorruptSerializedFileIsSkippedByLoadAll() throws Exception {
+        // Arrange - one good receipt, one file of garbage and one cut short
+        store.addProduct(new FoodProduct("F1", "Milk", new BigDecimal("2.00"), LocalDate.now().plusDays(10), 10));
+        Receipt receipt = store.sell(cashier, "F1", 2, customer);
+        receipt.save(tempDir);
+        byte[] saved = Files.readAllBytes(new File(tempDir, "receipt-" + receipt.getNumber() + ".ser").toPath());
+        Files.write(new File(tempDir, "receipt-900.ser").toPath(), new byte[] {1, 2, 3, 4, 5});
+        Files.write(new File(tempDir, "receipt-901.ser").toPath(), Arrays.copyOf(saved, saved.length / 2));
+
+        // Act
+        List<Receipt> loaded = fileService.loadAll(tempDir);
+
+        // Assert
+        assertEquals(1, loaded.size());
+        assertEquals(receipt.getNumber(), loaded.getFirst().getNumber());
+    }
+
     @Test
     void testReceiptLoadFromSerializedFile() throws Exception {
         // Arrange
@@ -133,4 +171,68 @@ class ReceiptTest {
         assertEquals(originalReceipt.getLines().size(), loadedReceipt.getLines().size());
         assertEquals(originalReceipt.total(), loadedReceipt.total());
     }
+
+    @Test
+    void testSealedReceiptCannotChange() {
+        // Arrange
+        Receipt receipt = new Receipt(cashier);
+        FoodProduct product = new FoodProduct("F1", "Milk", new BigDecimal("2.00"), LocalDate.now().plusDays(10), 5);
+        receipt.add(product, 1, new BigDecimal("2.40"));
+
+        // Act
+        receipt.seal();
+
+        // Assert
+        assertTrue(receipt.isSealed());
+        assertThrows(IllegalStateException.class, () -> receipt.add(product, 1, new BigDecimal("2.40")));
+        assertThrows(UnsupportedOperationException.class, () -> receipt.getLines().clear());
+        assertEquals(0, new BigDecimal("2.40").compareTo(receipt.total()));
+    }
+
+    @Test
+    void testLinesAreExposedWithoutCopying() {
+        // Arrange
+        Receipt receipt = new Receipt(cashier);
+        receipt.add(new FoodProduct("F1", "Milk", new BigDecimal("2.00"), LocalDate.now().plusDays(10), 5),
+                3, new BigDecimal("2.40"));
+
+        // Act & Assert
+        assertSame(receipt.getLines(), receipt.getLines());
+        assertEquals(0, new BigDecimal("7.20").compareTo(receipt.total()));
+    }
+
+    @Test
+    void testSingleSaleReceiptIsSealedButOpenReceiptIsNot() throws Exception {
+        // Arrange
+        store.addProduct(new FoodProduct("F1", "Milk", new BigDecimal("2.00"), LocalDate.now().plusDays(10), 10));
+
+        // Act
+        Receipt sale = store.sell(cashier, "F1", 1, customer);
+        Receipt open = store.createReceipt(cashier);
+        store.addToReceipt(open, "F1", 1, customer);
+
+        // Assert - adding to a sealed receipt fails before the customer is charged
+        assertTrue(sale.isSealed());
+        assertFalse(open.isSealed());
+        assertThrows(IllegalStateException.class, () -> store.addToReceipt(sale, "F1", 1, customer));
+        assertEquals(8, store.find("F1").getQuantity());
+    }
+
+    @Test
+    void testLoadedReceiptIsSealedWithSameTotal() throws Exception {
+        // Arrange
+        store.addProduct(new FoodProduct("F1", "Milk", new BigDecimal("2.00"), LocalDate.now().plusDays(10), 10));
+        Receipt receipt = store.createReceipt(cashier);
+        store.addToReceipt(receipt, "F1", 3, customer);
+        receipt.save(tempDir);
+
+        // Act
+        Receipt loaded = fileService.load(tempDir, receipt.getNumber());
+
+        // Assert
+        assertTrue(receipt.isSealed());
+        assertTrue(loaded.isSealed());
+        assertEquals(receipt.total(), loaded.total());
+        assertEquals(receipt.toString(), loaded.toString());
+    }
 }
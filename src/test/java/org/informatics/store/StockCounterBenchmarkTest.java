@@ -0,0 +1,98 @@
+package org.informatics.store;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.informatics.entity.FoodProduct;
+import org.informatics.entity.Product;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+// Compares the lock-free stock counter with a synchronized one on a single hot product
+@Tag("benchmark")
+class StockCounterBenchmarkTest {
+
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32};
+    private static final int OPERATIONS = 2_000_000;
+
+    @Test
+    void testCompareAndSetVersusSynchronizedCounter() throws Exception {
+        // First pass only warms up the JIT
+        for (int round = 0; round < 2; round++) {
+            if (round == 1) {
+                System.out.println("threads  cas ops/sec  synchronized ops/sec");
+            }
+            for (int threads : THREAD_COUNTS) {
+                Product product = new FoodProduct("F1", "Milk", new BigDecimal("2.00"),
+                        LocalDate.now().plusDays(10), OPERATIONS);
+                double cas = measure(threads, () -> product.tryDecrement(1));
+                assertEquals(0, product.getQuantity());
+
+                SynchronizedCounter counter = new SynchronizedCounter(OPERATIONS);
+                double locked = measure(threads, () -> counter.tryDecrement(1));
+                assertEquals(0, counter.qty);
+
+                if (round == 1) {
+                    System.out.printf("%7d  %11.0f  %20.0f%n", threads, cas, locked);
+                }
+            }
+        }
+    }
+
+    // Runs OPERATIONS decrements split evenly across the threads
+    private static double measure(int threads, Decrement decrement) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int share = OPERATIONS / threads + (t < OPERATIONS % threads ? 1 : 0);
+            results.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < share; i++) {
+                    assertTrue(decrement.tryDecrement());
+                }
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get();
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(1, TimeUnit.MINUTES));
+        return OPERATIONS / seconds;
+    }
+
+    @FunctionalInterface
+    private interface Decrement {
+        boolean tryDecrement();
+    }
+
+    // The check-then-act counter Product used before, made safe with a monitor
+    private static class SynchronizedCounter {
+        private int qty;
+
+        SynchronizedCounter(int qty) {
+            this.qty = qty;
+        }
+
+        synchronized boolean tryDecrement(int amount) {
+            if (qty < amount) {
+                return false;
+            }
+            qty -= amount;
+            return true;
+        }
+    }
+}
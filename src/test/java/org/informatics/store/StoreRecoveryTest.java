@@ -0,0 +1,248 @@
+package org.informatics.store;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.time.LocalDate;
+
+import org.informatics.config.StoreConfig;
+import org.informatics.entity.Basket;
+import org.informatics.entity.CashDesk;
+import org.informatics.entity.Cashier;
+import org.informatics.entity.Customer;
+import org.informatics.entity.FoodProduct;
+import org.informatics.entity.NonFoodProduct;
+import org.informatics.entity.Receipt;
+import org.informatics.storage.ReceiptJournal;
+import org.informatics.util.ReceiptFormat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StoreRecoveryTest {
+
+    private StoreConfig config;
+    private File journalDir;
+    private File snapshotFile;
+
+    @TempDir
+    File tempDir;
+
+    @BeforeEach
+    void setUp() {
+        config = new StoreConfig(
+                new BigDecimal("0.20"), // 20% food markup
+                new BigDecimal("0.25"), // 25% non-food markup
+                3, // near expiry days
+                new BigDecimal("0.30") // near expiry discount
+        );
+        journalDir = new File(tempDir, "journal");
+        snapshotFile = new File(tempDir, "store.snapshot");
+    }
+
+    @Test
+    void testRestartRestoresSnapshotAndReplaysJournalTail() throws Exception {
+        // Arrange - 30 receipts, a snapshot, 20 more receipts, then the node dies without closing anything
+        Store before = newStore();
+        try (ReceiptJournal journal = new ReceiptJournal(journalDir)) {
+            StoreSnapshotter snapshotter = new StoreSnapshotter(before, journal, snapshotFile);
+            sell(before, journal, 30);
+            snapshotter.snapshot();
+            sell(before, journal, 20);
+        }
+
+        // Act
+        Store after = newStore();
+        int replayed;
+        try (ReceiptJournal journal = new ReceiptJournal(journalDir)) {
+            replayed = new StoreSnapshotter(after, journal, snapshotFile).recover();
+        }
+
+        // Assert
+        assertEquals(20, replayed);
+        assertSameState(before, after);
+    }
+
+    @Test
+    void testRestocksAndNewProductsSurviveRestart() throws Exception {
+        // Arrange - supply changed at runtime, after the store was set up
+        Store before = newStore();
+        try (ReceiptJournal journal = new ReceiptJournal(journalDir)) {
+            StoreSnapshotter snapshotter = new StoreSnapshotter(before, journal, snapshotFile);
+            before.restockProduct("F1", 500);
+            before.addProduct(new NonFoodProduct("N2", "Towel", new BigDecimal("6.00"), LocalDate.now().plusYears(2), 40));
+            sell(before, journal, 10);
+            snapshotter.close();
+        }
+
+        // Act
+        Store after = newStore();
+        int replayed;
+        try (ReceiptJournal journal = new ReceiptJournal(journalDir)) {
+            replayed = new StoreSnapshotter(after, journal, snapshotFile).recover();
+        }
+
+        // Assert - close() took a final snapshot, so nothing was left to replay
+        assertEquals(0, replayed);
+        assertNotNull(after.find("N2"));
+        assertEquals(40, after.find("N2").getQuantity());
+        assertSameState(before, after);
+    }
+
+    @Test
+    void testUnreadableSnapshotFallsBackToFullReplay() throws Exception {
+        // Arrange
+        Store before = newStore();
+        try (ReceiptJournal journal = new ReceiptJournal(journalDir, ReceiptJournal.DEFAULT_SEGMENT_SIZE, ReceiptFormat.BINARY)) {
+            sell(before, journal, 25);
+        }
+        Files.write(snapshotFile.toPath(), new byte[] {1, 2, 3});
+
+        // Act
+        Store after = newStore();
+        int replayed;
+        try (ReceiptJournal journal = new ReceiptJournal(journalDir)) {
+            replayed = new StoreSnapshotter(after, journal, snapshotFile).recover();
+        }
+
+        // Assert
+        assertEquals(25, replayed);
+        assertSameState(before, after);
+    }
+
+    @Test
+    void testSalesAfterRestartAreInNextSnapshot() throws Exception {
+        // Arrange - in-memory receipt sequences, which start again at 1 on every restart
+        Store first = newStore();
+        try (ReceiptJournal journal = new ReceiptJournal(journalDir)) {
+            StoreSnapshotter snapshotter = new StoreSnapshotter(first, journal, snapshotFile);
+            sell(first, journal, 10);
+            snapshotter.snapshot();
+        }
+        Store second = newStore();
+        Receipt receipt;
+        try (ReceiptJournal journal = new ReceiptJournal(journalDir)) {
+            StoreSnapshotter snapshotter = new StoreSnapshotter(second, journal, snapshotFile);
+            snapshotter.recover();
+            receipt = sell(second, journal, 5);
+            snapshotter.snapshot();
+        }
+
+        // Act
+        Store third = newStore();
+        try (ReceiptJournal journal = new ReceiptJournal(journalDir)) {
+            new StoreSnapshotter(third, journal, snapshotFile).recover();
+        }
+
+        // Assert - numbers went on from the journal, and the sales after the restart were not taken for repeats
+        assertEquals(15, receipt.getNumber());
+        assertEquals(15, second.getReceiptCount());
+        assertSameState(second, third);
+    }
+
+    @Test
+    void testRepeatedReceiptNumbersAreCountedTheSameWithAndWithoutSnapshot() throws Exception {
+        // Arrange - two runs that both numbered from 1, before recovery moved the sequence on
+        Store before = newStore();
+        try (ReceiptJournal journal = new ReceiptJournal(journalDir)) {
+            sell(newStore(), journal, 5);
+            sell(before, journal, 3);
+            sell(before, journal, 2);
+        }
+        try (ReceiptJournal journal = new ReceiptJournal(journalDir)) {
+            new StoreSnapshotter(newStore(), journal, snapshotFile).snapshot();
+        }
+
+        // Act
+        Store fromSnapshot = newStore();
+        Store fromJournal = newStore();
+        try (ReceiptJournal journal = new ReceiptJournal(journalDir)) {
+            new StoreSnapshotter(fromSnapshot, journal, snapshotFile).recover();
+            new StoreSnapshotter(fromJournal, journal, new File(tempDir, "none")).recover();
+        }
+
+        // Assert
+        assertEquals(10, fromSnapshot.getReceiptCount());
+        assertEquals(10, fromJournal.getReceiptCount());
+        assertEquals(0, fromSnapshot.turnover().compareTo(fromJournal.turnover()));
+    }
+
+    @Test
+    @Tag("benchmark")
+    void testRestartTimeByArchiveSize() throws Exception {
+        System.out.println("receipts   full replay   snapshot + last 1000");
+        for (int size : new int[] {10_000, 50_000, 200_000}) {
+            File dir = new File(tempDir, "archive-" + size);
+            File snapshot = new File(dir, "store.snapshot");
+            Store before = newStore(size * 10);
+            try (ReceiptJournal journal = new ReceiptJournal(new File(dir, "journal"),
+                    ReceiptJournal.DEFAULT_SEGMENT_SIZE, ReceiptFormat.BINARY)) {
+                StoreSnapshotter snapshotter = new StoreSnapshotter(before, journal, snapshot);
+                sell(before, journal, size - 1_000);
+                snapshotter.snapshot();
+                sell(before, journal, 1_000);
+            }
+
+            double fullMillis = restartMillis(new File(dir, "journal"), new File(dir, "none"), size * 10);
+            restartMillis(new File(dir, "journal"), snapshot, size * 10); // Warm-up
+            double snapshotMillis = restartMillis(new File(dir, "journal"), snapshot, size * 10);
+            System.out.printf("%8d   %8.0f ms   %8.0f ms%n", size, fullMillis, snapshotMillis);
+        }
+    }
+
+    private double restartMillis(File journalDir, File snapshot, int stock) throws Exception {
+        long start = System.nanoTime();
+        Store store = newStore(stock);
+        try (ReceiptJournal journal = new ReceiptJournal(journalDir)) {
+            new StoreSnapshotter(store, journal, snapshot).recover();
+        }
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    private Store newStore() throws Exception {
+        return newStore(1_000);
+    }
+
+    // The same products, cashier and desk, as an application sets them up on every start
+    private Store newStore(int stock) throws Exception {
+        Store store = new Store(config);
+        Cashier cashier = new Cashier("C1", "Ivan Petrov", new BigDecimal("1000"));
+        store.addCashier(cashier);
+        CashDesk desk = new CashDesk();
+        store.addCashDesk(desk);
+        store.assignCashierToDesk(cashier.getId(), desk.getId());
+        store.addProduct(new FoodProduct("F1", "Milk", new BigDecimal("2.00"), LocalDate.now().plusDays(10), stock));
+        store.addProduct(new NonFoodProduct("N1", "Soap", new BigDecimal("4.00"), LocalDate.now().plusYears(1), stock));
+        return store;
+    }
+
+    // Sells and journals the given number of receipts; returns the last one
+    private Receipt sell(Store store, ReceiptJournal journal, int count) throws Exception {
+        Cashier cashier = store.findCashierById("C1").orElseThrow();
+        Customer customer = new Customer("CU1", "Customer", new BigDecimal("100000000"));
+        Receipt receipt = null;
+        for (int i = 0; i < count; i++) {
+            Basket basket = new Basket().add("F1", 1 + i % 3);
+            if (i % 2 == 0) {
+                basket.add("N1", 1);
+            }
+            receipt = store.checkout(cashier, basket, customer);
+            journal.append(receipt);
+        }
+        return receipt;
+    }
+
+    private static void assertSameState(Store expected, Store actual) {
+        for (String id : new String[] {"F1", "N1"}) {
+            assertEquals(expected.find(id).getQuantity(), actual.find(id).getQuantity(), "stock of " + id);
+        }
+        assertEquals(expected.getSoldItems(), actual.getSoldItems());
+        assertEquals(0, expected.turnover().compareTo(actual.turnover()));
+        assertEquals(0, expected.costOfSoldGoods().compareTo(actual.costOfSoldGoods()));
+        assertEquals(0, expected.getTotalCostOfAllGoodsSupplied().compareTo(actual.getTotalCostOfAllGoodsSupplied()));
+        assertEquals(expected.getReceiptCount(), actual.getReceiptCount());
+    }
+}